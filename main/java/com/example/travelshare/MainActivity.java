@@ -6,8 +6,15 @@ import androidx.appcompat.app.AppCompatActivity;
 import androidx.navigation.NavController;
 import androidx.navigation.fragment.NavHostFragment;
 
+import com.example.travelshare.services.AuthService;
 import com.example.travelshare.services.MyFirebaseMessagingService;
+import com.example.travelshare.services.NotificationService;
+import com.example.travelshare.services.OfflineStore;
+import com.example.travelshare.services.PhotoService;
+import com.example.travelshare.utils.FrameBudgetMonitor;
+import com.google.android.material.badge.BadgeDrawable;
 import com.google.android.material.bottomnavigation.BottomNavigationView;
+import com.google.firebase.firestore.ListenerRegistration;
 
 /**
  * Activité principale de l'application TravelShare
@@ -17,10 +24,19 @@ public class MainActivity extends AppCompatActivity {
 
     private NavController navController;
     private BottomNavigationView bottomNavigationView;
+    private ListenerRegistration unreadCountListener;
+    private boolean monitorFrames;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
+
+        // Debug : signaler le travail fait sur le thread principal et les frames longues
+        monitorFrames = FrameBudgetMonitor.isDebuggable(this);
+        if (monitorFrames) {
+            FrameBudgetMonitor.enableStrictMode();
+        }
+
         setContentView(R.layout.activity_main);
 
         // Les canaux de notification sont créés dans MyFirebaseMessagingService
@@ -30,6 +46,15 @@ public class MainActivity extends AppCompatActivity {
 
         // Enregistrer le token FCM
         MyFirebaseMessagingService.registerFcmToken();
+
+        // Mettre à jour la copie locale des photos en arrière-plan
+        OfflineStore.getInstance(this).syncPhotos();
+
+        // Reprendre les publications interrompues (fermeture de l'application, coupure réseau)
+        PhotoService.getInstance().resumePendingUploads(this);
+
+        // Terminer les suppressions de photos interrompues (dépendants restants)
+        PhotoService.getInstance().resumePendingDeletes(this);
     }
 
     private void setupNavigation() {
@@ -75,6 +100,59 @@ public class MainActivity extends AppCompatActivity {
         }
     }
 
+    @Override
+    protected void onStart() {
+        super.onStart();
+        startUnreadBadge();
+        if (monitorFrames) {
+            FrameBudgetMonitor.getInstance().start();
+        }
+    }
+
+    @Override
+    protected void onStop() {
+        super.onStop();
+        if (monitorFrames) {
+            FrameBudgetMonitor.getInstance().stop();
+        }
+        if (unreadCountListener != null) {
+            unreadCountListener.remove();
+            unreadCountListener = null;
+        }
+    }
+
+    /**
+     * Badge du nombre de notifications non lues, tenu à jour en direct
+     */
+    private void startUnreadBadge() {
+        AuthService authService = AuthService.getInstance();
+        if (bottomNavigationView == null || !authService.isUserLoggedIn()) {
+            return;
+        }
+
+        String userId = authService.getCurrentUser().getId();
+        unreadCountListener = NotificationService.getInstance().listenUnreadCount(userId,
+            new NotificationService.UnreadCountCallback() {
+                @Override
+                public void onSuccess(int count) {
+                    runOnUiThread(() -> {
+                        if (count > 0) {
+                            BadgeDrawable badge = bottomNavigationView.getOrCreateBadge(R.id.notificationsFragment);
+                            badge.setNumber(count);
+                            badge.setVisible(true);
+                        } else {
+                            bottomNavigationView.removeBadge(R.id.notificationsFragment);
+                        }
+                    });
+                }
+
+                @Override
+                public void onError(String error) {
+                    android.util.Log.w("MainActivity", "Badge des notifications: " + error);
+                }
+            });
+    }
+
     /**
      * Gère la navigation depuis une notification push
      * Quand on appuie sur une notification, cette méthode ouvre l'activité appropriée
@@ -1,8 +1,6 @@
 package com.example.travelshare.activities;
 
 import android.content.Intent;
-import android.location.Address;
-import android.location.Geocoder;
 import android.os.Bundle;
 import android.util.Log;
 import android.widget.Button;
@@ -12,6 +10,7 @@ import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
 
 import com.example.travelshare.R;
+import com.example.travelshare.services.GeocodingService;
 import com.google.android.gms.common.api.Status;
 import com.google.android.gms.maps.CameraUpdateFactory;
 import com.google.android.gms.maps.GoogleMap;
@@ -24,10 +23,7 @@ import com.google.android.libraries.places.api.model.Place;
 import com.google.android.libraries.places.widget.AutocompleteSupportFragment;
 import com.google.android.libraries.places.widget.listener.PlaceSelectionListener;
 
-import java.io.IOException;
 import java.util.Arrays;
-import java.util.List;
-import java.util.Locale;
 
 /**
  * Activity pour sélectionner une localisation sur Google Maps
@@ -39,14 +35,14 @@ public class LocationPickerActivity extends AppCompatActivity implements OnMapRe
     private GoogleMap googleMap;
     private LatLng selectedLocation;
     private Button btnConfirm;
-    private Geocoder geocoder;
+    private GeocodingService geocodingService;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_location_picker);
 
-        geocoder = new Geocoder(this, Locale.getDefault());
+        geocodingService = GeocodingService.getInstance(this);
 
         // Récupérer la position initiale si fournie
         double lat = getIntent().getDoubleExtra("latitude", 48.8566);
@@ -179,47 +175,58 @@ public class LocationPickerActivity extends AppCompatActivity implements OnMapRe
     }
 
     private void updateLocationInfo(LatLng latLng) {
-        // Géocodage inverse pour obtenir l'adresse
-        try {
-            List<Address> addresses = geocoder.getFromLocation(latLng.latitude, latLng.longitude, 1);
-            if (addresses != null && !addresses.isEmpty()) {
-                Address address = addresses.get(0);
-                String locationText = address.getLocality() + ", " + address.getCountryName();
-                Toast.makeText(this, locationText, Toast.LENGTH_SHORT).show();
+        // Géocodage inverse en arrière-plan ; le résultat reste en cache pour la confirmation
+        geocodingService.reverseGeocode(latLng.latitude, latLng.longitude, new GeocodingService.GeocodeCallback() {
+            @Override
+            public void onSuccess(GeocodingService.Place place) {
+                if (isFinishing()) return;
+                String locationText = place.getCity() + ", " + place.getCountry();
+                Toast.makeText(LocationPickerActivity.this, locationText, Toast.LENGTH_SHORT).show();
             }
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
+
+            @Override
+            public void onError(String error) {
+                Log.w(TAG, error);
+            }
+        });
     }
 
     private void confirmLocation() {
         if (selectedLocation != null) {
-            Intent resultIntent = new Intent();
-            resultIntent.putExtra("latitude", selectedLocation.latitude);
-            resultIntent.putExtra("longitude", selectedLocation.longitude);
-
-            // Obtenir l'adresse complète
-            try {
-                List<Address> addresses = geocoder.getFromLocation(
-                    selectedLocation.latitude,
-                    selectedLocation.longitude,
-                    1
-                );
-                if (addresses != null && !addresses.isEmpty()) {
-                    Address address = addresses.get(0);
-                    resultIntent.putExtra("city", address.getLocality());
-                    resultIntent.putExtra("country", address.getCountryName());
-                    resultIntent.putExtra("address", address.getAddressLine(0));
+            btnConfirm.setEnabled(false);
+            LatLng location = selectedLocation;
+
+            // Obtenir l'adresse complète (instantané si le point a déjà été résolu)
+            geocodingService.reverseGeocode(location.latitude, location.longitude, new GeocodingService.GeocodeCallback() {
+                @Override
+                public void onSuccess(GeocodingService.Place place) {
+                    finishWithLocation(location, place);
                 }
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
 
-            setResult(RESULT_OK, resultIntent);
-            finish();
+                @Override
+                public void onError(String error) {
+                    finishWithLocation(location, null);
+                }
+            });
         } else {
             Toast.makeText(this, "Veuillez sélectionner une localisation", Toast.LENGTH_SHORT).show();
         }
     }
+
+    private void finishWithLocation(LatLng location, GeocodingService.Place place) {
+        if (isFinishing()) return;
+
+        Intent resultIntent = new Intent();
+        resultIntent.putExtra("latitude", location.latitude);
+        resultIntent.putExtra("longitude", location.longitude);
+        if (place != null) {
+            resultIntent.putExtra("city", place.getCity());
+            resultIntent.putExtra("country", place.getCountry());
+            resultIntent.putExtra("address", place.getAddress());
+        }
+
+        setResult(RESULT_OK, resultIntent);
+        finish();
+    }
 }
 
@@ -7,14 +7,17 @@ import android.view.ViewGroup;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.travelshare.R;
 import com.example.travelshare.models.Comment;
 
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
+import java.util.Objects;
 
 /**
  *  pour afficher les commentaires
@@ -31,6 +34,43 @@ public class CommentAdapter extends RecyclerView.Adapter<CommentAdapter.CommentV
         this.dateFormat = new SimpleDateFormat("dd MMM yyyy HH:mm", Locale.getDefault());
     }
 
+    /**
+     * Remplace la liste en ne rafraîchissant que les commentaires ajoutés, retirés ou changés
+     */
+    public void submitList(List<Comment> newComments) {
+        List<Comment> oldComments = comments;
+        List<Comment> updated = new ArrayList<>(newComments);
+
+        DiffUtil.DiffResult diff = DiffUtil.calculateDiff(new DiffUtil.Callback() {
+            @Override
+            public int getOldListSize() {
+                return oldComments.size();
+            }
+
+            @Override
+            public int getNewListSize() {
+                return updated.size();
+            }
+
+            @Override
+            public boolean areItemsTheSame(int oldPosition, int newPosition) {
+                return Objects.equals(oldComments.get(oldPosition).getId(), updated.get(newPosition).getId());
+            }
+
+            @Override
+            public boolean areContentsTheSame(int oldPosition, int newPosition) {
+                Comment oldItem = oldComments.get(oldPosition);
+                Comment newItem = updated.get(newPosition);
+                return Objects.equals(oldItem.getAuthorName(), newItem.getAuthorName())
+                    && Objects.equals(oldItem.getContent(), newItem.getContent())
+                    && Objects.equals(oldItem.getCreatedAt(), newItem.getCreatedAt());
+            }
+        });
+
+        comments = updated;
+        diff.dispatchUpdatesTo(this);
+    }
+
     @NonNull
     @Override
     public CommentViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
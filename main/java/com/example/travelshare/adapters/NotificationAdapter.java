@@ -7,14 +7,17 @@ import android.view.ViewGroup;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.travelshare.R;
 import com.example.travelshare.models.Notification;
 
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
+import java.util.Objects;
 
 /**
   pour les notifications
@@ -37,6 +40,44 @@ public class NotificationAdapter extends RecyclerView.Adapter<NotificationAdapte
         this.dateFormat = new SimpleDateFormat("dd MMM yyyy HH:mm", Locale.getDefault());
     }
 
+    /**
+     * Remplace la liste et n'anime que les éléments ajoutés, retirés ou modifiés
+     */
+    public void submitList(List<Notification> newNotifications) {
+        List<Notification> oldNotifications = notifications;
+        List<Notification> updated = new ArrayList<>(newNotifications);
+
+        DiffUtil.DiffResult diff = DiffUtil.calculateDiff(new DiffUtil.Callback() {
+            @Override
+            public int getOldListSize() {
+                return oldNotifications.size();
+            }
+
+            @Override
+            public int getNewListSize() {
+                return updated.size();
+            }
+
+            @Override
+            public boolean areItemsTheSame(int oldPosition, int newPosition) {
+                return Objects.equals(oldNotifications.get(oldPosition).getId(), updated.get(newPosition).getId());
+            }
+
+            @Override
+            public boolean areContentsTheSame(int oldPosition, int newPosition) {
+                Notification oldItem = oldNotifications.get(oldPosition);
+                Notification newItem = updated.get(newPosition);
+                return oldItem.isRead() == newItem.isRead()
+                    && Objects.equals(oldItem.getTitle(), newItem.getTitle())
+                    && Objects.equals(oldItem.getMessage(), newItem.getMessage())
+                    && Objects.equals(oldItem.getCreatedAt(), newItem.getCreatedAt());
+            }
+        });
+
+        notifications = updated;
+        diff.dispatchUpdatesTo(this);
+    }
+
     @NonNull
     @Override
     public NotificationViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
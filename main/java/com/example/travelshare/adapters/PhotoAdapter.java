@@ -14,6 +14,7 @@ import androidx.recyclerview.widget.RecyclerView;
 import com.bumptech.glide.Glide;
 import com.example.travelshare.R;
 import com.example.travelshare.models.Photo;
+import com.example.travelshare.utils.ImageVariants;
 
 import java.text.SimpleDateFormat;
 import java.util.List;
@@ -58,10 +59,12 @@ public class PhotoAdapter extends RecyclerView.Adapter<PhotoAdapter.PhotoViewHol
         // Auteur
         holder.tvAuthor.setText(photo.getAuthorName());
 
-        // Image principale
+        // Image principale : variante qui couvre la zone (largeur de l'écran, hauteur fixe du layout)
         if (photo.getImageUrl() != null && !photo.getImageUrl().isEmpty()) {
+            int targetWidth = context.getResources().getDisplayMetrics().widthPixels;
+            int targetHeight = holder.ivPhoto.getLayoutParams().height;
             Glide.with(context)
-                    .load(photo.getImageUrl())
+                    .load(ImageVariants.urlFor(photo, targetWidth, targetHeight))
                     .centerCrop()
                     .placeholder(R.drawable.ic_launcher_background)
                     .into(holder.ivPhoto);
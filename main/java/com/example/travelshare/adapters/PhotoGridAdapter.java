@@ -8,11 +8,13 @@ import android.widget.ImageView;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.GridLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.bumptech.glide.Glide;
 import com.example.travelshare.R;
 import com.example.travelshare.models.Photo;
+import com.example.travelshare.utils.ImageVariants;
 
 import java.util.List;
 
@@ -25,6 +27,7 @@ public class PhotoGridAdapter extends RecyclerView.Adapter<PhotoGridAdapter.Phot
     private List<Photo> photos;
     private OnPhotoClickListener listener;
     private OnPhotoLongClickListener longClickListener;
+    private RecyclerView recyclerView;
 
     public interface OnPhotoClickListener {
         void onPhotoClick(Photo photo);
@@ -47,6 +50,32 @@ public class PhotoGridAdapter extends RecyclerView.Adapter<PhotoGridAdapter.Phot
         this.longClickListener = longClickListener;
     }
 
+    @Override
+    public void onAttachedToRecyclerView(@NonNull RecyclerView recyclerView) {
+        super.onAttachedToRecyclerView(recyclerView);
+        this.recyclerView = recyclerView;
+    }
+
+    @Override
+    public void onDetachedFromRecyclerView(@NonNull RecyclerView recyclerView) {
+        super.onDetachedFromRecyclerView(recyclerView);
+        this.recyclerView = null;
+    }
+
+    /**
+     * Largeur d'une cellule de la grille, en pixels
+     */
+    private int cellSizePx() {
+        int width = recyclerView != null && recyclerView.getWidth() > 0
+            ? recyclerView.getWidth()
+            : context.getResources().getDisplayMetrics().widthPixels;
+        int spanCount = 1;
+        if (recyclerView != null && recyclerView.getLayoutManager() instanceof GridLayoutManager) {
+            spanCount = ((GridLayoutManager) recyclerView.getLayoutManager()).getSpanCount();
+        }
+        return width / spanCount;
+    }
+
     @NonNull
     @Override
     public PhotoGridViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
@@ -58,10 +87,10 @@ public class PhotoGridAdapter extends RecyclerView.Adapter<PhotoGridAdapter.Phot
     public void onBindViewHolder(@NonNull PhotoGridViewHolder holder, int position) {
         Photo photo = photos.get(position);
 
-        // Image
+        // Image : la plus petite variante qui couvre la cellule
         if (photo.getImageUrl() != null && !photo.getImageUrl().isEmpty()) {
             Glide.with(context)
-                    .load(photo.getImageUrl())
+                    .load(ImageVariants.urlFor(photo, cellSizePx(), holder.itemView.getLayoutParams().height))
                     .centerCrop()
                     .placeholder(R.drawable.ic_launcher_background)
                     .into(holder.ivPhoto);
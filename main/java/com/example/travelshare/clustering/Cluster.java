@@ -0,0 +1,48 @@
+package com.example.travelshare.clustering;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Groupe d'éléments proches à un niveau de zoom donné
+ */
+public class Cluster<T extends ClusterItem> {
+    private final String key;
+    private final double latitude;
+    private final double longitude;
+    private final List<T> items;
+
+    Cluster(String key, double latitude, double longitude, List<T> items) {
+        this.key = key;
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.items = Collections.unmodifiableList(items);
+    }
+
+    /**
+     * Clé stable : identique d'une image à l'autre tant que le groupe ne change pas
+     */
+    public String getKey() {
+        return key;
+    }
+
+    public double getLatitude() {
+        return latitude;
+    }
+
+    public double getLongitude() {
+        return longitude;
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    public int getSize() {
+        return items.size();
+    }
+
+    public boolean isSingle() {
+        return items.size() == 1;
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.travelshare.clustering;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Différence entre les groupes affichés et les nouveaux groupes :
+ * seuls les marqueurs qui changent sont retirés ou ajoutés.
+ */
+public class ClusterDiff<T extends ClusterItem> {
+    private final List<String> removedKeys;
+    private final List<Cluster<T>> added;
+
+    private ClusterDiff(List<String> removedKeys, List<Cluster<T>> added) {
+        this.removedKeys = removedKeys;
+        this.added = added;
+    }
+
+    public static <T extends ClusterItem> ClusterDiff<T> compute(Collection<String> displayedKeys,
+                                                                 List<Cluster<T>> clusters) {
+        Set<String> nextKeys = new HashSet<>();
+        List<Cluster<T>> added = new ArrayList<>();
+        Set<String> displayed = new HashSet<>(displayedKeys);
+        for (Cluster<T> cluster : clusters) {
+            nextKeys.add(cluster.getKey());
+            if (!displayed.contains(cluster.getKey())) {
+                added.add(cluster);
+            }
+        }
+
+        List<String> removed = new ArrayList<>();
+        for (String key : displayed) {
+            if (!nextKeys.contains(key)) {
+                removed.add(key);
+            }
+        }
+        return new ClusterDiff<>(removed, added);
+    }
+
+    public List<String> getRemovedKeys() {
+        return removedKeys;
+    }
+
+    public List<Cluster<T>> getAdded() {
+        return added;
+    }
+
+    public boolean isEmpty() {
+        return removedKeys.isEmpty() && added.isEmpty();
+    }
+}
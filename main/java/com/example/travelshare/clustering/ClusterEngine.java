@@ -0,0 +1,98 @@
+package com.example.travelshare.clustering;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Regroupement des éléments par grille en projection Web Mercator.
+ * Java pur (sans dépendance Android) : à appeler hors du thread principal.
+ * Les groupes sont mis en cache par niveau de zoom jusqu'au prochain setItems().
+ */
+public class ClusterEngine<T extends ClusterItem> {
+    private static final int TILE_SIZE = 256;
+
+    private final int cellSizePx;
+    private final Map<Integer, List<Cluster<T>>> clustersByZoom = new HashMap<>();
+    private List<T> items = new ArrayList<>();
+
+    /**
+     * @param cellSizePx côté d'une cellule de regroupement, en pixels écran
+     */
+    public ClusterEngine(int cellSizePx) {
+        this.cellSizePx = cellSizePx;
+    }
+
+    public synchronized void setItems(Collection<T> newItems) {
+        items = new ArrayList<>(newItems);
+        clustersByZoom.clear();
+    }
+
+    /**
+     * Groupes pour un niveau de zoom entier (calculés une seule fois par zoom)
+     */
+    public synchronized List<Cluster<T>> getClusters(int zoom) {
+        List<Cluster<T>> clusters = clustersByZoom.get(zoom);
+        if (clusters == null) {
+            clusters = computeClusters(items, zoom);
+            clustersByZoom.put(zoom, clusters);
+        }
+        return clusters;
+    }
+
+    private List<Cluster<T>> computeClusters(List<T> source, int zoom) {
+        double worldSize = TILE_SIZE * Math.pow(2, zoom);
+        long cellsPerRow = (long) Math.ceil(worldSize / cellSizePx);
+
+        // L'ordre d'insertion garde un résultat déterministe
+        Map<Long, List<T>> buckets = new LinkedHashMap<>();
+        for (T item : source) {
+            double x = projectX(item.getLongitude()) * worldSize;
+            double y = projectY(item.getLatitude()) * worldSize;
+            long cellX = (long) (x / cellSizePx);
+            long cellY = (long) (y / cellSizePx);
+            long cellKey = cellY * cellsPerRow + cellX;
+
+            List<T> bucket = buckets.get(cellKey);
+            if (bucket == null) {
+                bucket = new ArrayList<>();
+                buckets.put(cellKey, bucket);
+            }
+            bucket.add(item);
+        }
+
+        List<Cluster<T>> clusters = new ArrayList<>(buckets.size());
+        for (Map.Entry<Long, List<T>> entry : buckets.entrySet()) {
+            List<T> bucket = entry.getValue();
+            if (bucket.size() == 1) {
+                T item = bucket.get(0);
+                // Un élément isolé garde la même clé à tous les zooms : son marqueur n'est pas recréé
+                clusters.add(new Cluster<>("p:" + item.getClusterKey(),
+                    item.getLatitude(), item.getLongitude(), bucket));
+            } else {
+                double latSum = 0;
+                double lonSum = 0;
+                for (T item : bucket) {
+                    latSum += item.getLatitude();
+                    lonSum += item.getLongitude();
+                }
+                String key = "c:" + zoom + ":" + entry.getKey() + ":" + bucket.size();
+                clusters.add(new Cluster<>(key, latSum / bucket.size(), lonSum / bucket.size(), bucket));
+            }
+        }
+        return clusters;
+    }
+
+    // Coordonnées Web Mercator normalisées dans [0, 1]
+    private static double projectX(double longitude) {
+        return (longitude + 180) / 360;
+    }
+
+    private static double projectY(double latitude) {
+        double sin = Math.sin(Math.toRadians(Math.max(-85.0511, Math.min(85.0511, latitude))));
+        return 0.5 - Math.log((1 + sin) / (1 - sin)) / (4 * Math.PI);
+    }
+}
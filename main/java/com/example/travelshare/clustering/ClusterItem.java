@@ -0,0 +1,15 @@
+package com.example.travelshare.clustering;
+
+/**
+ * Élément positionné pouvant être regroupé sur la carte
+ */
+public interface ClusterItem {
+    /**
+     * Identifiant stable de l'élément (ex: ID de la photo)
+     */
+    String getClusterKey();
+
+    double getLatitude();
+
+    double getLongitude();
+}
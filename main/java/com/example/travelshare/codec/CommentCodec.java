@@ -0,0 +1,42 @@
+package com.example.travelshare.codec;
+
+import com.example.travelshare.models.Comment;
+import com.google.firebase.firestore.DocumentSnapshot;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Conversion Comment ↔ document Firestore
+ */
+public final class CommentCodec {
+
+    private CommentCodec() {
+    }
+
+    public static Comment decode(DocumentSnapshot doc) {
+        Map<String, Object> data = doc.getData();
+        return data != null ? decode(doc.getId(), data) : null;
+    }
+
+    public static Comment decode(String id, Map<String, Object> data) {
+        Comment comment = new Comment();
+        comment.setId(id);
+        comment.setPhotoId(Fields.string(data, "photoId"));
+        comment.setAuthorId(Fields.string(data, "authorId"));
+        comment.setAuthorName(Fields.string(data, "authorName"));
+        comment.setContent(Fields.string(data, "content", ""));
+        comment.setCreatedAt(Fields.date(data, "createdAt"));
+        return comment;
+    }
+
+    public static Map<String, Object> encode(Comment comment) {
+        Map<String, Object> data = new HashMap<>();
+        data.put("photoId", comment.getPhotoId());
+        data.put("authorId", comment.getAuthorId());
+        data.put("authorName", comment.getAuthorName());
+        data.put("content", comment.getContent());
+        data.put("createdAt", comment.getCreatedAt());
+        return data;
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.travelshare.codec;
+
+import com.google.firebase.Timestamp;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Lecture typée des champs d'un document Firestore.
+ * Les valeurs absentes ou d'un type inattendu donnent la valeur par défaut, sans exception.
+ */
+final class Fields {
+
+    private Fields() {
+    }
+
+    static String string(Map<String, Object> data, String key) {
+        Object value = data.get(key);
+        return value instanceof String ? (String) value : null;
+    }
+
+    static String string(Map<String, Object> data, String key, String defaultValue) {
+        String value = string(data, key);
+        return value != null ? value : defaultValue;
+    }
+
+    /**
+     * Les dates arrivent en Timestamp ; les anciens documents peuvent contenir des millisecondes
+     */
+    static Date date(Map<String, Object> data, String key) {
+        Object value = data.get(key);
+        if (value instanceof Timestamp) {
+            return ((Timestamp) value).toDate();
+        }
+        if (value instanceof Date) {
+            return (Date) value;
+        }
+        if (value instanceof Long) {
+            return new Date((Long) value);
+        }
+        return null;
+    }
+
+    static long longValue(Map<String, Object> data, String key) {
+        Object value = data.get(key);
+        return value instanceof Number ? ((Number) value).longValue() : 0;
+    }
+
+    static int intValue(Map<String, Object> data, String key) {
+        Object value = data.get(key);
+        return value instanceof Number ? ((Number) value).intValue() : 0;
+    }
+
+    static double doubleValue(Map<String, Object> data, String key) {
+        Object value = data.get(key);
+        return value instanceof Number ? ((Number) value).doubleValue() : 0;
+    }
+
+    static boolean bool(Map<String, Object> data, String key, boolean defaultValue) {
+        Object value = data.get(key);
+        return value instanceof Boolean ? (Boolean) value : defaultValue;
+    }
+
+    /**
+     * Liste de chaînes (jamais null) ; les éléments d'un autre type sont ignorés
+     */
+    static List<String> stringList(Map<String, Object> data, String key) {
+        Object value = data.get(key);
+        if (!(value instanceof List)) {
+            return new ArrayList<>();
+        }
+        List<?> items = (List<?>) value;
+        List<String> strings = new ArrayList<>(items.size());
+        for (Object item : items) {
+            if (item instanceof String) {
+                strings.add((String) item);
+            }
+        }
+        return strings;
+    }
+
+    @SuppressWarnings("unchecked")
+    static Map<String, Object> map(Map<String, Object> data, String key) {
+        Object value = data.get(key);
+        return value instanceof Map ? (Map<String, Object>) value : null;
+    }
+
+    static <E extends Enum<E>> E enumValue(Map<String, Object> data, String key, Class<E> type, E defaultValue) {
+        String name = string(data, key);
+        if (name == null) {
+            return defaultValue;
+        }
+        try {
+            return Enum.valueOf(type, name);
+        } catch (IllegalArgumentException e) {
+            return defaultValue;
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.travelshare.codec;
+
+import com.example.travelshare.models.Group;
+import com.google.firebase.firestore.DocumentSnapshot;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Conversion Group ↔ document Firestore
+ */
+public final class GroupCodec {
+
+    private GroupCodec() {
+    }
+
+    public static Group decode(DocumentSnapshot doc) {
+        Map<String, Object> data = doc.getData();
+        return data != null ? decode(doc.getId(), data) : null;
+    }
+
+    public static List<Group> decodeAll(List<DocumentSnapshot> docs) {
+        List<Group> groups = new ArrayList<>(docs.size());
+        for (DocumentSnapshot doc : docs) {
+            Group group = decode(doc);
+            if (group != null) {
+                groups.add(group);
+            }
+        }
+        return groups;
+    }
+
+    public static Group decode(String id, Map<String, Object> data) {
+        Group group = new Group();
+        group.setId(id);
+        group.setName(Fields.string(data, "name", ""));
+        group.setDescription(Fields.string(data, "description"));
+        group.setImageUrl(Fields.string(data, "imageUrl", ""));
+        group.setOwnerId(Fields.string(data, "ownerId"));
+        group.setMemberIds(Fields.stringList(data, "memberIds"));
+        group.setCreatedAt(Fields.date(data, "createdAt"));
+        return group;
+    }
+
+    public static Map<String, Object> encode(Group group) {
+        Map<String, Object> data = new HashMap<>();
+        data.put("name", group.getName());
+        data.put("description", group.getDescription());
+        data.put("ownerId", group.getOwnerId());
+        data.put("memberIds", group.getMemberIds() != null ? group.getMemberIds() : new ArrayList<>());
+        data.put("createdAt", group.getCreatedAt());
+        data.put("imageUrl", group.getImageUrl() != null ? group.getImageUrl() : "");
+        return data;
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.travelshare.codec;
+
+import com.example.travelshare.models.Location;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Conversion Location ↔ champ "location" d'une photo
+ */
+public final class LocationCodec {
+
+    private LocationCodec() {
+    }
+
+    public static Location decode(Map<String, Object> data) {
+        if (data == null) return null;
+        Location location = new Location();
+        location.setLatitude(Fields.doubleValue(data, "latitude"));
+        location.setLongitude(Fields.doubleValue(data, "longitude"));
+        location.setAddress(Fields.string(data, "address", ""));
+        location.setCity(Fields.string(data, "city", ""));
+        location.setCountry(Fields.string(data, "country", ""));
+        // "isExact" à l'écriture ; "exact" pour les documents écrits par le mapping réflexif
+        location.setExact(Fields.bool(data, "isExact", Fields.bool(data, "exact", false)));
+        location.setApproximationRadius(Fields.doubleValue(data, "approximationRadius"));
+        return location;
+    }
+
+    /**
+     * Mêmes valeurs par défaut que la publication : chaînes vides plutôt que null
+     */
+    public static Map<String, Object> encode(Location location) {
+        Map<String, Object> data = new HashMap<>();
+        data.put("latitude", location.getLatitude());
+        data.put("longitude", location.getLongitude());
+        data.put("address", location.getAddress() != null ? location.getAddress() : "");
+        data.put("city", location.getCity() != null ? location.getCity() : "");
+        data.put("country", location.getCountry() != null ? location.getCountry() : "");
+        data.put("isExact", location.isExact());
+        data.put("approximationRadius", location.getApproximationRadius());
+        return data;
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.travelshare.codec;
+
+import com.example.travelshare.models.Notification;
+import com.google.firebase.firestore.DocumentSnapshot;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Conversion Notification ↔ document Firestore
+ */
+public final class NotificationCodec {
+
+    private NotificationCodec() {
+    }
+
+    public static Notification decode(DocumentSnapshot doc) {
+        Map<String, Object> data = doc.getData();
+        return data != null ? decode(doc.getId(), data) : null;
+    }
+
+    public static Notification decode(String id, Map<String, Object> data) {
+        Notification notification = new Notification();
+        notification.setId(id);
+        notification.setUserId(Fields.string(data, "userId"));
+        notification.setType(typeOf(Fields.string(data, "type")));
+        notification.setTitle(Fields.string(data, "title"));
+        notification.setMessage(Fields.string(data, "message"));
+        // Les notifications de commentaire portent "photoId" au lieu de "relatedPhotoId"
+        notification.setRelatedPhotoId(Fields.string(data, "relatedPhotoId", Fields.string(data, "photoId")));
+        notification.setRelatedUserId(Fields.string(data, "relatedUserId", Fields.string(data, "fromUserId")));
+        notification.setRelatedGroupId(Fields.string(data, "relatedGroupId"));
+        notification.setRead(Fields.bool(data, "read", false));
+        Date createdAt = Fields.date(data, "createdAt");
+        if (createdAt != null) {
+            notification.setCreatedAt(createdAt);
+        }
+        return notification;
+    }
+
+    public static Map<String, Object> encode(Notification notification) {
+        Map<String, Object> data = new HashMap<>();
+        data.put("userId", notification.getUserId());
+        data.put("type", notification.getType() != null ? notification.getType().name() : null);
+        data.put("title", notification.getTitle());
+        data.put("message", notification.getMessage());
+        data.put("relatedPhotoId", notification.getRelatedPhotoId());
+        data.put("relatedUserId", notification.getRelatedUserId());
+        data.put("relatedGroupId", notification.getRelatedGroupId());
+        data.put("read", notification.isRead());
+        data.put("createdAt", notification.getCreatedAt());
+        return data;
+    }
+
+    /**
+     * Nom de l'énumération, ou "comment" écrit par CommentService
+     */
+    private static Notification.NotificationType typeOf(String value) {
+        if (value == null) return null;
+        switch (value) {
+            case "comment":
+                return Notification.NotificationType.NEW_COMMENT;
+            default:
+                try {
+                    return Notification.NotificationType.valueOf(value);
+                } catch (IllegalArgumentException e) {
+                    return null;
+                }
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.travelshare.codec;
+
+import com.example.travelshare.models.Photo;
+import com.example.travelshare.models.PhotoType;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldValue;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Conversion Photo ↔ document Firestore, champ par champ, sans toObject() réflexif.
+ * Les champs d'index (randomKey, geohash, searchTokens) restent écrits par PhotoService.
+ */
+public final class PhotoCodec {
+
+    private PhotoCodec() {
+    }
+
+    /**
+     * Photo d'un document, ou null s'il n'existe pas
+     */
+    public static Photo decode(DocumentSnapshot doc) {
+        Map<String, Object> data = doc.getData();
+        return data != null ? decode(doc.getId(), data) : null;
+    }
+
+    public static List<Photo> decodeAll(List<DocumentSnapshot> docs) {
+        List<Photo> photos = new ArrayList<>(docs.size());
+        for (DocumentSnapshot doc : docs) {
+            Photo photo = decode(doc);
+            if (photo != null) {
+                photos.add(photo);
+            }
+        }
+        return photos;
+    }
+
+    /**
+     * Valeurs absentes remplacées comme à la publication (chaînes vides, listes vides, type AUTRE)
+     */
+    public static Photo decode(String id, Map<String, Object> data) {
+        Photo photo = new Photo();
+        photo.setId(id);
+        photo.setAuthorId(Fields.string(data, "authorId"));
+        photo.setAuthorName(Fields.string(data, "authorName"));
+        photo.setImageUrl(Fields.string(data, "imageUrl"));
+        photo.setMediumUrl(Fields.string(data, "mediumUrl"));
+        photo.setThumbnailUrl(Fields.string(data, "thumbnailUrl"));
+        photo.setWidth(Fields.intValue(data, "width"));
+        photo.setHeight(Fields.intValue(data, "height"));
+        photo.setDescription(Fields.string(data, "description"));
+        photo.setLocation(LocationCodec.decode(Fields.map(data, "location")));
+        photo.setTakenDate(Fields.date(data, "takenDate"));
+        photo.setPeriod(Fields.string(data, "period", ""));
+        photo.setTags(Fields.stringList(data, "tags"));
+        photo.setPhotoType(Fields.enumValue(data, "photoType", PhotoType.class, PhotoType.AUTRE));
+        photo.setHowToGetThere(Fields.string(data, "howToGetThere", ""));
+        photo.setLikesCount(Fields.intValue(data, "likesCount"));
+        photo.setCommentsCount(Fields.intValue(data, "commentsCount"));
+        photo.setReportsCount(Fields.intValue(data, "reportsCount"));
+        // "isPublic" à l'écriture ; "public" pour les documents écrits par le mapping réflexif
+        photo.setPublic(Fields.bool(data, "isPublic", Fields.bool(data, "public", false)));
+        photo.setSharedWithGroupIds(Fields.stringList(data, "sharedWithGroupIds"));
+        photo.setCreatedAt(Fields.date(data, "createdAt"));
+        photo.setUpdatedAt(Fields.date(data, "updatedAt"));
+        return photo;
+    }
+
+    public static Map<String, Object> encode(Photo photo) {
+        Map<String, Object> data = new HashMap<>();
+        data.put("authorId", photo.getAuthorId());
+        data.put("authorName", photo.getAuthorName());
+        data.put("imageUrl", photo.getImageUrl());
+        data.put("mediumUrl", photo.getMediumUrl());
+        data.put("thumbnailUrl", photo.getThumbnailUrl());
+        data.put("width", photo.getWidth());
+        data.put("height", photo.getHeight());
+        data.put("description", photo.getDescription());
+        data.put("createdAt", photo.getCreatedAt() != null ? photo.getCreatedAt() : new Date());
+        // Heure du serveur : sert de marque à la synchronisation (OfflineStore), l'horloge du client peut retarder
+        data.put("updatedAt", FieldValue.serverTimestamp());
+        data.put("takenDate", photo.getTakenDate());
+        data.put("period", photo.getPeriod() != null ? photo.getPeriod() : "");
+        data.put("isPublic", photo.isPublic());
+        data.put("likesCount", photo.getLikesCount());
+        data.put("commentsCount", photo.getCommentsCount());
+        data.put("reportsCount", photo.getReportsCount());
+        data.put("tags", photo.getTags() != null ? photo.getTags() : new ArrayList<>());
+        data.put("sharedWithGroupIds", photo.getSharedWithGroupIds() != null ? photo.getSharedWithGroupIds() : new ArrayList<>());
+        data.put("howToGetThere", photo.getHowToGetThere() != null ? photo.getHowToGetThere() : "");
+        data.put("photoType", photo.getPhotoType() != null ? photo.getPhotoType().name() : PhotoType.AUTRE.name());
+        if (photo.getLocation() != null) {
+            data.put("location", LocationCodec.encode(photo.getLocation()));
+        }
+        return data;
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.travelshare.codec;
+
+import com.example.travelshare.models.User;
+import com.google.firebase.firestore.DocumentSnapshot;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Conversion User ↔ document users/{id}
+ */
+public final class UserCodec {
+
+    private UserCodec() {
+    }
+
+    public static User decode(DocumentSnapshot doc) {
+        Map<String, Object> data = doc.getData();
+        return data != null ? decode(doc.getId(), data) : null;
+    }
+
+    public static User decode(String id, Map<String, Object> data) {
+        User user = new User();
+        user.setId(id);
+        user.setUsername(Fields.string(data, "username"));
+        user.setEmail(Fields.string(data, "email"));
+        user.setProfileImageUrl(Fields.string(data, "profileImageUrl", ""));
+        user.setBio(Fields.string(data, "bio", ""));
+        user.setCreatedAt(Fields.date(data, "createdAt"));
+        user.setAnonymous(Fields.bool(data, "anonymous", true));
+        user.setPhotosCount(Fields.longValue(data, "photosCount"));
+        return user;
+    }
+
+    public static Map<String, Object> encode(User user) {
+        Map<String, Object> data = new HashMap<>();
+        data.put("username", user.getUsername());
+        data.put("email", user.getEmail());
+        data.put("anonymous", user.isAnonymous());
+        data.put("profileImageUrl", user.getProfileImageUrl() != null ? user.getProfileImageUrl() : "");
+        data.put("bio", user.getBio() != null ? user.getBio() : "");
+        data.put("createdAt", user.getCreatedAt());
+        data.put("photosCount", user.getPhotosCount());
+        return data;
+    }
+}
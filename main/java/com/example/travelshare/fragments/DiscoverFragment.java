@@ -19,22 +19,37 @@ import com.example.travelshare.adapters.PhotoAdapter;
 import com.example.travelshare.models.Photo;
 import com.example.travelshare.services.PhotoService;
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
+import com.google.firebase.firestore.DocumentSnapshot;
 
 import java.util.ArrayList;
 import java.util.List;
 
 /**
- * Fragment pour le flux de découverte (photos aléatoires)
+ * Fragment pour le flux de découverte : photos récentes, ou tirées au hasard
+ * (bouton "au hasard") sans répéter celles déjà vues pendant la session
  */
 public class DiscoverFragment extends Fragment {
 
+    // Nombre de cartes restantes avant la fin de la liste qui déclenche le chargement suivant
+    private static final int PREFETCH_DISTANCE = 5;
+
     private RecyclerView recyclerView;
     private PhotoAdapter photoAdapter;
     private SwipeRefreshLayout swipeRefreshLayout;
     private FloatingActionButton fabPublish;
+    private FloatingActionButton fabShuffle;
     private PhotoService photoService;
     private List<Photo> photoList;
 
+    // Pagination du flux
+    private LinearLayoutManager layoutManager;
+    private DocumentSnapshot feedCursor;
+    private boolean hasMorePhotos = true;
+    private boolean isLoadingPage = false;
+    private int feedGeneration = 0;
+    private boolean randomMode = false;
+    private int randomPagesLoaded = 0;
+
     @Nullable
     @Override
     public View onCreateView(@NonNull LayoutInflater inflater, @Nullable ViewGroup container, @Nullable Bundle savedInstanceState) {
@@ -47,6 +62,7 @@ public class DiscoverFragment extends Fragment {
         setupRecyclerView();
         setupSwipeRefresh();
         setupFab();
+        setupShuffle();
 
         loadPhotos();
 
@@ -57,6 +73,7 @@ public class DiscoverFragment extends Fragment {
         recyclerView = view.findViewById(R.id.recycler_view_photos);
         swipeRefreshLayout = view.findViewById(R.id.swipe_refresh);
         fabPublish = view.findViewById(R.id.fab_publish);
+        fabShuffle = view.findViewById(R.id.fab_shuffle);
     }
 
     private void setupRecyclerView() {
@@ -99,8 +116,21 @@ public class DiscoverFragment extends Fragment {
             }
         });
 
-        recyclerView.setLayoutManager(new LinearLayoutManager(getContext()));
+        layoutManager = new LinearLayoutManager(getContext());
+        recyclerView.setLayoutManager(layoutManager);
         recyclerView.setAdapter(photoAdapter);
+
+        // Scroll infini : précharger la page suivante avant d'atteindre le bas
+        recyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView rv, int dx, int dy) {
+                if (dy <= 0) return;
+                int lastVisible = layoutManager.findLastVisibleItemPosition();
+                if (lastVisible >= photoList.size() - PREFETCH_DISTANCE) {
+                    loadNextPage();
+                }
+            }
+        });
     }
 
     private void setupSwipeRefresh() {
@@ -119,17 +149,74 @@ public class DiscoverFragment extends Fragment {
         });
     }
 
+    private void setupShuffle() {
+        fabShuffle.setOnClickListener(v -> {
+            randomMode = !randomMode;
+            fabShuffle.setActivated(randomMode);
+            Toast.makeText(getContext(),
+                randomMode ? R.string.discover_random : R.string.discover_recent,
+                Toast.LENGTH_SHORT).show();
+            loadPhotos();
+        });
+    }
+
     private void loadPhotos() {
+        // Rafraîchissement : repartir de la première page
+        if (randomMode) {
+            photoService.resetDiscoverySession();
+        }
+        feedGeneration++;
+        feedCursor = null;
+        randomPagesLoaded = 0;
+        hasMorePhotos = true;
+        isLoadingPage = false;
         swipeRefreshLayout.setRefreshing(true);
+        loadNextPage();
+    }
+
+    private void loadNextPage() {
+        if (isLoadingPage || !hasMorePhotos) return;
+        isLoadingPage = true;
+
+        final int generation = feedGeneration;
+        final boolean firstPage = randomMode ? randomPagesLoaded == 0 : feedCursor == null;
 
-        photoService.getRandomPhotos(20, new PhotoService.PhotoCallback() {
+        if (randomMode) {
+            loadRandomPage(generation, firstPage);
+            return;
+        }
+
+        photoService.getDiscoverFeedPage(PhotoService.DEFAULT_FEED_PAGE_SIZE, feedCursor, new PhotoService.PhotoPageCallback() {
             @Override
-            public void onSuccess(List<Photo> photos) {
+            public void onSuccess(List<Photo> photos, DocumentSnapshot lastVisible, boolean hasMore, boolean fromCache) {
                 if (getActivity() != null) {
                     getActivity().runOnUiThread(() -> {
-                        photoList.clear();
-                        photoList.addAll(photos);
-                        photoAdapter.notifyDataSetChanged();
+                        // Ignorer une page arrivée après un rafraîchissement
+                        if (generation != feedGeneration) return;
+
+                        if (fromCache) {
+                            // Affichage immédiat ; le chargement reste en cours jusqu'à la page
+                            // du serveur, qui la remplacera et fournira le curseur
+                            photoList.clear();
+                            photoList.addAll(photos);
+                            photoAdapter.notifyDataSetChanged();
+                            swipeRefreshLayout.setRefreshing(false);
+                            return;
+                        }
+
+                        feedCursor = lastVisible;
+                        hasMorePhotos = hasMore;
+                        isLoadingPage = false;
+
+                        if (firstPage) {
+                            photoList.clear();
+                            photoList.addAll(photos);
+                            photoAdapter.notifyDataSetChanged();
+                        } else {
+                            int start = photoList.size();
+                            photoList.addAll(photos);
+                            photoAdapter.notifyItemRangeInserted(start, photos.size());
+                        }
                         swipeRefreshLayout.setRefreshing(false);
                     });
                 }
@@ -139,6 +226,8 @@ public class DiscoverFragment extends Fragment {
             public void onError(String error) {
                 if (getActivity() != null) {
                     getActivity().runOnUiThread(() -> {
+                        if (generation != feedGeneration) return;
+                        isLoadingPage = false;
                         Toast.makeText(getContext(), error, Toast.LENGTH_SHORT).show();
                         swipeRefreshLayout.setRefreshing(false);
                     });
@@ -147,37 +236,71 @@ public class DiscoverFragment extends Fragment {
         });
     }
 
-    private void handleLike(Photo photo) {
-        if (photo.isLikedByCurrentUser()) {
-            // Unlike
-            photoService.unlikePhoto(photo.getId(), new PhotoService.LikeCallback() {
-                @Override
-                public void onSuccess() {
-                    photo.setLikedByCurrentUser(false);
-                    photo.setLikesCount(photo.getLikesCount() - 1);
-                    photoAdapter.notifyDataSetChanged();
+    /**
+     * Page tirée au hasard ; une page vide signifie que tout a déjà été vu
+     */
+    private void loadRandomPage(int generation, boolean firstPage) {
+        photoService.getRandomPhotos(PhotoService.DEFAULT_FEED_PAGE_SIZE, new PhotoService.PhotoCallback() {
+            @Override
+            public void onSuccess(List<Photo> photos) {
+                if (getActivity() != null) {
+                    getActivity().runOnUiThread(() -> {
+                        if (generation != feedGeneration) return;
+
+                        randomPagesLoaded++;
+                        hasMorePhotos = !photos.isEmpty();
+                        isLoadingPage = false;
+
+                        if (firstPage) {
+                            photoList.clear();
+                            photoList.addAll(photos);
+                            photoAdapter.notifyDataSetChanged();
+                        } else {
+                            int start = photoList.size();
+                            photoList.addAll(photos);
+                            photoAdapter.notifyItemRangeInserted(start, photos.size());
+                        }
+                        swipeRefreshLayout.setRefreshing(false);
+                    });
                 }
+            }
 
-                @Override
-                public void onError(String error) {
-                    Toast.makeText(getContext(), error, Toast.LENGTH_SHORT).show();
-                }
-            });
-        } else {
-            // Like
-            photoService.likePhoto(photo.getId(), new PhotoService.LikeCallback() {
-                @Override
-                public void onSuccess() {
-                    photo.setLikedByCurrentUser(true);
-                    photo.setLikesCount(photo.getLikesCount() + 1);
-                    photoAdapter.notifyDataSetChanged();
+            @Override
+            public void onError(String error) {
+                if (getActivity() != null) {
+                    getActivity().runOnUiThread(() -> {
+                        if (generation != feedGeneration) return;
+                        isLoadingPage = false;
+                        Toast.makeText(getContext(), error, Toast.LENGTH_SHORT).show();
+                        swipeRefreshLayout.setRefreshing(false);
+                    });
                 }
+            }
+        });
+    }
 
-                @Override
-                public void onError(String error) {
-                    Toast.makeText(getContext(), error, Toast.LENGTH_SHORT).show();
-                }
-            });
+    private void handleLike(Photo photo) {
+        // Mise à jour optimiste : PhotoService regroupe les appuis rapides en une seule écriture
+        photoService.toggleLike(photo, new PhotoService.LikeCallback() {
+            @Override
+            public void onSuccess() {
+            }
+
+            @Override
+            public void onError(String error) {
+                // Écriture différée : l'écran a pu être quitté entre-temps
+                if (!isAdded() || getView() == null) return;
+                notifyPhotoChanged(photo);
+                Toast.makeText(getContext(), error, Toast.LENGTH_SHORT).show();
+            }
+        });
+        notifyPhotoChanged(photo);
+    }
+
+    private void notifyPhotoChanged(Photo photo) {
+        int position = photoList.indexOf(photo);
+        if (position >= 0) {
+            photoAdapter.notifyItemChanged(position);
         }
     }
 
@@ -18,8 +18,9 @@ import com.example.travelshare.adapters.PhotoGridAdapter;
 import com.example.travelshare.models.Group;
 import com.example.travelshare.models.Photo;
 import com.example.travelshare.services.GroupService;
+import com.example.travelshare.services.OfflineStore;
+import com.example.travelshare.services.PhotoService;
 import com.google.firebase.firestore.DocumentSnapshot;
-import com.google.firebase.firestore.FirebaseFirestore;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -29,18 +30,26 @@ import java.util.List;
  */
 public class GroupDetailFragment extends Fragment {
 
+    // Charger la page suivante quand il reste moins de 2 rangées à afficher
+    private static final int SPAN_COUNT = 3;
+    private static final int PREFETCH_DISTANCE = 2 * SPAN_COUNT;
+
     private TextView tvGroupName;
     private TextView tvGroupDescription;
     private TextView tvMemberCount;
     private RecyclerView rvGroupPhotos;
+    private GridLayoutManager layoutManager;
     private PhotoGridAdapter photoAdapter;
 
     private GroupService groupService;
-    private FirebaseFirestore db;
+    private PhotoService photoService;
 
     private String groupId;
     private Group group;
     private List<Photo> groupPhotos = new ArrayList<>();
+    private DocumentSnapshot feedCursor;
+    private boolean hasMorePhotos = true;
+    private boolean isLoadingPage = false;
 
     @Nullable
     @Override
@@ -48,12 +57,16 @@ public class GroupDetailFragment extends Fragment {
         View view = inflater.inflate(R.layout.fragment_group_detail, container, false);
 
         groupService = GroupService.getInstance();
-        db = FirebaseFirestore.getInstance();
+        photoService = PhotoService.getInstance();
 
         // Récupérer l'ID du groupe depuis les arguments
         if (getArguments() != null) {
             groupId = getArguments().getString("groupId");
         }
+        if (groupId != null) {
+            // Fil consulté : sa première page sera gardée à jour pour l'affichage hors connexion
+            OfflineStore.getInstance(requireContext()).noteGroupFeedRead(groupId);
+        }
 
         initViews(view);
         setupRecyclerView();
@@ -84,8 +97,21 @@ public class GroupDetailFragment extends Fragment {
             }
         });
 
-        rvGroupPhotos.setLayoutManager(new GridLayoutManager(getContext(), 3));
+        layoutManager = new GridLayoutManager(getContext(), SPAN_COUNT);
+        rvGroupPhotos.setLayoutManager(layoutManager);
         rvGroupPhotos.setAdapter(photoAdapter);
+
+        // Pagination du fil : charger la suite en approchant de la fin
+        rvGroupPhotos.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView rv, int dx, int dy) {
+                if (dy <= 0) return;
+                int lastVisible = layoutManager.findLastVisibleItemPosition();
+                if (lastVisible >= groupPhotos.size() - PREFETCH_DISTANCE) {
+                    loadGroupPhotos();
+                }
+            }
+        });
     }
 
     private void loadGroupDetails() {
@@ -94,20 +120,20 @@ public class GroupDetailFragment extends Fragment {
             return;
         }
 
-        db.collection("groups").document(groupId)
-            .get()
-            .addOnSuccessListener(documentSnapshot -> {
-                if (documentSnapshot.exists()) {
-                    group = documentSnapshot.toObject(Group.class);
-                    if (group != null) {
-                        group.setId(documentSnapshot.getId());
-                        updateUI();
-                    }
-                }
-            })
-            .addOnFailureListener(e -> {
-                Toast.makeText(getContext(), "Erreur de chargement: " + e.getMessage(), Toast.LENGTH_SHORT).show();
-            });
+        groupService.getGroup(groupId, new GroupService.GroupCallback() {
+            @Override
+            public void onSuccess(Group loadedGroup) {
+                if (getActivity() == null) return;
+                group = loadedGroup;
+                updateUI();
+            }
+
+            @Override
+            public void onError(String error) {
+                if (getActivity() == null) return;
+                Toast.makeText(getContext(), error, Toast.LENGTH_SHORT).show();
+            }
+        });
     }
 
     private void updateUI() {
@@ -126,38 +152,51 @@ public class GroupDetailFragment extends Fragment {
     }
 
     private void loadGroupPhotos() {
-        if (groupId == null) return;
-
-        // Charger toutes les photos partagées avec ce groupe
-        db.collection("photos")
-            .whereArrayContains("sharedWithGroupIds", groupId)
-            .get()
-            .addOnSuccessListener(querySnapshot -> {
-                groupPhotos.clear();
-                for (DocumentSnapshot doc : querySnapshot.getDocuments()) {
-                    Photo photo = doc.toObject(Photo.class);
-                    if (photo != null) {
-                        photo.setId(doc.getId());
-                        groupPhotos.add(photo);
-                    }
+        if (groupId == null || isLoadingPage || !hasMorePhotos) return;
+        isLoadingPage = true;
+
+        final boolean firstPage = feedCursor == null;
+
+        // Fil du groupe par pages, les plus récentes d'abord (première page : cache local puis serveur)
+        photoService.getGroupFeedPage(groupId, PhotoService.DEFAULT_FEED_PAGE_SIZE, feedCursor, new PhotoService.PhotoPageCallback() {
+            @Override
+            public void onSuccess(List<Photo> photos, DocumentSnapshot lastVisible, boolean hasMore, boolean fromCache) {
+                if (getActivity() == null) return;
+
+                if (fromCache) {
+                    // Affichage immédiat ; pas de page suivante avant celle du serveur
+                    groupPhotos.clear();
+                    groupPhotos.addAll(photos);
+                    photoAdapter.notifyDataSetChanged();
+                    return;
                 }
 
-                // Trier par date
-                groupPhotos.sort((p1, p2) -> {
-                    if (p1.getCreatedAt() == null) return 1;
-                    if (p2.getCreatedAt() == null) return -1;
-                    return p2.getCreatedAt().compareTo(p1.getCreatedAt());
-                });
+                feedCursor = lastVisible;
+                hasMorePhotos = hasMore;
+                isLoadingPage = false;
 
-                photoAdapter.notifyDataSetChanged();
+                if (firstPage) {
+                    groupPhotos.clear();
+                    groupPhotos.addAll(photos);
+                    photoAdapter.notifyDataSetChanged();
 
-                if (groupPhotos.isEmpty()) {
-                    Toast.makeText(getContext(), "Aucune photo dans ce groupe", Toast.LENGTH_SHORT).show();
+                    if (groupPhotos.isEmpty()) {
+                        Toast.makeText(getContext(), "Aucune photo dans ce groupe", Toast.LENGTH_SHORT).show();
+                    }
+                } else {
+                    int start = groupPhotos.size();
+                    groupPhotos.addAll(photos);
+                    photoAdapter.notifyItemRangeInserted(start, photos.size());
                 }
-            })
-            .addOnFailureListener(e -> {
-                Toast.makeText(getContext(), "Erreur de chargement des photos: " + e.getMessage(), Toast.LENGTH_SHORT).show();
-            });
+            }
+
+            @Override
+            public void onError(String error) {
+                if (getActivity() == null) return;
+                isLoadingPage = false;
+                Toast.makeText(getContext(), error, Toast.LENGTH_SHORT).show();
+            }
+        });
     }
 }
 
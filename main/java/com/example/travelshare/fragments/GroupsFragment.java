@@ -136,8 +136,8 @@ public class GroupsFragment extends Fragment {
 
         String userId = authService.getCurrentUser().getId();
 
-        // Charger mes groupes
-        groupService.getUserGroups(userId, new GroupService.GroupsCallback() {
+        // Charger mes groupes (cache local puis serveur)
+        groupService.getUserGroupsLocalFirst(userId, new GroupService.GroupsCallback() {
             @Override
             public void onSuccess(List<Group> groups) {
                 myGroups.clear();
@@ -3,6 +3,8 @@ package com.example.travelshare.fragments;
 import android.Manifest;
 import android.content.pm.PackageManager;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
 import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
@@ -15,19 +17,31 @@ import androidx.core.app.ActivityCompat;
 import androidx.fragment.app.Fragment;
 
 import com.example.travelshare.R;
+import com.example.travelshare.clustering.Cluster;
+import com.example.travelshare.clustering.ClusterDiff;
+import com.example.travelshare.clustering.ClusterEngine;
+import com.example.travelshare.clustering.ClusterItem;
 import com.example.travelshare.models.Photo;
 import com.example.travelshare.services.PhotoService;
+import com.example.travelshare.utils.GeoHash;
 import com.google.android.gms.maps.CameraUpdateFactory;
 import com.google.android.gms.maps.GoogleMap;
 import com.google.android.gms.maps.OnMapReadyCallback;
 import com.google.android.gms.maps.SupportMapFragment;
 import com.google.android.gms.maps.model.LatLng;
+import com.google.android.gms.maps.model.BitmapDescriptorFactory;
+import com.google.android.gms.maps.model.LatLngBounds;
 import com.google.android.gms.maps.model.Marker;
 import com.google.android.gms.maps.model.MarkerOptions;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * Fragment pour visualiser les photos publiées sur une carte Google Maps
@@ -36,10 +50,23 @@ public class MapFragment extends Fragment implements OnMapReadyCallback {
 
     private static final String TAG = "MapFragment";
     private static final int LOCATION_PERMISSION_REQUEST_CODE = 1001;
+    // Taille d'une cellule de regroupement, en pixels écran
+    private static final int CLUSTER_CELL_SIZE_PX = 100;
 
     private GoogleMap googleMap;
     private PhotoService photoService;
-    private Map<Marker, Photo> markerPhotoMap;
+    private Map<String, Marker> markersByClusterKey;
+
+    // Regroupement des marqueurs calculé hors du thread principal
+    private final ClusterEngine<PhotoClusterItem> clusterEngine = new ClusterEngine<>(CLUSTER_CELL_SIZE_PX);
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private ExecutorService clusterExecutor;
+    private int clusterGeneration = 0;
+
+    // Cellules geohash chargées pour la zone visible, et celles en cours de chargement
+    private final Map<String, List<Photo>> loadedTiles = new HashMap<>();
+    private final Set<String> pendingTiles = new HashSet<>();
+    private Set<String> neededTiles = new HashSet<>();
 
     @Nullable
     @Override
@@ -47,7 +74,8 @@ public class MapFragment extends Fragment implements OnMapReadyCallback {
         View view = inflater.inflate(R.layout.fragment_map, container, false);
 
         photoService = PhotoService.getInstance();
-        markerPhotoMap = new HashMap<>();
+        markersByClusterKey = new HashMap<>();
+        clusterExecutor = Executors.newSingleThreadExecutor();
 
         // Initialiser la carte
         SupportMapFragment mapFragment = (SupportMapFragment) getChildFragmentManager()
@@ -59,6 +87,11 @@ public class MapFragment extends Fragment implements OnMapReadyCallback {
         return view;
     }
 
+    @Override
+    public void onDestroyView() {
+        super.onDestroyView();
+        clusterExecutor.shutdownNow();
+    }
 
     @Override
     public void onMapReady(@NonNull GoogleMap map) {
@@ -85,17 +118,24 @@ public class MapFragment extends Fragment implements OnMapReadyCallback {
 
         // Listener sur les marqueurs de photos
         googleMap.setOnMarkerClickListener(marker -> {
-            Photo photo = markerPhotoMap.get(marker);
-            if (photo != null) {
+            if (!(marker.getTag() instanceof Cluster)) return false;
+            Cluster<?> cluster = (Cluster<?>) marker.getTag();
+
+            if (cluster.isSingle()) {
                 // Afficher les détails de la photo
+                Photo photo = ((PhotoClusterItem) cluster.getItems().get(0)).photo;
                 Toast.makeText(getContext(), photo.getAuthorName() + " - " +
                         photo.getLocation().getFormattedLocation(), Toast.LENGTH_SHORT).show();
-                return true;
+            } else {
+                // Zoomer sur le groupe
+                googleMap.animateCamera(CameraUpdateFactory.newLatLngZoom(
+                        marker.getPosition(), googleMap.getCameraPosition().zoom + 2));
             }
-            return false;
+            return true;
         });
 
-        // Charger les photos sur la carte
+        // Recharger les photos de la zone visible quand la caméra s'arrête
+        googleMap.setOnCameraIdleListener(this::loadPhotosOnMap);
         loadPhotosOnMap();
     }
 
@@ -113,54 +153,158 @@ public class MapFragment extends Fragment implements OnMapReadyCallback {
     }
 
     private void loadPhotosOnMap() {
-        // Charger toutes les photos publiques
-        photoService.getRandomPhotos(100, new PhotoService.PhotoCallback() {
+        if (googleMap == null) return;
+
+        // Le zoom a pu changer : regrouper à nouveau les photos déjà chargées
+        renderClusters();
+
+        LatLngBounds bounds = googleMap.getProjection().getVisibleRegion().latLngBounds;
+        float zoom = googleMap.getCameraPosition().zoom;
+        List<String> cells = GeoHash.coveringCells(
+                bounds.southwest.latitude, bounds.southwest.longitude,
+                bounds.northeast.latitude, bounds.northeast.longitude,
+                GeoHash.precisionForZoom(zoom), PhotoService.MAP_MAX_CELLS);
+        neededTiles = new HashSet<>(cells);
+
+        // Oublier les cellules qui ne sont plus visibles
+        boolean dropped = loadedTiles.keySet().retainAll(neededTiles);
+        pendingTiles.retainAll(neededTiles);
+        if (dropped) {
+            displayPhotosOnMap(collectLoadedPhotos());
+        }
+
+        // Ne charger que les cellules manquantes
+        for (String cell : cells) {
+            if (loadedTiles.containsKey(cell) || pendingTiles.contains(cell)) continue;
+            pendingTiles.add(cell);
+            loadTile(cell);
+        }
+    }
+
+    private void loadTile(String cell) {
+        photoService.getPhotosInCell(cell, new PhotoService.PhotoCallback() {
             @Override
             public void onSuccess(List<Photo> photos) {
                 if (getActivity() != null) {
-                    getActivity().runOnUiThread(() -> displayPhotosOnMap(photos));
+                    getActivity().runOnUiThread(() -> {
+                        pendingTiles.remove(cell);
+                        // La caméra a pu bouger pendant le chargement
+                        if (!neededTiles.contains(cell)) return;
+                        loadedTiles.put(cell, photos);
+                        displayPhotosOnMap(collectLoadedPhotos());
+                    });
                 }
             }
 
             @Override
             public void onError(String error) {
                 if (getActivity() != null) {
-                    getActivity().runOnUiThread(() ->
-                            Toast.makeText(getContext(), error, Toast.LENGTH_SHORT).show()
-                    );
+                    getActivity().runOnUiThread(() -> {
+                        pendingTiles.remove(cell);
+                        Toast.makeText(getContext(), error, Toast.LENGTH_SHORT).show();
+                    });
                 }
             }
         });
     }
 
-    private void displayPhotosOnMap(List<Photo> photos) {
-        if (googleMap == null) return;
+    private List<Photo> collectLoadedPhotos() {
+        List<Photo> photos = new ArrayList<>();
+        for (List<Photo> tilePhotos : loadedTiles.values()) {
+            photos.addAll(tilePhotos);
+        }
+        return photos;
+    }
 
-        // Effacer les anciens marqueurs
-        googleMap.clear();
-        markerPhotoMap.clear();
+    private void displayPhotosOnMap(List<Photo> photos) {
+        if (googleMap == null || clusterExecutor.isShutdown()) return;
 
-        // Ajouter les nouveaux marqueurs
+        List<PhotoClusterItem> items = new ArrayList<>(photos.size());
         for (Photo photo : photos) {
             if (photo.getLocation() != null) {
-                LatLng position = new LatLng(
-                        photo.getLocation().getLatitude(),
-                        photo.getLocation().getLongitude()
-                );
-
-                MarkerOptions markerOptions = new MarkerOptions()
-                        .position(position)
-                        .title(photo.getAuthorName())
+                items.add(new PhotoClusterItem(photo));
+            }
+        }
+
+        clusterExecutor.execute(() -> clusterEngine.setItems(items));
+        renderClusters();
+    }
+
+    /**
+     * Calcule les groupes du zoom courant en arrière-plan, puis applique
+     * uniquement les ajouts/retraits de marqueurs sur le thread principal
+     */
+    private void renderClusters() {
+        if (googleMap == null || clusterExecutor.isShutdown()) return;
+
+        final int generation = ++clusterGeneration;
+        final int zoom = (int) googleMap.getCameraPosition().zoom;
+        final Set<String> displayedKeys = new HashSet<>(markersByClusterKey.keySet());
+
+        clusterExecutor.execute(() -> {
+            List<Cluster<PhotoClusterItem>> clusters = clusterEngine.getClusters(zoom);
+            ClusterDiff<PhotoClusterItem> diff = ClusterDiff.compute(displayedKeys, clusters);
+            mainHandler.post(() -> applyClusterDiff(generation, diff));
+        });
+    }
+
+    private void applyClusterDiff(int generation, ClusterDiff<PhotoClusterItem> diff) {
+        // Un calcul plus récent est en cours ou la vue a été détruite
+        if (googleMap == null || generation != clusterGeneration || getView() == null) return;
+
+        for (String key : diff.getRemovedKeys()) {
+            Marker marker = markersByClusterKey.remove(key);
+            if (marker != null) {
+                marker.remove();
+            }
+        }
+
+        for (Cluster<PhotoClusterItem> cluster : diff.getAdded()) {
+            LatLng position = new LatLng(cluster.getLatitude(), cluster.getLongitude());
+            MarkerOptions markerOptions = new MarkerOptions().position(position);
+
+            if (cluster.isSingle()) {
+                Photo photo = cluster.getItems().get(0).photo;
+                markerOptions.title(photo.getAuthorName())
                         .snippet(photo.getLocation().getFormattedLocation());
+            } else {
+                markerOptions.title(cluster.getSize() + " photos")
+                        .icon(BitmapDescriptorFactory.defaultMarker(BitmapDescriptorFactory.HUE_AZURE));
+            }
 
-                Marker marker = googleMap.addMarker(markerOptions);
-                if (marker != null) {
-                    markerPhotoMap.put(marker, photo);
-                }
+            Marker marker = googleMap.addMarker(markerOptions);
+            if (marker != null) {
+                marker.setTag(cluster);
+                markersByClusterKey.put(cluster.getKey(), marker);
             }
         }
 
-        Log.d(TAG, "Affichage de " + markerPhotoMap.size() + " photos sur la carte");
+        Log.d(TAG, "Affichage de " + markersByClusterKey.size() + " marqueurs sur la carte");
     }
-}
 
+    /**
+     * Adapte une photo au moteur de regroupement
+     */
+    private static class PhotoClusterItem implements ClusterItem {
+        final Photo photo;
+
+        PhotoClusterItem(Photo photo) {
+            this.photo = photo;
+        }
+
+        @Override
+        public String getClusterKey() {
+            return photo.getId();
+        }
+
+        @Override
+        public double getLatitude() {
+            return photo.getLocation().getLatitude();
+        }
+
+        @Override
+        public double getLongitude() {
+            return photo.getLocation().getLongitude();
+        }
+    }
+}
@@ -19,6 +19,7 @@ import com.example.travelshare.adapters.NotificationAdapter;
 import com.example.travelshare.models.Notification;
 import com.example.travelshare.services.AuthService;
 import com.example.travelshare.services.NotificationService;
+import com.example.travelshare.services.NotificationStream;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -28,6 +29,8 @@ import java.util.List;
  */
 public class NotificationsFragment extends Fragment {
 
+    private static final int PREFETCH_DISTANCE = 5;
+
     private RecyclerView recyclerView;
     private NotificationAdapter notificationAdapter;
     private TextView tvEmpty;
@@ -35,6 +38,8 @@ public class NotificationsFragment extends Fragment {
     private NotificationService notificationService;
     private AuthService authService;
     private List<Notification> notificationList;
+    private LinearLayoutManager layoutManager;
+    private NotificationStream notificationStream;
 
     @Nullable
     @Override
@@ -71,8 +76,30 @@ public class NotificationsFragment extends Fragment {
             handleNotificationClick(notification);
         });
 
-        recyclerView.setLayoutManager(new LinearLayoutManager(getContext()));
+        layoutManager = new LinearLayoutManager(getContext());
+        recyclerView.setLayoutManager(layoutManager);
         recyclerView.setAdapter(notificationAdapter);
+
+        // Charger l'historique avant d'atteindre le bas de la liste
+        recyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView rv, int dx, int dy) {
+                if (dy <= 0 || notificationStream == null) return;
+                int lastVisible = layoutManager.findLastVisibleItemPosition();
+                if (lastVisible >= notificationList.size() - PREFETCH_DISTANCE) {
+                    notificationStream.loadMore();
+                }
+            }
+        });
+    }
+
+    @Override
+    public void onDestroyView() {
+        super.onDestroyView();
+        if (notificationStream != null) {
+            notificationStream.stop();
+            notificationStream = null;
+        }
     }
 
     private void setupMarkAllReadButton() {
@@ -82,26 +109,20 @@ public class NotificationsFragment extends Fragment {
     private void loadNotifications() {
         String userId = authService.getCurrentUser().getId();
 
-        notificationService.getUserNotifications(userId, new NotificationService.NotificationsCallback() {
+        // Les nouvelles notifications, lectures et suppressions arrivent en deltas
+        notificationStream = notificationService.openNotificationStream(userId, new NotificationStream.Listener() {
             @Override
-            public void onSuccess(List<Notification> notifications) {
-                if (getActivity() != null) {
-                    getActivity().runOnUiThread(() -> {
-                        notificationList.clear();
-                        notificationList.addAll(notifications);
-                        notificationAdapter.notifyDataSetChanged();
-
-                        updateEmptyView();
-                    });
-                }
+            public void onNotificationsChanged(List<Notification> notifications) {
+                if (getView() == null) return;
+                notificationList = new ArrayList<>(notifications);
+                notificationAdapter.submitList(notifications);
+                updateEmptyView();
             }
 
             @Override
             public void onError(String error) {
-                if (getActivity() != null) {
-                    getActivity().runOnUiThread(() ->
-                        Toast.makeText(getContext(), error, Toast.LENGTH_SHORT).show()
-                    );
+                if (getContext() != null) {
+                    Toast.makeText(getContext(), error, Toast.LENGTH_SHORT).show();
                 }
             }
         });
@@ -111,8 +132,7 @@ public class NotificationsFragment extends Fragment {
         notificationService.markAsRead(notification.getId(), new NotificationService.MarkReadCallback() {
             @Override
             public void onSuccess() {
-                notification.setRead(true);
-                notificationAdapter.notifyDataSetChanged();
+                notifyNotificationRead(notification);
             }
 
             @Override
@@ -128,10 +148,13 @@ public class NotificationsFragment extends Fragment {
         notificationService.markAllAsRead(userId, new NotificationService.MarkReadCallback() {
             @Override
             public void onSuccess() {
-                for (Notification notification : notificationList) {
-                    notification.setRead(true);
+                // Les notifications suivies en direct sont déjà à jour ; l'historique est mis à jour ici
+                for (int i = 0; i < notificationList.size(); i++) {
+                    if (!notificationList.get(i).isRead()) {
+                        notificationList.get(i).setRead(true);
+                        notificationAdapter.notifyItemChanged(i);
+                    }
                 }
-                notificationAdapter.notifyDataSetChanged();
                 Toast.makeText(getContext(), "Toutes les notifications ont été marquées comme lues",
                     Toast.LENGTH_SHORT).show();
             }
@@ -143,14 +166,24 @@ public class NotificationsFragment extends Fragment {
         });
     }
 
+    /**
+     * Met à jour une seule ligne (utile pour l'historique, hors du listener)
+     */
+    private void notifyNotificationRead(Notification notification) {
+        notification.setRead(true);
+        int index = notificationList.indexOf(notification);
+        if (index >= 0) {
+            notificationAdapter.notifyItemChanged(index);
+        }
+    }
+
     private void handleNotificationClick(Notification notification) {
         // Marquer comme lue
         if (!notification.isRead()) {
             notificationService.markAsRead(notification.getId(), new NotificationService.MarkReadCallback() {
                 @Override
                 public void onSuccess() {
-                    notification.setRead(true);
-                    notificationAdapter.notifyDataSetChanged();
+                    notifyNotificationRead(notification);
                 }
 
                 @Override
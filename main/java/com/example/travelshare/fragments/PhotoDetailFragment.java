@@ -26,7 +26,9 @@ import com.example.travelshare.models.Comment;
 import com.example.travelshare.models.Photo;
 import com.example.travelshare.services.AuthService;
 import com.example.travelshare.services.CommentService;
+import com.example.travelshare.services.CommentStream;
 import com.example.travelshare.services.PhotoService;
+import com.example.travelshare.utils.ImageVariants;
 
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
@@ -38,6 +40,9 @@ import java.util.Locale;
  */
 public class PhotoDetailFragment extends Fragment {
 
+    // Nombre de commentaires restants avant la fin de la liste qui déclenche le chargement suivant
+    private static final int PREFETCH_DISTANCE = 5;
+
     private ImageView ivPhoto;
     private TextView tvAuthor;
     private TextView tvDescription;
@@ -59,6 +64,7 @@ public class PhotoDetailFragment extends Fragment {
     private AuthService authService;
     private Photo currentPhoto;
     private List<Comment> commentList;
+    private CommentStream commentStream;
     private SimpleDateFormat dateFormat;
 
     @Nullable
@@ -106,8 +112,30 @@ public class PhotoDetailFragment extends Fragment {
 
     private void setupRecyclerView() {
         commentAdapter = new CommentAdapter(getContext(), commentList);
-        recyclerViewComments.setLayoutManager(new LinearLayoutManager(getContext()));
+        LinearLayoutManager commentsLayoutManager = new LinearLayoutManager(getContext());
+        recyclerViewComments.setLayoutManager(commentsLayoutManager);
         recyclerViewComments.setAdapter(commentAdapter);
+
+        // Charger les commentaires plus anciens à l'approche de la fin de la liste
+        recyclerViewComments.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView rv, int dx, int dy) {
+                if (dy <= 0 || commentStream == null) return;
+                int lastVisible = commentsLayoutManager.findLastVisibleItemPosition();
+                if (lastVisible >= commentList.size() - PREFETCH_DISTANCE) {
+                    commentStream.loadMore();
+                }
+            }
+        });
+    }
+
+    @Override
+    public void onDestroyView() {
+        super.onDestroyView();
+        if (commentStream != null) {
+            commentStream.stop();
+            commentStream = null;
+        }
     }
 
     private void setupButtons() {
@@ -144,11 +172,24 @@ public class PhotoDetailFragment extends Fragment {
     private void displayPhotoDetails() {
         if (currentPhoto == null) return;
 
-        // Image
+        // Image : la miniature (souvent déjà en cache depuis la grille) s'affiche d'abord,
+        // puis la variante adaptée à l'écran la remplace
         if (currentPhoto.getImageUrl() != null) {
-            Glide.with(this)
-                .load(currentPhoto.getImageUrl())
-                .into(ivPhoto);
+            int targetWidth = getResources().getDisplayMetrics().widthPixels;
+            int targetHeight = ivPhoto.getLayoutParams().height;
+            String url = ImageVariants.urlFor(currentPhoto, targetWidth, targetHeight);
+            String previewUrl = ImageVariants.smallestUrl(currentPhoto);
+
+            if (previewUrl != null && !previewUrl.equals(url)) {
+                Glide.with(this)
+                    .load(url)
+                    .thumbnail(Glide.with(this).load(previewUrl))
+                    .into(ivPhoto);
+            } else {
+                Glide.with(this)
+                    .load(url)
+                    .into(ivPhoto);
+            }
         }
 
         // Auteur
@@ -197,16 +238,17 @@ public class PhotoDetailFragment extends Fragment {
     }
 
     private void loadComments(String photoId) {
-        commentService.getCommentsForPhoto(photoId, new CommentService.CommentsCallback() {
+        if (commentStream != null) {
+            commentStream.stop();
+        }
+
+        // Les nouveaux commentaires et les suppressions arrivent en deltas
+        commentStream = commentService.openCommentStream(photoId, new CommentStream.Listener() {
             @Override
-            public void onSuccess(List<Comment> comments) {
-                if (getActivity() != null) {
-                    getActivity().runOnUiThread(() -> {
-                        commentList.clear();
-                        commentList.addAll(comments);
-                        commentAdapter.notifyDataSetChanged();
-                    });
-                }
+            public void onCommentsChanged(List<Comment> comments) {
+                if (getView() == null) return;
+                commentList = new ArrayList<>(comments);
+                commentAdapter.submitList(comments);
             }
 
             @Override
@@ -219,35 +261,21 @@ public class PhotoDetailFragment extends Fragment {
     private void handleLike() {
         if (currentPhoto == null) return;
 
-        if (currentPhoto.isLikedByCurrentUser()) {
-            photoService.unlikePhoto(currentPhoto.getId(), new PhotoService.LikeCallback() {
-                @Override
-                public void onSuccess() {
-                    currentPhoto.setLikedByCurrentUser(false);
-                    currentPhoto.setLikesCount(currentPhoto.getLikesCount() - 1);
-                    displayPhotoDetails();
-                }
-
-                @Override
-                public void onError(String error) {
-                    Toast.makeText(getContext(), error, Toast.LENGTH_SHORT).show();
-                }
-            });
-        } else {
-            photoService.likePhoto(currentPhoto.getId(), new PhotoService.LikeCallback() {
-                @Override
-                public void onSuccess() {
-                    currentPhoto.setLikedByCurrentUser(true);
-                    currentPhoto.setLikesCount(currentPhoto.getLikesCount() + 1);
-                    displayPhotoDetails();
-                }
+        // Mise à jour optimiste : PhotoService regroupe les appuis rapides en une seule écriture
+        photoService.toggleLike(currentPhoto, new PhotoService.LikeCallback() {
+            @Override
+            public void onSuccess() {
+            }
 
-                @Override
-                public void onError(String error) {
-                    Toast.makeText(getContext(), error, Toast.LENGTH_SHORT).show();
-                }
-            });
-        }
+            @Override
+            public void onError(String error) {
+                // Écriture différée : l'écran a pu être quitté entre-temps
+                if (!isAdded() || getView() == null) return;
+                displayPhotoDetails();
+                Toast.makeText(getContext(), error, Toast.LENGTH_SHORT).show();
+            }
+        });
+        displayPhotoDetails();
     }
 
     private void openDirections() {
@@ -331,29 +359,36 @@ public class PhotoDetailFragment extends Fragment {
         comment.setContent(commentText);
         comment.setCreatedAt(new java.util.Date());
 
+        CommentStream stream = commentStream;
         commentService.addComment(comment, new CommentService.AddCommentCallback() {
             @Override
             public void onSuccess(Comment newComment) {
                 if (getActivity() != null) {
-                    getActivity().runOnUiThread(() -> {
-                        etComment.setText("");
-                        commentList.add(0, newComment);
-                        commentAdapter.notifyItemInserted(0);
-                        recyclerViewComments.scrollToPosition(0);
-                        Toast.makeText(getContext(), "Commentaire ajouté", Toast.LENGTH_SHORT).show();
-                    });
+                    getActivity().runOnUiThread(() ->
+                        Toast.makeText(getContext(), "Commentaire ajouté", Toast.LENGTH_SHORT).show()
+                    );
                 }
             }
 
             @Override
             public void onError(String error) {
                 if (getActivity() != null) {
-                    getActivity().runOnUiThread(() ->
-                        Toast.makeText(getContext(), "Erreur: " + error, Toast.LENGTH_SHORT).show()
-                    );
+                    getActivity().runOnUiThread(() -> {
+                        if (stream != null) {
+                            stream.dropPending(comment.getId());
+                        }
+                        etComment.setText(commentText);
+                        Toast.makeText(getContext(), "Erreur: " + error, Toast.LENGTH_SHORT).show();
+                    });
                 }
             }
         });
+
+        // Affichage immédiat ; le flux le remplace par le document Firestore à son arrivée
+        etComment.setText("");
+        if (stream != null) {
+            stream.addPending(comment);
+        }
     }
 
     private void exporterVersTravelPath(Photo photo) {
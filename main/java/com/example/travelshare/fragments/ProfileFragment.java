@@ -20,10 +20,16 @@ import androidx.recyclerview.widget.RecyclerView;
 import com.bumptech.glide.Glide;
 import com.example.travelshare.R;
 import com.example.travelshare.adapters.PhotoGridAdapter;
+import com.example.travelshare.models.Group;
 import com.example.travelshare.models.Photo;
 import com.example.travelshare.models.User;
 import com.example.travelshare.services.AuthService;
+import com.example.travelshare.services.GroupService;
 import com.example.travelshare.services.PhotoService;
+import com.google.android.gms.tasks.CancellationToken;
+import com.google.android.gms.tasks.CancellationTokenSource;
+import com.google.android.gms.tasks.Task;
+import com.google.firebase.firestore.DocumentSnapshot;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -33,6 +39,11 @@ import java.util.List;
  */
 public class ProfileFragment extends Fragment {
 
+    // 10 rangées de 3 photos par page
+    private static final int PHOTOS_PAGE_SIZE = 30;
+    // Environ un écran de cellules restant à afficher
+    private static final int PREFETCH_DISTANCE = 12;
+
     private ImageView ivProfileImage;
     private TextView tvUsername;
     private TextView tvBio;
@@ -43,12 +54,25 @@ public class ProfileFragment extends Fragment {
     private LinearLayout layoutAnonymous;
     private LinearLayout layoutConnected;
     private RecyclerView recyclerViewPhotos;
+    private GridLayoutManager photosLayoutManager;
+    private TextView tvPhotoCount;
     private PhotoGridAdapter photoAdapter;
 
     private AuthService authService;
     private PhotoService photoService;
     private List<Photo> userPhotos;
 
+    // Pagination des photos de l'utilisateur
+    private DocumentSnapshot photosCursor;
+    private boolean hasMorePhotos;
+    private boolean isLoadingPage;
+    private int photosGeneration;
+    private long photosCount;
+
+    // Chargements lancés en parallèle à l'ouverture du profil, abandonnés avec la vue
+    private CancellationTokenSource profileLoads;
+    private Task<List<Group>> userGroups;
+
     @Nullable
     @Override
     public View onCreateView(@NonNull LayoutInflater inflater, @Nullable ViewGroup container, @Nullable Bundle savedInstanceState) {
@@ -66,6 +90,12 @@ public class ProfileFragment extends Fragment {
         return view;
     }
 
+    @Override
+    public void onDestroyView() {
+        super.onDestroyView();
+        cancelProfileLoads();
+    }
+
     private void initViews(View view) {
         ivProfileImage = view.findViewById(R.id.iv_profile_image);
         tvUsername = view.findViewById(R.id.tv_username);
@@ -77,6 +107,7 @@ public class ProfileFragment extends Fragment {
         layoutAnonymous = view.findViewById(R.id.layout_anonymous);
         layoutConnected = view.findViewById(R.id.layout_connected);
         recyclerViewPhotos = view.findViewById(R.id.recycler_view_user_photos);
+        tvPhotoCount = view.findViewById(R.id.tv_photo_count);
     }
 
     private void setupRecyclerView() {
@@ -90,8 +121,22 @@ public class ProfileFragment extends Fragment {
                 showPhotoOptionsDialog(photo);
             });
 
-        recyclerViewPhotos.setLayoutManager(new GridLayoutManager(getContext(), 3));
+        photosLayoutManager = new GridLayoutManager(getContext(), 3);
+        recyclerViewPhotos.setLayoutManager(photosLayoutManager);
         recyclerViewPhotos.setAdapter(photoAdapter);
+
+        // L'en-tête défile avec la grille (AppBarLayout), qui recycle ses cellules :
+        // charger la page suivante quand il reste moins d'un écran à faire défiler
+        recyclerViewPhotos.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView rv, int dx, int dy) {
+                if (dy <= 0) return;
+                int lastVisible = photosLayoutManager.findLastVisibleItemPosition();
+                if (lastVisible >= userPhotos.size() - PREFETCH_DISTANCE) {
+                    loadNextPhotosPage();
+                }
+            }
+        });
     }
 
     private void showPhotoOptionsDialog(Photo photo) {
@@ -124,15 +169,19 @@ public class ProfileFragment extends Fragment {
         // Afficher un loader
         Toast.makeText(getContext(), "Suppression en cours...", Toast.LENGTH_SHORT).show();
 
-        photoService.deletePhoto(photo.getId(), new PhotoService.DeletePhotoCallback() {
+        photoService.deletePhoto(requireContext(), photo.getId(), new PhotoService.DeletePhotoCallback() {
             @Override
             public void onSuccess() {
                 if (getActivity() != null) {
                     getActivity().runOnUiThread(() -> {
                         Toast.makeText(getContext(), "Photo supprimée avec succès", Toast.LENGTH_SHORT).show();
                         // Retirer la photo de la liste
-                        userPhotos.remove(photo);
-                        photoAdapter.notifyDataSetChanged();
+                        int position = userPhotos.indexOf(photo);
+                        if (position >= 0) {
+                            userPhotos.remove(position);
+                            photoAdapter.notifyItemRemoved(position);
+                        }
+                        showPhotoCount(photosCount - 1);
                     });
                 }
             }
@@ -186,12 +235,15 @@ public class ProfileFragment extends Fragment {
 
         if (!authService.isUserLoggedIn()) {
             // Mode anonyme
+            cancelProfileLoads();
             layoutAnonymous.setVisibility(View.VISIBLE);
             layoutConnected.setVisibility(View.GONE);
+            recyclerViewPhotos.setVisibility(View.GONE);
         } else {
             // Mode connecté
             layoutAnonymous.setVisibility(View.GONE);
             layoutConnected.setVisibility(View.VISIBLE);
+            recyclerViewPhotos.setVisibility(View.VISIBLE);
 
             // Afficher les informations de l'utilisateur
             tvUsername.setText(currentUser.getUsername());
@@ -211,20 +263,83 @@ public class ProfileFragment extends Fragment {
                     .into(ivProfileImage);
             }
 
-            // Charger les photos de l'utilisateur
-            loadUserPhotos(currentUser.getId());
+            // Charger les photos, le compteur et les groupes de l'utilisateur
+            loadProfile(currentUser.getId());
         }
     }
 
-    private void loadUserPhotos(String userId) {
-        photoService.getPhotosByAuthor(userId, new PhotoService.PhotoCallback() {
+    /**
+     * Lance en même temps la première page de photos, le compteur et les groupes
+     * (préchargés pour ouvrir le partage sans attendre une lecture)
+     */
+    private void loadProfile(String userId) {
+        cancelProfileLoads();
+        profileLoads = new CancellationTokenSource();
+        CancellationToken token = profileLoads.getToken();
+
+        loadUserPhotos();
+
+        // Le compteur est facultatif : pas de message en cas d'échec
+        photoService.getAuthorPhotoCount(userId, token)
+            .addOnSuccessListener(this::showPhotoCount);
+
+        userGroups = GroupService.getInstance().getUserGroups(userId, token);
+    }
+
+    private void cancelProfileLoads() {
+        if (profileLoads != null) {
+            profileLoads.cancel();
+            profileLoads = null;
+        }
+        userGroups = null;
+    }
+
+    private void loadUserPhotos() {
+        // Repartir de la première page
+        photosGeneration++;
+        photosCursor = null;
+        hasMorePhotos = true;
+        isLoadingPage = false;
+        loadNextPhotosPage();
+    }
+
+    private void loadNextPhotosPage() {
+        if (isLoadingPage || !hasMorePhotos || !authService.isUserLoggedIn()) return;
+        isLoadingPage = true;
+
+        final int generation = photosGeneration;
+        final boolean firstPage = photosCursor == null;
+        String userId = authService.getCurrentUser().getId();
+
+        photoService.getPhotosByAuthor(userId, PHOTOS_PAGE_SIZE, photosCursor, new PhotoService.PhotoPageCallback() {
             @Override
-            public void onSuccess(List<Photo> photos) {
+            public void onSuccess(List<Photo> photos, DocumentSnapshot lastVisible, boolean hasMore, boolean fromCache) {
                 if (getActivity() != null) {
                     getActivity().runOnUiThread(() -> {
-                        userPhotos.clear();
-                        userPhotos.addAll(photos);
-                        photoAdapter.notifyDataSetChanged();
+                        // Ignorer une page arrivée après un changement d'utilisateur
+                        if (generation != photosGeneration) return;
+
+                        if (fromCache) {
+                            // Affichage immédiat ; pas de page suivante avant celle du serveur
+                            userPhotos.clear();
+                            userPhotos.addAll(photos);
+                            photoAdapter.notifyDataSetChanged();
+                            return;
+                        }
+
+                        photosCursor = lastVisible;
+                        hasMorePhotos = hasMore;
+                        isLoadingPage = false;
+
+                        if (firstPage) {
+                            userPhotos.clear();
+                            userPhotos.addAll(photos);
+                            photoAdapter.notifyDataSetChanged();
+                        } else {
+                            int start = userPhotos.size();
+                            userPhotos.addAll(photos);
+                            photoAdapter.notifyItemRangeInserted(start, photos.size());
+                        }
                     });
                 }
             }
@@ -232,14 +347,21 @@ public class ProfileFragment extends Fragment {
             @Override
             public void onError(String error) {
                 if (getActivity() != null) {
-                    getActivity().runOnUiThread(() ->
-                        Toast.makeText(getContext(), error, Toast.LENGTH_SHORT).show()
-                    );
+                    getActivity().runOnUiThread(() -> {
+                        if (generation != photosGeneration) return;
+                        isLoadingPage = false;
+                        Toast.makeText(getContext(), error, Toast.LENGTH_SHORT).show();
+                    });
                 }
             }
         });
     }
 
+    private void showPhotoCount(long count) {
+        photosCount = Math.max(0, count);
+        tvPhotoCount.setText(photosCount + " photo(s)");
+    }
+
     private void showEditProfileDialog() {
         User currentUser = authService.getCurrentUser();
 
@@ -279,7 +401,7 @@ public class ProfileFragment extends Fragment {
                 currentUser.setBio(newBio);
 
                 // Sauvegarder dans Firebase
-                com.google.firebase.firestore.FirebaseFirestore.getInstance()
+                com.example.travelshare.services.OfflineStore.firestore()
                     .collection("users")
                     .document(currentUser.getId())
                     .update(
@@ -307,28 +429,28 @@ public class ProfileFragment extends Fragment {
     }
 
     private void showShareToGroupsDialog(Photo photo) {
-        // Charger les groupes de l'utilisateur
-        com.example.travelshare.services.GroupService groupService =
-            com.example.travelshare.services.GroupService.getInstance();
-
-        String userId = authService.getCurrentUser().getId();
-
-        groupService.getUserGroups(userId, new com.example.travelshare.services.GroupService.GroupsCallback() {
-            @Override
-            public void onSuccess(java.util.List<com.example.travelshare.models.Group> groups) {
-                if (groups.isEmpty()) {
-                    Toast.makeText(getContext(), "Vous n'êtes membre d'aucun groupe. Créez-en un d'abord !", Toast.LENGTH_LONG).show();
-                    return;
-                }
+        // Groupes préchargés avec le profil ; relus si ce chargement a échoué
+        if (userGroups == null || (userGroups.isComplete() && !userGroups.isSuccessful())) {
+            String userId = authService.getCurrentUser().getId();
+            CancellationToken token = profileLoads != null ? profileLoads.getToken() : null;
+            userGroups = GroupService.getInstance().getUserGroups(userId, token);
+        }
 
-                // Afficher le dialog de sélection de groupes
-                showGroupSelectionDialog(photo, groups);
+        userGroups.addOnCompleteListener(task -> {
+            if (task.isCanceled() || getActivity() == null) return;
+            if (!task.isSuccessful()) {
+                Toast.makeText(getContext(), "Erreur: " + task.getException().getMessage(), Toast.LENGTH_SHORT).show();
+                return;
             }
 
-            @Override
-            public void onError(String error) {
-                Toast.makeText(getContext(), "Erreur: " + error, Toast.LENGTH_SHORT).show();
+            List<Group> groups = task.getResult();
+            if (groups.isEmpty()) {
+                Toast.makeText(getContext(), "Vous n'êtes membre d'aucun groupe. Créez-en un d'abord !", Toast.LENGTH_LONG).show();
+                return;
             }
+
+            // Afficher le dialog de sélection de groupes
+            showGroupSelectionDialog(photo, groups);
         });
     }
 
@@ -1,6 +1,7 @@
 package com.example.travelshare.fragments;
 
 import android.Manifest;
+import android.content.Context;
 import android.content.Intent;
 import android.content.pm.PackageManager;
 import android.location.Location;
@@ -32,6 +33,7 @@ import com.example.travelshare.activities.LocationPickerActivity;
 import com.example.travelshare.models.Photo;
 import com.example.travelshare.models.PhotoType;
 import com.example.travelshare.services.AuthService;
+import com.example.travelshare.services.GeocodingService;
 import com.example.travelshare.services.PhotoService;
 import com.google.android.gms.location.FusedLocationProviderClient;
 import com.google.android.gms.location.LocationServices;
@@ -217,30 +219,31 @@ public class PublishPhotoFragment extends Fragment {
                         selectedLatitude = location.getLatitude();
                         selectedLongitude = location.getLongitude();
 
-                        // Géocodage inverse pour obtenir l'adresse
-                        android.location.Geocoder geocoder = new android.location.Geocoder(requireContext(), java.util.Locale.getDefault());
-                        try {
-                            java.util.List<android.location.Address> addresses = geocoder.getFromLocation(
-                                location.getLatitude(),
-                                location.getLongitude(),
-                                1
-                            );
-                            if (addresses != null && !addresses.isEmpty()) {
-                                android.location.Address address = addresses.get(0);
-                                selectedCity = address.getLocality();
-                                selectedCountry = address.getCountryName();
-                                selectedAddress = address.getAddressLine(0);
-
-                                String locationText = selectedCity + ", " + selectedCountry;
-                                tvLocationDisplay.setText(locationText);
-                                tvLocationDisplay.setTextColor(getResources().getColor(android.R.color.black, null));
-
-                                Toast.makeText(getContext(), "Position actuelle utilisée", Toast.LENGTH_SHORT).show();
-                            }
-                        } catch (java.io.IOException e) {
-                            e.printStackTrace();
-                            Toast.makeText(getContext(), "Erreur de géocodage", Toast.LENGTH_SHORT).show();
-                        }
+                        // Géocodage inverse en arrière-plan (résultat en cache par cellule)
+                        GeocodingService.getInstance(requireContext()).reverseGeocode(
+                            location.getLatitude(),
+                            location.getLongitude(),
+                            new GeocodingService.GeocodeCallback() {
+                                @Override
+                                public void onSuccess(GeocodingService.Place place) {
+                                    if (!isAdded()) return;
+                                    selectedCity = place.getCity();
+                                    selectedCountry = place.getCountry();
+                                    selectedAddress = place.getAddress();
+
+                                    String locationText = selectedCity + ", " + selectedCountry;
+                                    tvLocationDisplay.setText(locationText);
+                                    tvLocationDisplay.setTextColor(getResources().getColor(android.R.color.black, null));
+
+                                    Toast.makeText(getContext(), "Position actuelle utilisée", Toast.LENGTH_SHORT).show();
+                                }
+
+                                @Override
+                                public void onError(String error) {
+                                    if (!isAdded()) return;
+                                    Toast.makeText(getContext(), error, Toast.LENGTH_SHORT).show();
+                                }
+                            });
                     } else {
                         Toast.makeText(getContext(), "Position introuvable", Toast.LENGTH_SHORT).show();
                     }
@@ -330,29 +333,23 @@ public class PublishPhotoFragment extends Fragment {
             photo.setSharedWithGroupIds(selectedGroupIds);
         }
 
-        // Publier la photo avec l'URI de l'image
+        // Publier la photo avec l'URI de l'image : l'envoi continue en arrière-plan,
+        // le résultat est signalé avec le contexte de l'application (l'écran a pu être fermé)
+        Context appContext = requireContext().getApplicationContext();
         Toast.makeText(getContext(), "Publication en cours...", Toast.LENGTH_SHORT).show();
 
-        photoService.publishPhoto(photo, selectedImageUri, new PhotoService.PhotoPublishCallback() {
+        photoService.publishPhoto(requireContext(), photo, selectedImageUri, new PhotoService.PhotoPublishCallback() {
             @Override
             public void onSuccess(String photoId) {
-                if (getActivity() != null) {
-                    getActivity().runOnUiThread(() -> {
-                        Toast.makeText(getContext(), "Photo publiée avec succès", Toast.LENGTH_SHORT).show();
-                        requireActivity().onBackPressed();
-                    });
-                }
+                Toast.makeText(appContext, "Photo publiée avec succès", Toast.LENGTH_SHORT).show();
             }
 
             @Override
             public void onError(String error) {
-                if (getActivity() != null) {
-                    getActivity().runOnUiThread(() ->
-                        Toast.makeText(getContext(), "Erreur: " + error, Toast.LENGTH_LONG).show()
-                    );
-                }
+                Toast.makeText(appContext, "Erreur: " + error, Toast.LENGTH_LONG).show();
             }
         });
+        requireActivity().onBackPressed();
     }
 }
 
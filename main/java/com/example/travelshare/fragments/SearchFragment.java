@@ -5,8 +5,10 @@ import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.ArrayAdapter;
+import android.widget.AutoCompleteTextView;
 import android.widget.Button;
 import android.widget.EditText;
+import android.widget.Filter;
 import android.widget.Spinner;
 import android.widget.Toast;
 
@@ -30,6 +32,8 @@ import java.util.List;
  */
 public class SearchFragment extends Fragment {
 
+    private static final int MAX_SUGGESTIONS = 8;
+
     private EditText etSearchLocation;
     private Spinner spinnerPhotoType;
     private Button btnSearch;
@@ -48,6 +52,7 @@ public class SearchFragment extends Fragment {
 
         initViews(view);
         setupSpinner();
+        setupAutocomplete();
         setupRecyclerView();
         setupSearchButton();
 
@@ -77,6 +82,47 @@ public class SearchFragment extends Fragment {
         spinnerPhotoType.setAdapter(adapter);
     }
 
+    private void setupAutocomplete() {
+        // Suggestions issues du trie local de PhotoService : aucune lecture Firestore par frappe
+        ArrayAdapter<String> suggestionsAdapter = new ArrayAdapter<String>(
+            requireContext(),
+            android.R.layout.simple_dropdown_item_1line,
+            new ArrayList<>()
+        ) {
+            private final Filter filter = new Filter() {
+                @Override
+                protected FilterResults performFiltering(CharSequence constraint) {
+                    List<String> suggestions = photoService.suggestLocations(
+                        constraint != null ? constraint.toString() : "", MAX_SUGGESTIONS);
+                    FilterResults results = new FilterResults();
+                    results.values = suggestions;
+                    results.count = suggestions.size();
+                    return results;
+                }
+
+                @Override
+                @SuppressWarnings("unchecked")
+                protected void publishResults(CharSequence constraint, FilterResults results) {
+                    clear();
+                    if (results.values != null) {
+                        addAll((List<String>) results.values);
+                    }
+                    notifyDataSetChanged();
+                }
+            };
+
+            @NonNull
+            @Override
+            public Filter getFilter() {
+                return filter;
+            }
+        };
+
+        AutoCompleteTextView autoCompleteView = (AutoCompleteTextView) etSearchLocation;
+        autoCompleteView.setAdapter(suggestionsAdapter);
+        autoCompleteView.setOnItemClickListener((parent, view, position, id) -> performSearch());
+    }
+
     private void setupRecyclerView() {
         photoAdapter = new PhotoGridAdapter(getContext(), photoList, photo -> {
             // Navigation vers les détails
@@ -12,6 +12,10 @@ public class Photo {
     private String authorId;
     private String authorName;
     private String imageUrl;
+    private String mediumUrl; // Variantes générées à la publication (null pour les anciennes photos)
+    private String thumbnailUrl;
+    private int width; // Dimensions de l'image publiée, en pixels (0 si inconnues)
+    private int height;
     private String description;
 
 
@@ -77,6 +81,38 @@ public class Photo {
         this.imageUrl = imageUrl;
     }
 
+    public String getMediumUrl() {
+        return mediumUrl;
+    }
+
+    public void setMediumUrl(String mediumUrl) {
+        this.mediumUrl = mediumUrl;
+    }
+
+    public String getThumbnailUrl() {
+        return thumbnailUrl;
+    }
+
+    public void setThumbnailUrl(String thumbnailUrl) {
+        this.thumbnailUrl = thumbnailUrl;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public void setWidth(int width) {
+        this.width = width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public void setHeight(int height) {
+        this.height = height;
+    }
+
     public String getDescription() {
         return description;
     }
@@ -13,6 +13,7 @@ public class User {
     private String bio;
     private Date createdAt;
     private boolean isAnonymous;
+    private long photosCount; // Tenu à jour à la publication et à la suppression
 
     public User() {
         this.isAnonymous = true;
@@ -80,5 +81,13 @@ public class User {
     public void setAnonymous(boolean anonymous) {
         isAnonymous = anonymous;
     }
+
+    public long getPhotosCount() {
+        return photosCount;
+    }
+
+    public void setPhotosCount(long photosCount) {
+        this.photosCount = photosCount;
+    }
 }
 
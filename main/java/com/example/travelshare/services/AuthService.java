@@ -2,12 +2,12 @@ package com.example.travelshare.services;
 
 import android.util.Log;
 
+import com.example.travelshare.codec.UserCodec;
 import com.example.travelshare.models.User;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
 import com.google.firebase.firestore.FirebaseFirestore;
 
-import java.util.HashMap;
 import java.util.Map;
 
 /**
@@ -24,7 +24,7 @@ public class AuthService {
 
     private AuthService() {
         firebaseAuth = FirebaseAuth.getInstance();
-        db = FirebaseFirestore.getInstance();
+        db = OfflineStore.firestore();
 
         // Vérifier si un utilisateur est déjà connecté
         FirebaseUser firebaseUser = firebaseAuth.getCurrentUser();
@@ -66,7 +66,7 @@ public class AuthService {
             .get()
             .addOnSuccessListener(documentSnapshot -> {
                 if (documentSnapshot.exists()) {
-                    currentUser = documentSnapshot.toObject(User.class);
+                    currentUser = UserCodec.decode(documentSnapshot);
                     if (currentUser != null) {
                         currentUser.setId(userId);
                     }
@@ -115,7 +115,7 @@ public class AuthService {
             .get()
             .addOnSuccessListener(documentSnapshot -> {
                 if (documentSnapshot.exists()) {
-                    currentUser = documentSnapshot.toObject(User.class);
+                    currentUser = UserCodec.decode(documentSnapshot);
                     if (currentUser != null) {
                         currentUser.setId(userId);
                         callback.onSuccess(currentUser);
@@ -152,13 +152,7 @@ public class AuthService {
                         newUser.setCreatedAt(new java.util.Date());
 
                         // Sauvegarder dans Firestore
-                        Map<String, Object> userData = new HashMap<>();
-                        userData.put("username", username);
-                        userData.put("email", email);
-                        userData.put("anonymous", false);
-                        userData.put("profileImageUrl", "");
-                        userData.put("bio", "");
-                        userData.put("createdAt", new java.util.Date());
+                        Map<String, Object> userData = UserCodec.encode(newUser);
 
                         db.collection(COLLECTION_USERS).document(userId)
                             .set(userData)
@@ -0,0 +1,140 @@
+package com.example.travelshare.services;
+
+import android.util.Log;
+
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.WriteBatch;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+
+/**
+ * Écritures en masse : les références sont découpées en WriteBatch d'au plus 500 opérations
+ * (limite Firestore), validés avec un nombre borné de commits simultanés.
+ * Le callback n'est appelé qu'une fois, quand tous les lots ont abouti ou échoué.
+ */
+public class BatchWriter {
+    private static final String TAG = "BatchWriter";
+
+    public static final int MAX_BATCH_SIZE = 500;
+    private static final int DEFAULT_MAX_IN_FLIGHT = 3;
+
+    private final FirebaseFirestore db;
+    private final int batchSize;
+    private final int maxInFlight;
+
+    public BatchWriter(FirebaseFirestore db) {
+        this(db, MAX_BATCH_SIZE, DEFAULT_MAX_IN_FLIGHT);
+    }
+
+    public BatchWriter(FirebaseFirestore db, int batchSize, int maxInFlight) {
+        if (batchSize < 1 || batchSize > MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException("batchSize doit être compris entre 1 et " + MAX_BATCH_SIZE);
+        }
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("maxInFlight doit être positif");
+        }
+        this.db = db;
+        this.batchSize = batchSize;
+        this.maxInFlight = maxInFlight;
+    }
+
+    /**
+     * Applique les mêmes champs à tous les documents
+     */
+    public void update(List<DocumentReference> refs, Map<String, Object> fields, BatchCallback callback) {
+        run(refs, (batch, ref) -> batch.update(ref, fields), callback);
+    }
+
+    /**
+     * Supprime tous les documents
+     */
+    public void delete(List<DocumentReference> refs, BatchCallback callback) {
+        run(refs, WriteBatch::delete, callback);
+    }
+
+    /**
+     * Applique une opération quelconque à chaque document
+     */
+    public void run(List<DocumentReference> refs, Operation operation, BatchCallback callback) {
+        if (refs.isEmpty()) {
+            callback.onComplete(0, Collections.emptyList());
+            return;
+        }
+        new Run(refs, operation, callback).start();
+    }
+
+    /**
+     * Une exécution : file des lots restants et résultat agrégé
+     */
+    private class Run {
+        private final Queue<List<DocumentReference>> pending = new ArrayDeque<>();
+        private final Operation operation;
+        private final BatchCallback callback;
+        private final List<DocumentReference> failed = new ArrayList<>();
+        private int inFlight;
+        private int written;
+
+        Run(List<DocumentReference> refs, Operation operation, BatchCallback callback) {
+            for (int start = 0; start < refs.size(); start += batchSize) {
+                pending.add(refs.subList(start, Math.min(start + batchSize, refs.size())));
+            }
+            this.operation = operation;
+            this.callback = callback;
+        }
+
+        synchronized void start() {
+            while (inFlight < maxInFlight && !pending.isEmpty()) {
+                commit(pending.poll());
+            }
+        }
+
+        private void commit(List<DocumentReference> chunk) {
+            inFlight++;
+            WriteBatch batch = db.batch();
+            for (DocumentReference ref : chunk) {
+                operation.apply(batch, ref);
+            }
+            batch.commit()
+                .addOnSuccessListener(aVoid -> onChunkDone(chunk, true))
+                .addOnFailureListener(e -> {
+                    Log.w(TAG, "Échec d'un lot de " + chunk.size() + " écritures: " + e.getMessage());
+                    onChunkDone(chunk, false);
+                });
+        }
+
+        private void onChunkDone(List<DocumentReference> chunk, boolean success) {
+            boolean finished;
+            synchronized (this) {
+                inFlight--;
+                if (success) {
+                    written += chunk.size();
+                } else {
+                    failed.addAll(chunk);
+                }
+                start();
+                finished = inFlight == 0 && pending.isEmpty();
+            }
+            if (finished) {
+                callback.onComplete(written, Collections.unmodifiableList(failed));
+            }
+        }
+    }
+
+    public interface Operation {
+        void apply(WriteBatch batch, DocumentReference ref);
+    }
+
+    public interface BatchCallback {
+        /**
+         * @param written nombre de documents écrits
+         * @param failed  documents des lots en échec (vide si tout a réussi)
+         */
+        void onComplete(int written, List<DocumentReference> failed);
+    }
+}
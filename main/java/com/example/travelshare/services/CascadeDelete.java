@@ -0,0 +1,457 @@
+package com.example.travelshare.services;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import com.example.travelshare.codec.PhotoCodec;
+import com.example.travelshare.models.Photo;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.SetOptions;
+import com.google.firebase.storage.FirebaseStorage;
+import com.google.firebase.storage.StorageException;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Suppression d'une photo et de tout ce qui en dépend.
+ * La photo, ses entrées dans les fils de groupes et le compteur de l'auteur disparaissent
+ * ensemble dans une transaction ; les dépendants (commentaires, likes, signalements,
+ * notifications, shards des compteurs, fichiers du Storage) sont ensuite supprimés étape
+ * par étape, par pages lues puis effacées en lots avec BatchWriter.
+ * L'avancement est enregistré avant chaque étape : une suppression interrompue (fermeture,
+ * coupure réseau, lot en échec) reprend là où elle s'était arrêtée avec resumeAll().
+ * Utilisé depuis le thread principal (callbacks des tâches Firebase).
+ */
+public class CascadeDelete {
+    private static final String TAG = "CascadeDelete";
+    private static final String PREFS_NAME = "cascade_delete";
+
+    private static final String COLLECTION_PHOTOS = "photos";
+    private static final String COLLECTION_USERS = "users";
+    private static final String FIELD_PHOTOS_COUNT = "photosCount";
+
+    private static final int MAX_IN_FLIGHT = 3;
+    // Une page remplit exactement les lots validés en parallèle : mémoire bornée quelle que soit la taille
+    private static final int PAGE_SIZE = BatchWriter.MAX_BATCH_SIZE * MAX_IN_FLIGHT;
+
+    static final String STEP_PHOTO = "photo";
+    static final String STEP_COMMENTS = "comments";
+    static final String STEP_LIKES = "likes";
+    static final String STEP_REPORTS = "reports";
+    static final String STEP_LIKE_NOTIFICATIONS = "like_notifications";
+    static final String STEP_COMMENT_NOTIFICATIONS = "comment_notifications";
+    static final String STEP_COUNTERS = "counters";
+    static final String STEP_STORAGE = "storage";
+
+    private static final List<String> STEPS = Arrays.asList(
+        STEP_PHOTO, STEP_COMMENTS, STEP_LIKES, STEP_REPORTS,
+        STEP_LIKE_NOTIFICATIONS, STEP_COMMENT_NOTIFICATIONS, STEP_COUNTERS, STEP_STORAGE);
+
+    private final FirebaseFirestore db;
+    private final FirebaseStorage storage;
+    private final GroupFeed groupFeed;
+    private final ShardedCounter counters;
+    private final BatchWriter batchWriter;
+    private final SharedPreferences prefs;
+
+    private final Map<String, Job> running = new HashMap<>();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    CascadeDelete(Context context, FirebaseFirestore db, FirebaseStorage storage,
+                  GroupFeed groupFeed, ShardedCounter counters) {
+        this.db = db;
+        this.storage = storage;
+        this.groupFeed = groupFeed;
+        this.counters = counters;
+        this.batchWriter = new BatchWriter(db, BatchWriter.MAX_BATCH_SIZE, MAX_IN_FLIGHT);
+        this.prefs = context.getApplicationContext().getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+
+    /**
+     * Lance la suppression d'une photo (l'appelant a vérifié les droits).
+     * Les groupes, l'auteur et les fichiers de photo ne servent qu'en attendant la transaction :
+     * ce sont ceux du document lu dans la transaction qui sont supprimés et enregistrés.
+     */
+    public void delete(Photo photo, Callback callback) {
+        Job job = new Job(photo.getId(), photo.getAuthorId(),
+            photo.getSharedWithGroupIds() != null ? photo.getSharedWithGroupIds() : Collections.emptyList(),
+            storageUrls(photo));
+        save(job);
+        run(job, callback);
+    }
+
+    /**
+     * Vrai si une suppression de cette photo a été commencée et n'est pas terminée
+     */
+    public boolean isPending(String photoId) {
+        return running.containsKey(photoId) || prefs.contains(photoId);
+    }
+
+    /**
+     * Reprend la suppression interrompue d'une photo
+     */
+    public void resume(String photoId, Callback callback) {
+        Job job = load(photoId);
+        if (job == null) {
+            callback.onError("Aucune suppression en cours pour cette photo");
+            return;
+        }
+        run(job, callback);
+    }
+
+    /**
+     * Reprend toutes les suppressions interrompues ; à appeler au démarrage de l'application
+     */
+    public void resumeAll() {
+        for (String photoId : new ArrayList<>(prefs.getAll().keySet())) {
+            if (running.containsKey(photoId)) continue;
+            Job job = load(photoId);
+            if (job == null) continue;
+            run(job, new Callback() {
+                @Override
+                public void onSuccess() {
+                    Log.d(TAG, "Suppression reprise et terminée: " + photoId);
+                }
+
+                @Override
+                public void onError(String error) {
+                    Log.w(TAG, "Suppression toujours incomplète: " + photoId + " (" + error + ")");
+                }
+            });
+        }
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    private void run(Job job, Callback callback) {
+        Job current = running.get(job.photoId);
+        if (current != null) {
+            // Déjà en cours : le nouvel appelant est prévenu à la fin
+            current.callbacks.add(callback);
+            return;
+        }
+        job.callbacks.add(callback);
+        running.put(job.photoId, job);
+        runStep(job);
+    }
+
+    private void runStep(Job job) {
+        if (job.stepIndex >= STEPS.size()) {
+            finish(job, null);
+            return;
+        }
+        publishProgress(job, false);
+
+        String step = STEPS.get(job.stepIndex);
+        switch (step) {
+            case STEP_PHOTO:
+                deletePhotoDocument(job);
+                break;
+            case STEP_COMMENTS:
+                deletePages(job, db.collection("comments").whereEqualTo("photoId", job.photoId));
+                break;
+            case STEP_LIKES:
+                deletePages(job, db.collection("likes").whereEqualTo("photoId", job.photoId));
+                break;
+            case STEP_REPORTS:
+                deletePages(job, db.collection("reports").whereEqualTo("photoId", job.photoId));
+                break;
+            case STEP_LIKE_NOTIFICATIONS:
+                deletePages(job, db.collection("notifications").whereEqualTo("relatedPhotoId", job.photoId));
+                break;
+            case STEP_COMMENT_NOTIFICATIONS:
+                deletePages(job, db.collection("notifications").whereEqualTo("photoId", job.photoId));
+                break;
+            case STEP_COUNTERS:
+                deleteCounterShards(job);
+                break;
+            case STEP_STORAGE:
+                deleteStorageFiles(job, 0);
+                break;
+        }
+    }
+
+    private void nextStep(Job job) {
+        job.stepIndex++;
+        save(job);
+        runStep(job);
+    }
+
+    /**
+     * Photo, entrées des fils de groupes et compteur de l'auteur en une transaction.
+     * Groupes et auteur sont ceux du document lu dans la transaction (la Photo de l'appelant
+     * peut être périmée) ; ils remplacent ceux du point de reprise avant l'étape suivante.
+     * Rejouée après une interruption, elle ne décompte pas deux fois une photo déjà supprimée.
+     */
+    private void deletePhotoDocument(Job job) {
+        DocumentReference photoRef = db.collection(COLLECTION_PHOTOS).document(job.photoId);
+        db.runTransaction(transaction -> {
+                DocumentSnapshot snapshot = transaction.get(photoRef);
+                Photo stored = snapshot.exists() ? PhotoCodec.decode(snapshot) : null;
+                if (stored == null) {
+                    return null;
+                }
+                transaction.delete(photoRef);
+                if (stored.getSharedWithGroupIds() != null) {
+                    for (String groupId : stored.getSharedWithGroupIds()) {
+                        transaction.delete(groupFeed.entryRef(groupId, job.photoId));
+                    }
+                }
+                if (stored.getAuthorId() != null) {
+                    transaction.set(db.collection(COLLECTION_USERS).document(stored.getAuthorId()),
+                        Collections.singletonMap(FIELD_PHOTOS_COUNT, FieldValue.increment(-1)), SetOptions.merge());
+                }
+                return stored;
+            })
+            .addOnSuccessListener(stored -> {
+                PhotoRepository.getInstance().invalidate(job.photoId);
+                if (stored != null) {
+                    job.adopt(stored);
+                    job.deleted++;
+                    Log.d(TAG, "Photo supprimée: " + job.photoId);
+                }
+                nextStep(job);
+            })
+            .addOnFailureListener(e -> {
+                Log.e(TAG, "Erreur lors de la suppression de la photo", e);
+                finish(job, "Erreur: " + e.getMessage());
+            });
+    }
+
+    /**
+     * Supprime les résultats de la requête page par page. Les documents supprimés sortent
+     * de la requête : chaque page est relue depuis le début, sans curseur à conserver.
+     */
+    private void deletePages(Job job, Query query) {
+        query.limit(PAGE_SIZE)
+            .get()
+            .addOnSuccessListener(querySnapshot -> {
+                if (querySnapshot.isEmpty()) {
+                    nextStep(job);
+                    return;
+                }
+                List<DocumentReference> refs = new ArrayList<>(querySnapshot.size());
+                for (DocumentSnapshot doc : querySnapshot.getDocuments()) {
+                    refs.add(doc.getReference());
+                }
+                batchWriter.delete(refs, (written, failed) -> {
+                    job.deleted += written;
+                    save(job);
+                    if (!failed.isEmpty()) {
+                        finish(job, "Erreur: " + failed.size() + " documents n'ont pas pu être supprimés");
+                        return;
+                    }
+                    publishProgress(job, false);
+                    if (refs.size() < PAGE_SIZE) {
+                        nextStep(job);
+                    } else {
+                        deletePages(job, query);
+                    }
+                });
+            })
+            .addOnFailureListener(e -> {
+                Log.e(TAG, "Erreur lors de la lecture des dépendants (" + STEPS.get(job.stepIndex) + ")", e);
+                finish(job, "Erreur: " + e.getMessage());
+            });
+    }
+
+    private void deleteCounterShards(Job job) {
+        batchWriter.delete(counters.allShards(job.photoId), (written, failed) -> {
+            if (!failed.isEmpty()) {
+                finish(job, "Erreur: " + failed.size() + " shards n'ont pas pu être supprimés");
+                return;
+            }
+            counters.invalidate(job.photoId);
+            nextStep(job);
+        });
+    }
+
+    /**
+     * Image et variantes, l'une après l'autre ; un fichier déjà absent compte comme supprimé
+     */
+    private void deleteStorageFiles(Job job, int index) {
+        if (index >= job.storageUrls.size()) {
+            nextStep(job);
+            return;
+        }
+        String url = job.storageUrls.get(index);
+        try {
+            storage.getReferenceFromUrl(url)
+                .delete()
+                .addOnSuccessListener(aVoid -> deleteStorageFiles(job, index + 1))
+                .addOnFailureListener(e -> {
+                    if (e instanceof StorageException
+                            && ((StorageException) e).getErrorCode() == StorageException.ERROR_OBJECT_NOT_FOUND) {
+                        deleteStorageFiles(job, index + 1);
+                        return;
+                    }
+                    Log.w(TAG, "Erreur lors de la suppression d'un fichier: " + e.getMessage());
+                    finish(job, "Erreur: " + e.getMessage());
+                });
+        } catch (IllegalArgumentException e) {
+            // URL hors du Storage du projet : rien à supprimer
+            Log.w(TAG, "URL ignorée: " + url);
+            deleteStorageFiles(job, index + 1);
+        }
+    }
+
+    private void finish(Job job, String error) {
+        running.remove(job.photoId);
+        if (error == null) {
+            prefs.edit().remove(job.photoId).apply();
+            Log.d(TAG, job.deleted + " documents supprimés pour la photo: " + job.photoId);
+        }
+        publishProgress(job, error == null);
+        for (Callback callback : job.callbacks) {
+            if (error == null) {
+                callback.onSuccess();
+            } else {
+                callback.onError(error);
+            }
+        }
+    }
+
+    private void publishProgress(Job job, boolean finished) {
+        Progress progress = new Progress(job.photoId,
+            STEPS.get(Math.min(job.stepIndex, STEPS.size() - 1)),
+            job.stepIndex, STEPS.size(), job.deleted, finished);
+        for (Listener listener : listeners) {
+            listener.onProgress(progress);
+        }
+    }
+
+    private static List<String> storageUrls(Photo photo) {
+        List<String> urls = new ArrayList<>();
+        for (String url : Arrays.asList(photo.getImageUrl(), photo.getMediumUrl(), photo.getThumbnailUrl())) {
+            if (url != null && !url.isEmpty()) {
+                urls.add(url);
+            }
+        }
+        return urls;
+    }
+
+    // Point de reprise : une entrée JSON par photo dans les préférences
+    private void save(Job job) {
+        try {
+            JSONObject json = new JSONObject()
+                .put("authorId", job.authorId)
+                .put("groupIds", new JSONArray(job.groupIds))
+                .put("storageUrls", new JSONArray(job.storageUrls))
+                .put("stepIndex", job.stepIndex)
+                .put("deleted", job.deleted);
+            prefs.edit().putString(job.photoId, json.toString()).apply();
+        } catch (JSONException e) {
+            Log.e(TAG, "Point de reprise non enregistré", e);
+        }
+    }
+
+    private Job load(String photoId) {
+        String value = prefs.getString(photoId, null);
+        if (value == null) return null;
+        try {
+            JSONObject json = new JSONObject(value);
+            Job job = new Job(photoId, json.optString("authorId", null),
+                toList(json.getJSONArray("groupIds")), toList(json.getJSONArray("storageUrls")));
+            job.stepIndex = json.getInt("stepIndex");
+            job.deleted = json.optLong("deleted");
+            return job;
+        } catch (JSONException e) {
+            Log.e(TAG, "Point de reprise illisible, abandonné: " + photoId, e);
+            prefs.edit().remove(photoId).apply();
+            return null;
+        }
+    }
+
+    private static List<String> toList(JSONArray array) throws JSONException {
+        List<String> values = new ArrayList<>(array.length());
+        for (int i = 0; i < array.length(); i++) {
+            values.add(array.getString(i));
+        }
+        return values;
+    }
+
+    private static class Job {
+        final String photoId;
+        String authorId;
+        List<String> groupIds;
+        List<String> storageUrls;
+        final List<Callback> callbacks = new ArrayList<>();
+        int stepIndex;
+        long deleted;
+
+        Job(String photoId, String authorId, List<String> groupIds, List<String> storageUrls) {
+            this.photoId = photoId;
+            this.authorId = authorId;
+            this.groupIds = groupIds;
+            this.storageUrls = storageUrls;
+        }
+
+        /**
+         * Reprend l'état du document supprimé ; les fichiers connus de l'appelant sont gardés
+         */
+        void adopt(Photo stored) {
+            authorId = stored.getAuthorId();
+            groupIds = stored.getSharedWithGroupIds() != null
+                ? new ArrayList<>(stored.getSharedWithGroupIds())
+                : Collections.emptyList();
+            List<String> urls = storageUrls(stored);
+            for (String url : storageUrls) {
+                if (!urls.contains(url)) {
+                    urls.add(url);
+                }
+            }
+            storageUrls = urls;
+        }
+    }
+
+    /**
+     * Avancement d'une suppression : étape courante et nombre de documents supprimés
+     */
+    public static class Progress {
+        public final String photoId;
+        public final String step;
+        public final int stepIndex;
+        public final int stepCount;
+        public final long deleted;
+        public final boolean finished;
+
+        Progress(String photoId, String step, int stepIndex, int stepCount, long deleted, boolean finished) {
+            this.photoId = photoId;
+            this.step = step;
+            this.stepIndex = stepIndex;
+            this.stepCount = stepCount;
+            this.deleted = deleted;
+            this.finished = finished;
+        }
+    }
+
+    public interface Listener {
+        void onProgress(Progress progress);
+    }
+
+    public interface Callback {
+        void onSuccess();
+        void onError(String error);
+    }
+}
@@ -2,16 +2,20 @@ package com.example.travelshare.services;
 
 import android.util.Log;
 
+import com.example.travelshare.codec.CommentCodec;
 import com.example.travelshare.models.Comment;
+import com.example.travelshare.models.Photo;
+import com.example.travelshare.utils.AppExecutors;
+import com.google.firebase.firestore.DocumentReference;
 import com.google.firebase.firestore.DocumentSnapshot;
 import com.google.firebase.firestore.FieldValue;
 import com.google.firebase.firestore.FirebaseFirestore;
 import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.WriteBatch;
 
-import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executor;
 
 /**
  * Service de gestion des commentaires avec Firebase
@@ -20,67 +24,64 @@ public class CommentService {
     private static final String TAG = "CommentService";
     private static final String COLLECTION_COMMENTS = "comments";
     private static final String COLLECTION_PHOTOS = "photos";
+    private static final int COMMENTS_PAGE_SIZE = 20;
 
     private static CommentService instance;
     private final FirebaseFirestore db;
+    private final ShardedCounter counters;
+    private final Executor background;
 
-    private CommentService() {
-        db = FirebaseFirestore.getInstance();
+    CommentService(Executor background) {
+        this.background = background;
+        db = OfflineStore.firestore();
+        counters = ShardedCounter.getPhotoCounters();
     }
 
     public static synchronized CommentService getInstance() {
         if (instance == null) {
-            instance = new CommentService();
+            instance = new CommentService(AppExecutors.background());
         }
         return instance;
     }
 
     /**
-     * Récupère les commentaires d'une photo
+     * Ouvre un flux des commentaires d'une photo : première page, puis nouveaux commentaires
+     * et suppressions en direct, historique à la demande (loadMore).
+     * Le listener est appelé sur le thread principal ; l'appelant doit appeler stop()
+     * sur le flux retourné quand sa vue est détruite.
      */
-    public void getCommentsForPhoto(String photoId, CommentsCallback callback) {
-        db.collection(COLLECTION_COMMENTS)
+    public CommentStream openCommentStream(String photoId, CommentStream.Listener listener) {
+        CommentStream stream = new CommentStream(orderedCommentsQuery(photoId), COMMENTS_PAGE_SIZE,
+            background, listener);
+        stream.start();
+        return stream;
+    }
+
+    private Query orderedCommentsQuery(String photoId) {
+        return db.collection(COLLECTION_COMMENTS)
             .whereEqualTo("photoId", photoId)
-            .orderBy("createdAt", Query.Direction.DESCENDING)
-            .get()
-            .addOnSuccessListener(querySnapshot -> {
-                List<Comment> comments = new ArrayList<>();
-                for (DocumentSnapshot doc : querySnapshot.getDocuments()) {
-                    Comment comment = doc.toObject(Comment.class);
-                    if (comment != null) {
-                        comment.setId(doc.getId());
-                        comments.add(comment);
-                    }
-                }
-                callback.onSuccess(comments);
-            })
-            .addOnFailureListener(e -> {
-                Log.e(TAG, "Erreur lors du chargement des commentaires", e);
-                callback.onError("Erreur: " + e.getMessage());
-            });
+            .orderBy("createdAt", Query.Direction.DESCENDING);
     }
 
     /**
-     * Ajoute un commentaire à une photo
+     * Ajoute un commentaire à une photo.
+     * L'ID est attribué avant le retour de la méthode, ce qui permet l'affichage optimiste.
      */
     public void addComment(Comment comment, AddCommentCallback callback) {
         comment.setCreatedAt(new java.util.Date());
 
-        Map<String, Object> commentData = new HashMap<>();
-        commentData.put("photoId", comment.getPhotoId());
-        commentData.put("authorId", comment.getAuthorId());
-        commentData.put("authorName", comment.getAuthorName());
-        commentData.put("content", comment.getContent());
-        commentData.put("createdAt", comment.getCreatedAt());
+        Map<String, Object> commentData = CommentCodec.encode(comment);
 
-        db.collection(COLLECTION_COMMENTS)
-            .add(commentData)
-            .addOnSuccessListener(documentReference -> {
-                comment.setId(documentReference.getId());
+        // Commentaire et incrément d'un shard du compteur dans le même batch
+        DocumentReference commentRef = db.collection(COLLECTION_COMMENTS).document();
+        comment.setId(commentRef.getId());
+        WriteBatch batch = db.batch();
+        batch.set(commentRef, commentData);
+        counters.increment(batch, comment.getPhotoId(), ShardedCounter.COMMENTS, 1);
 
-                // Incrémenter le compteur de commentaires de la photo
-                db.collection(COLLECTION_PHOTOS).document(comment.getPhotoId())
-                    .update("commentsCount", FieldValue.increment(1));
+        batch.commit()
+            .addOnSuccessListener(aVoid -> {
+                counters.onCommitted(comment.getPhotoId(), ShardedCounter.COMMENTS, 1);
 
                 // Créer une notification pour l'auteur de la photo
                 createCommentNotification(comment);
@@ -97,81 +98,81 @@ public class CommentService {
      * Crée une notification de commentaire
      */
     private void createCommentNotification(Comment comment) {
-        // Récupérer l'auteur de la photo pour créer la notification
-        db.collection("photos").document(comment.getPhotoId())
-            .get()
-            .addOnSuccessListener(photoDoc -> {
-                if (photoDoc.exists()) {
-                    String photoAuthorId = photoDoc.getString("authorId");
-
-                    // Ne pas notifier si c'est l'auteur qui commente sa propre photo
-                    if (photoAuthorId != null && !photoAuthorId.equals(comment.getAuthorId())) {
-                        Map<String, Object> notificationData = new HashMap<>();
-                        notificationData.put("userId", photoAuthorId);
-                        notificationData.put("type", "comment");
-                        notificationData.put("title", "Nouveau commentaire");
-                        notificationData.put("message", comment.getAuthorName() + " a commenté votre photo: " +
-                            (comment.getContent().length() > 50 ?
-                             comment.getContent().substring(0, 50) + "..." :
-                             comment.getContent()));
-                        notificationData.put("photoId", comment.getPhotoId());
-                        notificationData.put("fromUserName", comment.getAuthorName());
-                        notificationData.put("fromUserId", comment.getAuthorId());
-                        notificationData.put("read", false);
-                        notificationData.put("createdAt", com.google.firebase.Timestamp.now());
-
-                        db.collection("notifications")
-                            .add(notificationData)
-                            .addOnSuccessListener(docRef -> Log.d(TAG, "Notification de commentaire créée"))
-                            .addOnFailureListener(e -> Log.e(TAG, "Erreur création notification", e));
-                    }
+        // Récupérer l'auteur de la photo (déjà en cache si la photo vient d'être affichée)
+        PhotoRepository.getInstance().getPhoto(comment.getPhotoId(), new PhotoRepository.PhotoCallback() {
+            @Override
+            public void onSuccess(Photo photo) {
+                String photoAuthorId = photo.getAuthorId();
+
+                // Ne pas notifier si c'est l'auteur qui commente sa propre photo
+                if (photoAuthorId != null && !photoAuthorId.equals(comment.getAuthorId())) {
+                    Map<String, Object> notificationData = new HashMap<>();
+                    notificationData.put("userId", photoAuthorId);
+                    notificationData.put("type", "comment");
+                    notificationData.put("title", "Nouveau commentaire");
+                    notificationData.put("message", comment.getAuthorName() + " a commenté votre photo: " +
+                        (comment.getContent().length() > 50 ?
+                         comment.getContent().substring(0, 50) + "..." :
+                         comment.getContent()));
+                    notificationData.put("photoId", comment.getPhotoId());
+                    notificationData.put("fromUserName", comment.getAuthorName());
+                    notificationData.put("fromUserId", comment.getAuthorId());
+                    notificationData.put("read", false);
+                    // Heure du serveur, comme les notifications de like (ordre du badge des non-lues)
+                    notificationData.put("createdAt", FieldValue.serverTimestamp());
+
+                    db.collection("notifications")
+                        .add(notificationData)
+                        .addOnSuccessListener(docRef -> Log.d(TAG, "Notification de commentaire créée"))
+                        .addOnFailureListener(e -> Log.e(TAG, "Erreur création notification", e));
                 }
-            })
-            .addOnFailureListener(e -> Log.e(TAG, "Erreur récupération photo pour notification", e));
+            }
+
+            @Override
+            public void onError(String error) {
+                Log.e(TAG, "Erreur récupération photo pour notification: " + error);
+            }
+        });
     }
 
     /**
-     * Supprime un commentaire
+     * Supprime un commentaire.
+     * Suppression et décrément du compteur sont écrits ensemble, dans une transaction qui relit
+     * le commentaire : une double suppression ne décrémente qu'une fois.
      */
     public void deleteComment(String commentId, DeleteCallback callback) {
-        // D'abord récupérer le commentaire pour avoir l'ID de la photo
-        db.collection(COLLECTION_COMMENTS).document(commentId)
-            .get()
-            .addOnSuccessListener(documentSnapshot -> {
-                if (documentSnapshot.exists()) {
-                    String photoId = documentSnapshot.getString("photoId");
-
-                    // Supprimer le commentaire
-                    db.collection(COLLECTION_COMMENTS).document(commentId)
-                        .delete()
-                        .addOnSuccessListener(aVoid -> {
-
-                            if (photoId != null) {
-                                db.collection(COLLECTION_PHOTOS).document(photoId)
-                                    .update("commentsCount", FieldValue.increment(-1));
-                            }
-                            callback.onSuccess();
-                        })
-                        .addOnFailureListener(e -> {
-                            Log.e(TAG, "Erreur lors de la suppression du commentaire", e);
-                            callback.onError("Erreur: " + e.getMessage());
-                        });
-                } else {
+        DocumentReference commentRef = db.collection(COLLECTION_COMMENTS).document(commentId);
+
+        db.runTransaction(transaction -> {
+                DocumentSnapshot snapshot = transaction.get(commentRef);
+                if (!snapshot.exists()) {
+                    return null;
+                }
+                String photoId = snapshot.getString("photoId");
+                transaction.delete(commentRef);
+                if (photoId != null) {
+                    counters.increment(transaction, photoId, ShardedCounter.COMMENTS, -1);
+                }
+                // Chaîne vide : commentaire sans photo, rien à décrémenter
+                return photoId != null ? photoId : "";
+            })
+            .addOnSuccessListener(photoId -> {
+                if (photoId == null) {
                     callback.onError("Commentaire non trouvé");
+                    return;
                 }
+                if (!photoId.isEmpty()) {
+                    counters.onCommitted(photoId, ShardedCounter.COMMENTS, -1);
+                }
+                callback.onSuccess();
             })
             .addOnFailureListener(e -> {
-                Log.e(TAG, "Erreur lors de la recherche du commentaire", e);
+                Log.e(TAG, "Erreur lors de la suppression du commentaire", e);
                 callback.onError("Erreur: " + e.getMessage());
             });
     }
 
 
-    public interface CommentsCallback {
-        void onSuccess(List<Comment> comments);
-        void onError(String error);
-    }
-
     public interface AddCommentCallback {
         void onSuccess(Comment comment);
         void onError(String error);
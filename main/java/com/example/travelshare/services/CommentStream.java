@@ -0,0 +1,272 @@
+package com.example.travelshare.services;
+
+import android.util.Log;
+
+import com.example.travelshare.codec.CommentCodec;
+import com.example.travelshare.models.Comment;
+import com.example.travelshare.utils.AppExecutors;
+import com.google.firebase.firestore.DocumentChange;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.ListenerRegistration;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+/**
+ * Flux des commentaires d'une photo, du plus récent au plus ancien.
+ * Même principe que NotificationStream : listener limité à une page dont le premier résultat
+ * est la première page, deltas appliqués ensuite, historique chargé par curseur.
+ * Les commentaires de l'utilisateur sont affichés dès l'envoi (addPending) puis remplacés
+ * par leur document Firestore, de même ID, quand il arrive dans le listener.
+ * L'état est confiné à un exécuteur série sur le pool de fond (décodage et fusion compris) ;
+ * le Listener est appelé sur le thread principal.
+ */
+public class CommentStream {
+    private static final String TAG = "CommentStream";
+    // Champ de tri de la requête (décroissant)
+    private static final String SORT_FIELD = "createdAt";
+
+    private final Query orderedQuery;
+    private final int pageSize;
+    private final Listener listener;
+    private final Executor serial;
+    private final Executor mainThread = AppExecutors.mainThread();
+
+    // Envois en attente, puis partie suivie en direct (triée comme la requête), puis historique paginé
+    private final Map<String, Comment> pending = new LinkedHashMap<>();
+    private final List<Comment> live = new ArrayList<>();
+    private final List<Comment> history = new ArrayList<>();
+    private volatile DocumentSnapshot historyCursor;
+    private ListenerRegistration registration;
+    private volatile boolean hasMore;
+    private volatile boolean loadingMore;
+    private volatile boolean stopped;
+
+    CommentStream(Query orderedQuery, int pageSize, Executor background, Listener listener) {
+        this.orderedQuery = orderedQuery;
+        this.pageSize = pageSize;
+        this.listener = listener;
+        this.serial = AppExecutors.serial(background);
+    }
+
+    /**
+     * Attache le listener sur la première page (limit) : son premier résultat sert de page un
+     */
+    public void start() {
+        registration = orderedQuery.limit(pageSize).addSnapshotListener(serial, (snapshot, e) -> {
+            if (stopped) return;
+            if (e != null) {
+                Log.e(TAG, "Erreur du flux de commentaires", e);
+                deliverError("Erreur: " + e.getMessage());
+                return;
+            }
+            if (snapshot == null) return;
+            applyChanges(snapshot);
+            publish();
+        });
+    }
+
+    /**
+     * Applique les deltas à la fenêtre suivie. Un document qui en sort parce que des plus
+     * récents sont arrivés (fenêtre toujours pleine, document plus ancien que son dernier)
+     * n'est pas supprimé : il passe en tête de l'historique.
+     */
+    private void applyChanges(QuerySnapshot snapshot) {
+        List<Comment> spilled = new ArrayList<>();
+        for (DocumentChange change : snapshot.getDocumentChanges()) {
+            switch (change.getType()) {
+                case ADDED:
+                    Comment added = toComment(change.getDocument());
+                    live.add(change.getNewIndex(), added);
+                    // Remonté dans la fenêtre après une suppression : ne plus le garder en historique
+                    removeById(history, added.getId());
+                    pending.remove(added.getId());
+                    break;
+                case MODIFIED:
+                    // Les commentaires ne sont pas édités ; garde les index alignés par sécurité
+                    live.remove(change.getOldIndex());
+                    live.add(change.getNewIndex(), toComment(change.getDocument()));
+                    break;
+                case REMOVED:
+                    Comment removed = live.remove(change.getOldIndex());
+                    if (leftWindow(change.getDocument(), snapshot)) {
+                        spilled.add(removed);
+                    }
+                    break;
+            }
+        }
+        history.addAll(0, spilled);
+
+        // Tant que rien n'est sorti de la fenêtre ni n'a été chargé, l'historique commence après elle
+        if (history.isEmpty() && !loadingMore) {
+            List<DocumentSnapshot> docs = snapshot.getDocuments();
+            historyCursor = docs.isEmpty() ? null : docs.get(docs.size() - 1);
+            hasMore = docs.size() == pageSize;
+        }
+    }
+
+    /**
+     * Vrai si le document retiré est plus ancien que le dernier d'une fenêtre encore pleine
+     * (tri createdAt décroissant, puis ID décroissant comme le fait Firestore)
+     */
+    private boolean leftWindow(DocumentSnapshot removed, QuerySnapshot snapshot) {
+        if (snapshot.size() < pageSize) return false;
+        DocumentSnapshot last = snapshot.getDocuments().get(snapshot.size() - 1);
+        Date removedAt = removed.getDate(SORT_FIELD);
+        Date lastAt = last.getDate(SORT_FIELD);
+        if (removedAt == null || lastAt == null) return false;
+        int order = removedAt.compareTo(lastAt);
+        return order < 0 || (order == 0 && removed.getId().compareTo(last.getId()) < 0);
+    }
+
+    private static void removeById(List<Comment> items, String id) {
+        for (int i = 0; i < items.size(); i++) {
+            if (items.get(i).getId() != null && items.get(i).getId().equals(id)) {
+                items.remove(i);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Charge la page d'historique suivante (sans écoute en direct)
+     */
+    public void loadMore() {
+        if (stopped || loadingMore || !hasMore || historyCursor == null) {
+            return;
+        }
+        loadingMore = true;
+
+        orderedQuery.startAfter(historyCursor)
+            .limit(pageSize + 1)
+            .get()
+            .addOnSuccessListener(serial, querySnapshot -> {
+                loadingMore = false;
+                if (stopped) return;
+
+                List<DocumentSnapshot> docs = querySnapshot.getDocuments();
+                hasMore = docs.size() > pageSize;
+                if (hasMore) {
+                    docs = docs.subList(0, pageSize);
+                }
+                for (DocumentSnapshot doc : docs) {
+                    history.add(toComment(doc));
+                }
+                if (!docs.isEmpty()) {
+                    historyCursor = docs.get(docs.size() - 1);
+                }
+                publish();
+            })
+            .addOnFailureListener(e -> {
+                loadingMore = false;
+                Log.e(TAG, "Erreur lors du chargement de l'historique", e);
+                deliverError("Erreur: " + e.getMessage());
+            });
+    }
+
+    /**
+     * Affiche tout de suite un commentaire en cours d'envoi (son ID doit déjà être attribué)
+     */
+    public void addPending(Comment comment) {
+        if (stopped || comment.getId() == null) return;
+        serial.execute(() -> {
+            for (Comment existing : live) {
+                if (comment.getId().equals(existing.getId())) return;
+            }
+            pending.put(comment.getId(), comment);
+            publish();
+        });
+    }
+
+    /**
+     * Retire un commentaire en attente dont l'envoi a échoué
+     */
+    public void dropPending(String commentId) {
+        if (stopped) return;
+        serial.execute(() -> {
+            if (pending.remove(commentId) != null) {
+                publish();
+            }
+        });
+    }
+
+    public boolean hasMore() {
+        return hasMore;
+    }
+
+    public boolean isLoadingMore() {
+        return loadingMore;
+    }
+
+    /**
+     * Détache le listener ; à appeler quand la vue est détruite
+     */
+    public void stop() {
+        stopped = true;
+        serial.execute(() -> {
+            if (registration != null) {
+                registration.remove();
+                registration = null;
+            }
+        });
+    }
+
+    private void publish() {
+        List<Comment> merged = new ArrayList<>(pending.size() + live.size() + history.size());
+        Set<String> seenIds = new HashSet<>();
+
+        // Les envois en attente sont les plus récents : en tête, du dernier au premier
+        List<Comment> sending = new ArrayList<>(pending.values());
+        Collections.reverse(sending);
+        for (Comment comment : sending) {
+            seenIds.add(comment.getId());
+            merged.add(comment);
+        }
+        for (Comment comment : live) {
+            if (seenIds.add(comment.getId())) {
+                merged.add(comment);
+            }
+        }
+        for (Comment comment : history) {
+            if (seenIds.add(comment.getId())) {
+                merged.add(comment);
+            }
+        }
+        List<Comment> comments = Collections.unmodifiableList(merged);
+        mainThread.execute(() -> {
+            if (!stopped) {
+                listener.onCommentsChanged(comments);
+            }
+        });
+    }
+
+    private void deliverError(String error) {
+        mainThread.execute(() -> {
+            if (!stopped) {
+                listener.onError(error);
+            }
+        });
+    }
+
+    private static Comment toComment(DocumentSnapshot doc) {
+        Comment comment = CommentCodec.decode(doc);
+        if (comment == null) {
+            comment = new Comment();
+        }
+        return comment;
+    }
+
+    public interface Listener {
+        void onCommentsChanged(List<Comment> comments);
+        void onError(String error);
+    }
+}
@@ -0,0 +1,239 @@
+package com.example.travelshare.services;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.location.Address;
+import android.location.Geocoder;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import android.util.LruCache;
+
+import com.example.travelshare.utils.GeoHash;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Géocodage inverse asynchrone et mis en cache.
+ * Les coordonnées sont ramenées à une cellule geohash (~5 m) qui sert de clé :
+ * cache mémoire LRU, puis cache disque (SharedPreferences), puis Geocoder sur un thread de fond.
+ * Le résultat contient l'adresse de rue : la cellule doit rester plus petite qu'un bâtiment,
+ * sinon deux points voisins d'une même cellule recevraient la même adresse.
+ * Les demandes simultanées pour une même cellule partagent un seul appel au Geocoder.
+ * Les callbacks sont appelés sur le thread principal.
+ */
+public class GeocodingService {
+    private static final String TAG = "GeocodingService";
+    private static final String PREFS_NAME = "geocoding_cache";
+
+    // Cellule geohash de 9 caractères : ~4,8 m x 4,8 m
+    // (les anciennes entrées à 7 caractères ne sont plus lues et sortent du cache disque en premier)
+    private static final int CELL_PRECISION = 9;
+    private static final int MEMORY_CACHE_SIZE = 200;
+    private static final int DISK_CACHE_SIZE = 1000;
+    private static final long DISK_CACHE_TTL_MS = 30L * 24 * 60 * 60 * 1000;
+    private static final String FIELD_SEPARATOR = "\u001F";
+
+    private static GeocodingService instance;
+
+    private final Context appContext;
+    private final LruCache<String, Place> memoryCache = new LruCache<>(MEMORY_CACHE_SIZE);
+    private final Map<String, List<GeocodeCallback>> inFlight = new HashMap<>();
+    private final ExecutorService executor = Executors.newFixedThreadPool(2);
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final SharedPreferences diskCache;
+
+    private GeocodingService(Context context) {
+        appContext = context.getApplicationContext();
+        diskCache = appContext.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+
+    public static synchronized GeocodingService getInstance(Context context) {
+        if (instance == null) {
+            instance = new GeocodingService(context);
+        }
+        return instance;
+    }
+
+    /**
+     * Résout ville, pays et adresse d'une position
+     */
+    public void reverseGeocode(double latitude, double longitude, GeocodeCallback callback) {
+        String cell = GeoHash.encode(latitude, longitude, CELL_PRECISION);
+
+        Place cached = memoryCache.get(cell);
+        if (cached != null) {
+            callback.onSuccess(cached);
+            return;
+        }
+
+        synchronized (inFlight) {
+            List<GeocodeCallback> waiting = inFlight.get(cell);
+            if (waiting != null) {
+                // Une résolution est déjà en cours pour cette cellule
+                waiting.add(callback);
+                return;
+            }
+            waiting = new ArrayList<>();
+            waiting.add(callback);
+            inFlight.put(cell, waiting);
+        }
+
+        executor.execute(() -> resolve(cell, latitude, longitude));
+    }
+
+    private void resolve(String cell, double latitude, double longitude) {
+        Place place = readDisk(cell);
+        String error = null;
+
+        if (place == null) {
+            try {
+                place = geocode(latitude, longitude);
+                if (place != null) {
+                    writeDisk(cell, place);
+                } else {
+                    error = "Adresse introuvable";
+                }
+            } catch (IOException e) {
+                Log.w(TAG, "Erreur de géocodage: " + e.getMessage());
+                error = "Erreur de géocodage";
+            }
+        }
+
+        if (place != null) {
+            memoryCache.put(cell, place);
+        }
+
+        List<GeocodeCallback> waiting;
+        synchronized (inFlight) {
+            waiting = inFlight.remove(cell);
+        }
+
+        Place result = place;
+        String message = error;
+        mainHandler.post(() -> {
+            for (GeocodeCallback callback : waiting) {
+                if (result != null) {
+                    callback.onSuccess(result);
+                } else {
+                    callback.onError(message);
+                }
+            }
+        });
+    }
+
+    private Place geocode(double latitude, double longitude) throws IOException {
+        if (!Geocoder.isPresent()) {
+            throw new IOException("Geocoder indisponible");
+        }
+        Geocoder geocoder = new Geocoder(appContext, Locale.getDefault());
+        List<Address> addresses = geocoder.getFromLocation(latitude, longitude, 1);
+        if (addresses == null || addresses.isEmpty()) {
+            return null;
+        }
+        Address address = addresses.get(0);
+        return new Place(address.getLocality(), address.getCountryName(), address.getAddressLine(0));
+    }
+
+    private Place readDisk(String cell) {
+        String value = diskCache.getString(cell, null);
+        if (value == null) return null;
+
+        String[] parts = value.split(FIELD_SEPARATOR, -1);
+        if (parts.length != 4) return null;
+        try {
+            long savedAt = Long.parseLong(parts[0]);
+            if (System.currentTimeMillis() - savedAt > DISK_CACHE_TTL_MS) {
+                diskCache.edit().remove(cell).apply();
+                return null;
+            }
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        return new Place(emptyToNull(parts[1]), emptyToNull(parts[2]), emptyToNull(parts[3]));
+    }
+
+    private void writeDisk(String cell, Place place) {
+        Map<String, ?> entries = diskCache.getAll();
+        SharedPreferences.Editor editor = diskCache.edit();
+        if (entries.size() >= DISK_CACHE_SIZE) {
+            // Retirer l'entrée la plus ancienne
+            String oldestKey = null;
+            long oldest = Long.MAX_VALUE;
+            for (Map.Entry<String, ?> entry : entries.entrySet()) {
+                long savedAt = savedAt(entry.getValue());
+                if (savedAt < oldest) {
+                    oldest = savedAt;
+                    oldestKey = entry.getKey();
+                }
+            }
+            if (oldestKey != null) {
+                editor.remove(oldestKey);
+            }
+        }
+
+        String value = System.currentTimeMillis() + FIELD_SEPARATOR
+            + nullToEmpty(place.getCity()) + FIELD_SEPARATOR
+            + nullToEmpty(place.getCountry()) + FIELD_SEPARATOR
+            + nullToEmpty(place.getAddress());
+        editor.putString(cell, value).apply();
+    }
+
+    private static long savedAt(Object value) {
+        if (!(value instanceof String)) return 0;
+        String text = (String) value;
+        int end = text.indexOf(FIELD_SEPARATOR);
+        try {
+            return Long.parseLong(end > 0 ? text.substring(0, end) : text);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static String nullToEmpty(String value) {
+        return value != null ? value : "";
+    }
+
+    private static String emptyToNull(String value) {
+        return value.isEmpty() ? null : value;
+    }
+
+    /**
+     * Résultat du géocodage inverse
+     */
+    public static class Place {
+        private final String city;
+        private final String country;
+        private final String address;
+
+        public Place(String city, String country, String address) {
+            this.city = city;
+            this.country = country;
+            this.address = address;
+        }
+
+        public String getCity() {
+            return city;
+        }
+
+        public String getCountry() {
+            return country;
+        }
+
+        public String getAddress() {
+            return address;
+        }
+    }
+
+    public interface GeocodeCallback {
+        void onSuccess(Place place);
+        void onError(String error);
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.travelshare.services;
+
+import com.example.travelshare.codec.PhotoCodec;
+import com.example.travelshare.models.Photo;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.Transaction;
+import com.google.firebase.firestore.WriteBatch;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Fil des groupes, matérialisé à l'écriture : groups/{groupId}/feed/{photoId} contient un
+ * résumé de la photo et sa date de création. Le fil se lit par pages triées par date,
+ * sans parcourir toutes les photos partagées avec le groupe.
+ * Les entrées sont écrites dans le même batch que la photo (publication, partage, retrait).
+ */
+public class GroupFeed {
+    private static final String COLLECTION_GROUPS = "groups";
+    private static final String SUBCOLLECTION_FEED = "feed";
+
+    private final FirebaseFirestore db;
+
+    public GroupFeed(FirebaseFirestore db) {
+        this.db = db;
+    }
+
+    public DocumentReference entryRef(String groupId, String photoId) {
+        return db.collection(COLLECTION_GROUPS).document(groupId)
+            .collection(SUBCOLLECTION_FEED).document(photoId);
+    }
+
+    /**
+     * Entrées du groupe, les plus récentes d'abord
+     */
+    public Query query(String groupId) {
+        return db.collection(COLLECTION_GROUPS).document(groupId)
+            .collection(SUBCOLLECTION_FEED)
+            .orderBy("createdAt", Query.Direction.DESCENDING);
+    }
+
+    public void addEntries(WriteBatch batch, Photo photo, Collection<String> groupIds) {
+        Map<String, Object> summary = summaryOf(photo);
+        for (String groupId : groupIds) {
+            batch.set(entryRef(groupId, photo.getId()), summary);
+        }
+    }
+
+    public void addEntries(Transaction transaction, Photo photo, Collection<String> groupIds) {
+        Map<String, Object> summary = summaryOf(photo);
+        for (String groupId : groupIds) {
+            transaction.set(entryRef(groupId, photo.getId()), summary);
+        }
+    }
+
+    public void removeEntries(WriteBatch batch, String photoId, Collection<String> groupIds) {
+        for (String groupId : groupIds) {
+            batch.delete(entryRef(groupId, photoId));
+        }
+    }
+
+    /**
+     * Champs nécessaires à l'affichage en grille ; mêmes noms que dans Photo
+     */
+    static Map<String, Object> summaryOf(Photo photo) {
+        Map<String, Object> summary = new HashMap<>();
+        summary.put("authorId", photo.getAuthorId());
+        summary.put("authorName", photo.getAuthorName());
+        summary.put("imageUrl", photo.getImageUrl());
+        summary.put("mediumUrl", photo.getMediumUrl());
+        summary.put("thumbnailUrl", photo.getThumbnailUrl());
+        summary.put("width", photo.getWidth());
+        summary.put("height", photo.getHeight());
+        summary.put("description", photo.getDescription());
+        summary.put("createdAt", photo.getCreatedAt() != null ? photo.getCreatedAt() : new Date());
+        return summary;
+    }
+
+    /**
+     * Photo partielle reconstruite depuis une entrée (l'ID de l'entrée est celui de la photo)
+     */
+    static Photo fromEntry(DocumentSnapshot entry) {
+        return PhotoCodec.decode(entry);
+    }
+}
@@ -2,15 +2,22 @@ package com.example.travelshare.services;
 
 import android.util.Log;
 
+import com.example.travelshare.codec.GroupCodec;
 import com.example.travelshare.models.Group;
+import com.example.travelshare.utils.AppExecutors;
+import com.google.android.gms.tasks.CancellationToken;
+import com.google.android.gms.tasks.Task;
 import com.google.firebase.firestore.DocumentSnapshot;
 import com.google.firebase.firestore.FieldValue;
 import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executor;
 
 /**
  * Service de gestion des groupes avec Firebase
@@ -18,43 +25,112 @@ import java.util.Map;
 public class GroupService {
     private static final String TAG = "GroupService";
     private static final String COLLECTION_GROUPS = "groups";
+    // Onglets et dialogues ouverts coup sur coup relisent les mêmes groupes
+    private static final long GROUP_READS_TTL_MS = 30_000;
 
     private static GroupService instance;
     private final FirebaseFirestore db;
+    // Décodage et filtrage des listes hors du thread principal
+    private final Executor background;
+    private final Executor mainThread = AppExecutors.mainThread();
+    // Lectures de listes de groupes partagées entre appelants simultanés
+    private final SingleFlight<List<Group>> groupReads = new SingleFlight<>(GROUP_READS_TTL_MS);
 
-    private GroupService() {
-        db = FirebaseFirestore.getInstance();
+    GroupService(Executor background) {
+        this.background = background;
+        db = OfflineStore.firestore();
     }
 
     public static synchronized GroupService getInstance() {
         if (instance == null) {
-            instance = new GroupService();
+            instance = new GroupService(AppExecutors.background());
         }
         return instance;
     }
 
     /**
-     * Récupère tous les groupes de l'utilisateur
+     * Récupère tous les groupes de l'utilisateur.
+     * Les appels simultanés partagent une lecture, servie ensuite quelques secondes sans relecture.
      */
     public void getUserGroups(String userId, GroupsCallback callback) {
-        db.collection(COLLECTION_GROUPS)
+        deliver(groupReads.run(userGroupsKey(userId), () -> fetchUserGroups(userId)), callback);
+    }
+
+    private Task<List<Group>> fetchUserGroups(String userId) {
+        return db.collection(COLLECTION_GROUPS)
             .whereArrayContains("memberIds", userId)
             .get()
-            .addOnSuccessListener(querySnapshot -> {
-                List<Group> groups = new ArrayList<>();
-                for (DocumentSnapshot doc : querySnapshot.getDocuments()) {
-                    Group group = doc.toObject(Group.class);
-                    if (group != null) {
-                        group.setId(doc.getId());
-                        groups.add(group);
-                    }
+            .continueWith(background, task -> {
+                if (!task.isSuccessful()) {
+                    Log.e(TAG, "Erreur lors du chargement des groupes", task.getException());
+                    throw task.getException();
                 }
-                callback.onSuccess(groups);
-            })
-            .addOnFailureListener(e -> {
+                return Collections.unmodifiableList(GroupCodec.decodeAll(task.getResult().getDocuments()));
+            });
+    }
+
+    private static String userGroupsKey(String userId) {
+        return COLLECTION_GROUPS + "?memberIds=" + userId;
+    }
+
+    /**
+     * Récupère les groupes de l'utilisateur pour un affichage en liste :
+     * livrés depuis le cache local puis depuis le serveur (onSuccess peut être appelé deux fois).
+     * Pour un choix ponctuel (dialogue), utiliser getUserGroups.
+     */
+    public void getUserGroupsLocalFirst(String userId, GroupsCallback callback) {
+        String key = userGroupsKey(userId);
+        List<Group> recent = groupReads.peek(key);
+        if (recent != null) {
+            // Lus sur le serveur il y a moins de GROUP_READS_TTL_MS
+            mainThread.execute(() -> callback.onSuccess(recent));
+            return;
+        }
+
+        Query query = db.collection(COLLECTION_GROUPS)
+            .whereArrayContains("memberIds", userId);
+        LocalFirst.query(query, new LocalFirst.QueryListener() {
+            @Override
+            public void onResult(QuerySnapshot snapshot, boolean fromCache) {
+                background.execute(() -> {
+                    List<Group> groups = Collections.unmodifiableList(GroupCodec.decodeAll(snapshot.getDocuments()));
+                    if (!fromCache) {
+                        groupReads.put(key, groups);
+                    }
+                    mainThread.execute(() -> callback.onSuccess(groups));
+                });
+            }
+
+            @Override
+            public void onError(Exception e) {
                 Log.e(TAG, "Erreur lors du chargement des groupes", e);
                 callback.onError("Erreur: " + e.getMessage());
-            });
+            }
+        });
+    }
+
+    /**
+     * Récupère un groupe, depuis le cache local puis depuis le serveur
+     * (onSuccess peut être appelé deux fois)
+     */
+    public void getGroup(String groupId, GroupCallback callback) {
+        LocalFirst.document(db.collection(COLLECTION_GROUPS).document(groupId), new LocalFirst.DocumentListener() {
+            @Override
+            public void onResult(DocumentSnapshot snapshot, boolean fromCache) {
+                Group group = snapshot.exists() ? GroupCodec.decode(snapshot) : null;
+                if (group == null) {
+                    callback.onError("Groupe introuvable");
+                    return;
+                }
+                callback.onSuccess(group);
+            }
+
+            @Override
+            public void onError(Exception e) {
+                Log.e(TAG, "Erreur lors du chargement du groupe", e);
+                callback.onError("Erreur: " + e.getMessage());
+            }
+        });
     }
 
     /**
@@ -63,18 +139,13 @@ public class GroupService {
     public void createGroup(Group group, CreateGroupCallback callback) {
         group.setCreatedAt(new java.util.Date());
 
-        Map<String, Object> groupData = new HashMap<>();
-        groupData.put("name", group.getName());
-        groupData.put("description", group.getDescription());
-        groupData.put("ownerId", group.getOwnerId());
-        groupData.put("memberIds", group.getMemberIds());
-        groupData.put("createdAt", group.getCreatedAt());
-        groupData.put("imageUrl", group.getImageUrl() != null ? group.getImageUrl() : "");
+        Map<String, Object> groupData = GroupCodec.encode(group);
 
         db.collection(COLLECTION_GROUPS)
             .add(groupData)
             .addOnSuccessListener(documentReference -> {
                 group.setId(documentReference.getId());
+                groupReads.invalidateAll();
                 Log.d(TAG, "Groupe créé avec succès: " + group.getId());
                 callback.onSuccess(group);
             })
@@ -91,6 +162,7 @@ public class GroupService {
         db.collection(COLLECTION_GROUPS).document(groupId)
             .update("memberIds", FieldValue.arrayUnion(userId))
             .addOnSuccessListener(aVoid -> {
+                groupReads.invalidateAll();
                 Log.d(TAG, "Utilisateur " + userId + " a rejoint le groupe: " + groupId);
                 callback.onSuccess();
             })
@@ -107,6 +179,7 @@ public class GroupService {
         db.collection(COLLECTION_GROUPS).document(groupId)
             .update("memberIds", FieldValue.arrayRemove(userId))
             .addOnSuccessListener(aVoid -> {
+                groupReads.invalidateAll();
                 Log.d(TAG, "Utilisateur " + userId + " a quitté le groupe: " + groupId);
                 callback.onSuccess();
             })
@@ -117,20 +190,26 @@ public class GroupService {
     }
 
     /**
-     * Recherche des groupes publics
+     * Recherche des groupes publics (lectures simultanées partagées, comme getUserGroups)
      */
     public void searchGroups(String query, GroupsCallback callback) {
-        db.collection(COLLECTION_GROUPS)
+        String lowerQuery = query.toLowerCase();
+        deliver(groupReads.run(COLLECTION_GROUPS + "?search=" + lowerQuery, () -> fetchGroups(lowerQuery)), callback);
+    }
+
+    private Task<List<Group>> fetchGroups(String lowerQuery) {
+        return db.collection(COLLECTION_GROUPS)
             .get()
-            .addOnSuccessListener(querySnapshot -> {
-                List<Group> groups = new ArrayList<>();
-                String lowerQuery = query.toLowerCase();
+            .continueWith(background, task -> {
+                if (!task.isSuccessful()) {
+                    Log.e(TAG, "Erreur lors de la recherche de groupes", task.getException());
+                    throw task.getException();
+                }
 
-                for (DocumentSnapshot doc : querySnapshot.getDocuments()) {
-                    Group group = doc.toObject(Group.class);
+                List<Group> groups = new ArrayList<>();
+                for (DocumentSnapshot doc : task.getResult().getDocuments()) {
+                    Group group = GroupCodec.decode(doc);
                     if (group != null) {
-                        group.setId(doc.getId());
-
                         // Filtrer localement par nom ou description
                         if (group.getName().toLowerCase().contains(lowerQuery) ||
                             (group.getDescription() != null &&
@@ -139,20 +218,56 @@ public class GroupService {
                         }
                     }
                 }
-                callback.onSuccess(groups);
-            })
-            .addOnFailureListener(e -> {
-                Log.e(TAG, "Erreur lors de la recherche de groupes", e);
-                callback.onError("Erreur: " + e.getMessage());
+                return Collections.unmodifiableList(groups);
             });
     }
 
+    /**
+     * Livre sur le thread principal le résultat (non modifiable, partagé) d'une lecture
+     */
+    private void deliver(Task<List<Group>> task, GroupsCallback callback) {
+        task.addOnSuccessListener(mainThread, callback::onSuccess)
+            .addOnFailureListener(mainThread, e -> callback.onError("Erreur: " + e.getMessage()));
+    }
+
+    /**
+     * Compteurs du regroupement des lectures (taux de déduplication)
+     */
+    public SingleFlight.Stats getReadStats() {
+        return groupReads.getStats();
+    }
+
+    // Variante Task pour le profil ; annuler le jeton (peut être null) abandonne seulement
+    // le résultat, la lecture n'est pas interrompue
+
+    public Task<List<Group>> getUserGroups(String userId, CancellationToken token) {
+        return ServiceTasks.call(token, result -> getUserGroups(userId, groupsCallback(result)));
+    }
+
+    private static GroupsCallback groupsCallback(ServiceTasks.Result<List<Group>> result) {
+        return new GroupsCallback() {
+            @Override
+            public void onSuccess(List<Group> groups) {
+                result.success(groups);
+            }
+
+            @Override
+            public void onError(String error) {
+                result.error(error);
+            }
+        };
+    }
 
     public interface GroupsCallback {
         void onSuccess(List<Group> groups);
         void onError(String error);
     }
 
+    public interface GroupCallback {
+        void onSuccess(Group group);
+        void onError(String error);
+    }
+
     public interface CreateGroupCallback {
         void onSuccess(Group group);
         void onError(String error);
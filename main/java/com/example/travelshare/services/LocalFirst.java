@@ -0,0 +1,86 @@
+package com.example.travelshare.services;
+
+import android.util.Log;
+
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
+import com.google.firebase.firestore.Source;
+
+/**
+ * Lectures "cache local d'abord" : le résultat du cache persistant de Firestore est livré
+ * tout de suite (premier affichage sans attendre le réseau), puis celui du serveur.
+ * Un cache vide n'est pas livré. Hors connexion, les données locales restent affichées
+ * et l'erreur réseau n'est remontée que si rien n'a pu être livré.
+ * Les callbacks sont appelés sur le thread principal, au plus une fois par source.
+ */
+final class LocalFirst {
+    private static final String TAG = "LocalFirst";
+
+    private LocalFirst() {
+    }
+
+    static void query(Query query, QueryListener listener) {
+        boolean[] serverAnswered = {false};
+        boolean[] cacheDelivered = {false};
+
+        query.get(Source.CACHE)
+            .addOnSuccessListener(snapshot -> {
+                // Le serveur a pu répondre avant le cache : ne pas revenir en arrière
+                if (serverAnswered[0] || snapshot.isEmpty()) return;
+                cacheDelivered[0] = true;
+                listener.onResult(snapshot, true);
+            });
+
+        query.get(Source.SERVER)
+            .addOnSuccessListener(snapshot -> {
+                serverAnswered[0] = true;
+                listener.onResult(snapshot, false);
+            })
+            .addOnFailureListener(e -> {
+                serverAnswered[0] = true;
+                if (cacheDelivered[0]) {
+                    Log.w(TAG, "Serveur injoignable, données locales conservées", e);
+                    return;
+                }
+                listener.onError(e);
+            });
+    }
+
+    static void document(DocumentReference ref, DocumentListener listener) {
+        boolean[] serverAnswered = {false};
+        boolean[] cacheDelivered = {false};
+
+        ref.get(Source.CACHE)
+            .addOnSuccessListener(snapshot -> {
+                if (serverAnswered[0] || !snapshot.exists()) return;
+                cacheDelivered[0] = true;
+                listener.onResult(snapshot, true);
+            });
+
+        ref.get(Source.SERVER)
+            .addOnSuccessListener(snapshot -> {
+                serverAnswered[0] = true;
+                listener.onResult(snapshot, false);
+            })
+            .addOnFailureListener(e -> {
+                serverAnswered[0] = true;
+                if (cacheDelivered[0]) {
+                    Log.w(TAG, "Serveur injoignable, données locales conservées", e);
+                    return;
+                }
+                listener.onError(e);
+            });
+    }
+
+    interface QueryListener {
+        void onResult(QuerySnapshot snapshot, boolean fromCache);
+        void onError(Exception e);
+    }
+
+    interface DocumentListener {
+        void onResult(DocumentSnapshot snapshot, boolean fromCache);
+        void onError(Exception e);
+    }
+}
@@ -17,7 +17,6 @@ import com.example.travelshare.MainActivity;
 import com.example.travelshare.R;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
-import com.google.firebase.firestore.FirebaseFirestore;
 import com.google.firebase.messaging.FirebaseMessaging;
 import com.google.firebase.messaging.FirebaseMessagingService;
 import com.google.firebase.messaging.RemoteMessage;
@@ -253,7 +252,7 @@ public class MyFirebaseMessagingService extends FirebaseMessagingService {
             Map<String, Object> updates = new HashMap<>();
             updates.put("fcmToken", token);
 
-            FirebaseFirestore.getInstance()
+            OfflineStore.firestore()
                     .collection("users")
                     .document(userId)
                     .update(updates)
@@ -285,7 +284,7 @@ public class MyFirebaseMessagingService extends FirebaseMessagingService {
                         Map<String, Object> updates = new HashMap<>();
                         updates.put("fcmToken", token);
 
-                        FirebaseFirestore.getInstance()
+                        OfflineStore.firestore()
                                 .collection("users")
                                 .document(userId)
                                 .update(updates)
@@ -2,13 +2,23 @@ package com.example.travelshare.services;
 
 import android.util.Log;
 
+import com.example.travelshare.codec.NotificationCodec;
 import com.example.travelshare.models.Notification;
+import com.google.firebase.firestore.AggregateSource;
+import com.google.firebase.firestore.DocumentChange;
+import com.google.firebase.firestore.DocumentReference;
 import com.google.firebase.firestore.DocumentSnapshot;
 import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.ListenerRegistration;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.Source;
 import com.google.firebase.messaging.FirebaseMessaging;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * Service de gestion des notifications avec Firebase
@@ -16,14 +26,26 @@ import java.util.List;
 public class NotificationService {
     private static final String TAG = "NotificationService";
     private static final String COLLECTION_NOTIFICATIONS = "notifications";
+    private static final int NOTIFICATIONS_PAGE_SIZE = 30;
 
     private static NotificationService instance;
     private FirebaseFirestore db;
     private FirebaseMessaging fcm;
+    private final BatchWriter batchWriter;
+
+    // Compteur de non lues suivi en direct pour le badge (un seul utilisateur à la fois)
+    private String unreadUserId;
+    // Plus récente non lue au moment de l'abonnement (null : aucune) ; sépare compte et deltas
+    private DocumentSnapshot unreadAnchor;
+    private long unreadBaseCount = -1;
+    private final Set<String> liveUnreadIds = new HashSet<>();
+    private ListenerRegistration unreadListener;
+    private UnreadCountCallback unreadObserver;
 
     private NotificationService() {
-        db = FirebaseFirestore.getInstance();
+        db = OfflineStore.firestore();
         fcm = FirebaseMessaging.getInstance();
+        batchWriter = new BatchWriter(db);
     }
 
     public static synchronized NotificationService getInstance() {
@@ -34,30 +56,20 @@ public class NotificationService {
     }
 
     /**
-     * Récupère les notifications de l'utilisateur
+     * Récupère les notifications de l'utilisateur (les plus récentes d'abord)
      */
     public void getUserNotifications(String userId, NotificationsCallback callback) {
-        db.collection(COLLECTION_NOTIFICATIONS)
-            .whereEqualTo("userId", userId)
+        orderedNotificationsQuery(userId)
             .limit(50)
             .get()
             .addOnSuccessListener(querySnapshot -> {
                 List<Notification> notifications = new ArrayList<>();
                 for (DocumentSnapshot doc : querySnapshot.getDocuments()) {
-                    Notification notification = doc.toObject(Notification.class);
+                    Notification notification = NotificationCodec.decode(doc);
                     if (notification != null) {
-                        notification.setId(doc.getId());
                         notifications.add(notification);
                     }
                 }
-
-                // Trier localement par date
-                notifications.sort((n1, n2) -> {
-                    if (n1.getCreatedAt() == null) return 1;
-                    if (n2.getCreatedAt() == null) return -1;
-                    return n2.getCreatedAt().compareTo(n1.getCreatedAt());
-                });
-
                 callback.onSuccess(notifications);
             })
             .addOnFailureListener(e -> {
@@ -66,6 +78,23 @@ public class NotificationService {
             });
     }
 
+    /**
+     * Ouvre un flux temps réel des notifications de l'utilisateur.
+     * L'appelant doit appeler stop() sur le flux retourné quand sa vue est détruite.
+     */
+    public NotificationStream openNotificationStream(String userId, NotificationStream.Listener listener) {
+        NotificationStream stream = new NotificationStream(
+            orderedNotificationsQuery(userId), NOTIFICATIONS_PAGE_SIZE, listener);
+        stream.start();
+        return stream;
+    }
+
+    private Query orderedNotificationsQuery(String userId) {
+        return db.collection(COLLECTION_NOTIFICATIONS)
+            .whereEqualTo("userId", userId)
+            .orderBy("createdAt", Query.Direction.DESCENDING);
+    }
+
     /**
      * Marque une notification comme lue
      */
@@ -74,6 +103,7 @@ public class NotificationService {
             .update("read", true)
             .addOnSuccessListener(aVoid -> {
                 Log.d(TAG, "Notification marquée comme lue: " + notificationId);
+                refreshUnreadBaseCount();
                 callback.onSuccess();
             })
             .addOnFailureListener(e -> {
@@ -86,17 +116,23 @@ public class NotificationService {
      * Marque toutes les notifications comme lues
      */
     public void markAllAsRead(String userId, MarkReadCallback callback) {
-        db.collection(COLLECTION_NOTIFICATIONS)
-            .whereEqualTo("userId", userId)
-            .whereEqualTo("read", false)
+        unreadQuery(userId)
             .get()
             .addOnSuccessListener(querySnapshot -> {
-                // Utiliser un batch pour mettre à jour toutes les notifications
+                // Mettre à jour toutes les notifications par batchs, répondre une fois tout validé
+                List<DocumentReference> refs = new ArrayList<>();
                 for (DocumentSnapshot doc : querySnapshot.getDocuments()) {
-                    db.collection(COLLECTION_NOTIFICATIONS).document(doc.getId())
-                        .update("read", true);
+                    refs.add(doc.getReference());
                 }
-                callback.onSuccess();
+                batchWriter.update(refs, Collections.singletonMap("read", true), (written, failed) -> {
+                    if (failed.isEmpty()) {
+                        Log.d(TAG, written + " notifications marquées comme lues");
+                        refreshUnreadBaseCount();
+                        callback.onSuccess();
+                    } else {
+                        callback.onError("Erreur: " + failed.size() + " notifications n'ont pas pu être mises à jour");
+                    }
+                });
             })
             .addOnFailureListener(e -> {
                 Log.e(TAG, "Erreur lors du marquage de toutes les notifications", e);
@@ -165,23 +201,166 @@ public class NotificationService {
     }
 
     /**
-     * Obtient le nombre de notifications non lues
+     * Obtient le nombre de notifications non lues.
+     * Sans lecture si le compteur est suivi en direct (listenUnreadCount),
+     * sinon une seule requête d'agrégation count().
      */
     public void getUnreadCount(String userId, UnreadCountCallback callback) {
-        db.collection(COLLECTION_NOTIFICATIONS)
-            .whereEqualTo("userId", userId)
-            .whereEqualTo("read", false)
-            .get()
-            .addOnSuccessListener(querySnapshot -> {
-                int count = querySnapshot.size();
-                callback.onSuccess(count);
-            })
+        synchronized (this) {
+            if (userId.equals(unreadUserId) && unreadBaseCount >= 0) {
+                callback.onSuccess(currentUnreadCount());
+                return;
+            }
+        }
+
+        unreadQuery(userId)
+            .count()
+            .get(AggregateSource.SERVER)
+            .addOnSuccessListener(snapshot -> callback.onSuccess((int) snapshot.getCount()))
             .addOnFailureListener(e -> {
                 Log.e(TAG, "Erreur lors du comptage des notifications", e);
                 callback.onError("Erreur: " + e.getMessage());
             });
     }
 
+    /**
+     * Suit le nombre de notifications non lues pour le badge.
+     * La frontière est la plus récente non lue lue sur le serveur (pas l'horloge locale) :
+     * jusqu'à elle, une requête count() ; après elle (curseur sur le document, donc sans
+     * ambiguïté à date égale), un listener qui ne télécharge que les nouvelles arrivées.
+     * Le callback est appelé à chaque changement ; retirer le listener retourné quand l'écran se ferme.
+     */
+    public synchronized ListenerRegistration listenUnreadCount(String userId, UnreadCountCallback callback) {
+        stopUnreadCountListener();
+
+        unreadUserId = userId;
+        unreadAnchor = null;
+        unreadBaseCount = -1;
+        liveUnreadIds.clear();
+        unreadObserver = callback;
+
+        orderedUnreadQuery(userId)
+            .limitToLast(1)
+            .get(Source.SERVER)
+            .addOnSuccessListener(snapshot -> {
+                synchronized (this) {
+                    if (unreadObserver != callback) return;
+                    List<DocumentSnapshot> docs = snapshot.getDocuments();
+                    unreadAnchor = docs.isEmpty() ? null : docs.get(0);
+                    attachUnreadListener(userId, callback);
+                    refreshUnreadBaseCount();
+                }
+            })
+            .addOnFailureListener(e -> {
+                Log.e(TAG, "Erreur lors du chargement des notifications non lues", e);
+                callback.onError("Erreur: " + e.getMessage());
+            });
+
+        return () -> {
+            synchronized (NotificationService.this) {
+                if (unreadObserver == callback) {
+                    stopUnreadCountListener();
+                }
+            }
+        };
+    }
+
+    private void attachUnreadListener(String userId, UnreadCountCallback callback) {
+        Query liveQuery = orderedUnreadQuery(userId);
+        if (unreadAnchor != null) {
+            liveQuery = liveQuery.startAfter(unreadAnchor);
+        }
+        unreadListener = liveQuery
+            .addSnapshotListener((snapshot, e) -> {
+                if (e != null) {
+                    Log.e(TAG, "Erreur du suivi des notifications non lues", e);
+                    callback.onError("Erreur: " + e.getMessage());
+                    return;
+                }
+                if (snapshot == null) return;
+
+                synchronized (this) {
+                    if (unreadObserver != callback) return;
+                    for (DocumentChange change : snapshot.getDocumentChanges()) {
+                        String id = change.getDocument().getId();
+                        if (change.getType() == DocumentChange.Type.REMOVED) {
+                            liveUnreadIds.remove(id);
+                        } else {
+                            liveUnreadIds.add(id);
+                        }
+                    }
+                }
+                notifyUnreadObserver();
+            });
+    }
+
+    private void stopUnreadCountListener() {
+        if (unreadListener != null) {
+            unreadListener.remove();
+            unreadListener = null;
+        }
+        unreadUserId = null;
+        unreadAnchor = null;
+        unreadObserver = null;
+        unreadBaseCount = -1;
+        liveUnreadIds.clear();
+    }
+
+    /**
+     * Recompte les non lues jusqu'à la frontière (une lecture d'agrégation).
+     * Appelé à l'abonnement et après chaque marquage comme lu.
+     */
+    private synchronized void refreshUnreadBaseCount() {
+        // Frontière pas encore lue : le compte sera fait à l'attache du listener
+        if (unreadUserId == null || unreadListener == null) return;
+        String userId = unreadUserId;
+        DocumentSnapshot anchor = unreadAnchor;
+        if (anchor == null) {
+            // Aucune non lue à l'abonnement : tout passe par le listener
+            unreadBaseCount = 0;
+            notifyUnreadObserver();
+            return;
+        }
+
+        orderedUnreadQuery(userId)
+            .endAt(anchor)
+            .count()
+            .get(AggregateSource.SERVER)
+            .addOnSuccessListener(snapshot -> {
+                synchronized (this) {
+                    if (!userId.equals(unreadUserId) || anchor != unreadAnchor) return;
+                    unreadBaseCount = snapshot.getCount();
+                }
+                notifyUnreadObserver();
+            })
+            .addOnFailureListener(e -> Log.e(TAG, "Erreur lors du comptage des notifications", e));
+    }
+
+    private void notifyUnreadObserver() {
+        UnreadCountCallback observer;
+        int count;
+        synchronized (this) {
+            if (unreadObserver == null || unreadBaseCount < 0) return;
+            observer = unreadObserver;
+            count = currentUnreadCount();
+        }
+        observer.onSuccess(count);
+    }
+
+    private int currentUnreadCount() {
+        return (int) unreadBaseCount + liveUnreadIds.size();
+    }
+
+    private Query unreadQuery(String userId) {
+        return db.collection(COLLECTION_NOTIFICATIONS)
+            .whereEqualTo("userId", userId)
+            .whereEqualTo("read", false);
+    }
+
+    private Query orderedUnreadQuery(String userId) {
+        return unreadQuery(userId).orderBy("createdAt");
+    }
+
     // Callbacks
     public interface NotificationsCallback {
         void onSuccess(List<Notification> notifications);
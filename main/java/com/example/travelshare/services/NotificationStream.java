@@ -0,0 +1,210 @@
+package com.example.travelshare.services;
+
+import android.util.Log;
+
+import com.example.travelshare.codec.NotificationCodec;
+import com.example.travelshare.models.Notification;
+import com.google.firebase.firestore.DocumentChange;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.ListenerRegistration;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Flux temps réel des notifications d'un utilisateur, du plus récent au plus ancien.
+ * Un listener limité à une page suit les plus récentes : son premier résultat est la
+ * première page (lue une seule fois), puis arrivées, modifications et suppressions sont
+ * appliquées comme deltas à la liste en mémoire. L'historique plus ancien est chargé
+ * page par page avec un curseur.
+ */
+public class NotificationStream {
+    private static final String TAG = "NotificationStream";
+    // Champ de tri de la requête (décroissant)
+    private static final String SORT_FIELD = "createdAt";
+
+    private final Query orderedQuery;
+    private final int pageSize;
+    private final Listener listener;
+
+    // Partie suivie en direct (triée comme la requête) puis historique paginé
+    private final List<Notification> live = new ArrayList<>();
+    private final List<Notification> history = new ArrayList<>();
+    private DocumentSnapshot historyCursor;
+    private ListenerRegistration registration;
+    private boolean hasMore;
+    private boolean loadingMore;
+    private boolean stopped;
+
+    NotificationStream(Query orderedQuery, int pageSize, Listener listener) {
+        this.orderedQuery = orderedQuery;
+        this.pageSize = pageSize;
+        this.listener = listener;
+    }
+
+    /**
+     * Attache le listener sur la première page (limit) : son premier résultat sert de page un
+     */
+    public void start() {
+        registration = orderedQuery.limit(pageSize).addSnapshotListener((snapshot, e) -> {
+            if (stopped) return;
+            if (e != null) {
+                Log.e(TAG, "Erreur du flux de notifications", e);
+                listener.onError("Erreur: " + e.getMessage());
+                return;
+            }
+            if (snapshot == null) return;
+            applyChanges(snapshot);
+            publish();
+        });
+    }
+
+    /**
+     * Applique les deltas à la fenêtre suivie. Un document qui en sort parce que des plus
+     * récents sont arrivés (fenêtre toujours pleine, document plus ancien que son dernier)
+     * n'est pas supprimé : il passe en tête de l'historique.
+     */
+    private void applyChanges(QuerySnapshot snapshot) {
+        List<Notification> spilled = new ArrayList<>();
+        for (DocumentChange change : snapshot.getDocumentChanges()) {
+            switch (change.getType()) {
+                case ADDED:
+                    Notification added = toNotification(change.getDocument());
+                    live.add(change.getNewIndex(), added);
+                    // Remonté dans la fenêtre après une suppression : ne plus le garder en historique
+                    removeById(history, added.getId());
+                    break;
+                case MODIFIED:
+                    live.remove(change.getOldIndex());
+                    live.add(change.getNewIndex(), toNotification(change.getDocument()));
+                    break;
+                case REMOVED:
+                    Notification removed = live.remove(change.getOldIndex());
+                    if (leftWindow(change.getDocument(), snapshot)) {
+                        spilled.add(removed);
+                    }
+                    break;
+            }
+        }
+        history.addAll(0, spilled);
+
+        // Tant que rien n'est sorti de la fenêtre ni n'a été chargé, l'historique commence après elle
+        if (history.isEmpty() && !loadingMore) {
+            List<DocumentSnapshot> docs = snapshot.getDocuments();
+            historyCursor = docs.isEmpty() ? null : docs.get(docs.size() - 1);
+            hasMore = docs.size() == pageSize;
+        }
+    }
+
+    /**
+     * Vrai si le document retiré est plus ancien que le dernier d'une fenêtre encore pleine
+     * (tri createdAt décroissant, puis ID décroissant comme le fait Firestore)
+     */
+    private boolean leftWindow(DocumentSnapshot removed, QuerySnapshot snapshot) {
+        if (snapshot.size() < pageSize) return false;
+        DocumentSnapshot last = snapshot.getDocuments().get(snapshot.size() - 1);
+        Date removedAt = removed.getDate(SORT_FIELD);
+        Date lastAt = last.getDate(SORT_FIELD);
+        if (removedAt == null || lastAt == null) return false;
+        int order = removedAt.compareTo(lastAt);
+        return order < 0 || (order == 0 && removed.getId().compareTo(last.getId()) < 0);
+    }
+
+    private static void removeById(List<Notification> items, String id) {
+        for (int i = 0; i < items.size(); i++) {
+            if (items.get(i).getId() != null && items.get(i).getId().equals(id)) {
+                items.remove(i);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Charge la page d'historique suivante (sans écoute en direct)
+     */
+    public void loadMore() {
+        if (stopped || loadingMore || !hasMore || historyCursor == null) {
+            return;
+        }
+        loadingMore = true;
+
+        orderedQuery.startAfter(historyCursor)
+            .limit(pageSize + 1)
+            .get()
+            .addOnSuccessListener(querySnapshot -> {
+                loadingMore = false;
+                if (stopped) return;
+
+                List<DocumentSnapshot> docs = querySnapshot.getDocuments();
+                hasMore = docs.size() > pageSize;
+                if (hasMore) {
+                    docs = docs.subList(0, pageSize);
+                }
+                for (DocumentSnapshot doc : docs) {
+                    history.add(toNotification(doc));
+                }
+                if (!docs.isEmpty()) {
+                    historyCursor = docs.get(docs.size() - 1);
+                }
+                publish();
+            })
+            .addOnFailureListener(e -> {
+                loadingMore = false;
+                Log.e(TAG, "Erreur lors du chargement de l'historique", e);
+                listener.onError("Erreur: " + e.getMessage());
+            });
+    }
+
+    public boolean hasMore() {
+        return hasMore;
+    }
+
+    public boolean isLoadingMore() {
+        return loadingMore;
+    }
+
+    /**
+     * Détache le listener ; à appeler quand la vue est détruite
+     */
+    public void stop() {
+        stopped = true;
+        if (registration != null) {
+            registration.remove();
+            registration = null;
+        }
+    }
+
+    private void publish() {
+        List<Notification> merged = new ArrayList<>(live.size() + history.size());
+        Set<String> liveIds = new HashSet<>();
+        for (Notification notification : live) {
+            liveIds.add(notification.getId());
+            merged.add(notification);
+        }
+        for (Notification notification : history) {
+            if (!liveIds.contains(notification.getId())) {
+                merged.add(notification);
+            }
+        }
+        listener.onNotificationsChanged(Collections.unmodifiableList(merged));
+    }
+
+    private static Notification toNotification(DocumentSnapshot doc) {
+        Notification notification = NotificationCodec.decode(doc);
+        if (notification == null) {
+            notification = new Notification();
+        }
+        return notification;
+    }
+
+    public interface Listener {
+        void onNotificationsChanged(List<Notification> notifications);
+        void onError(String error);
+    }
+}
@@ -0,0 +1,247 @@
+package com.example.travelshare.services;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import com.google.firebase.Timestamp;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldPath;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.FirebaseFirestoreSettings;
+import com.google.firebase.firestore.PersistentCacheSettings;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.Source;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Copie locale des données pour l'affichage immédiat et la consultation hors connexion.
+ * La base locale est le cache persistant de Firestore : tout document lu y est conservé,
+ * et les services l'affichent d'abord (voir LocalFirst) avant de se réconcilier avec le serveur.
+ * syncPhotos() y ramène en arrière-plan ce que l'utilisateur consulte, pour un coût qui ne
+ * dépend pas du volume d'écriture global :
+ * - la première page du flux de découverte (même requête que l'écran, servie ensuite par le cache) ;
+ * - la première page des fils de groupes ouverts récemment (noteGroupFeedRead) ;
+ * - ses propres photos modifiées depuis le dernier passage, repéré par le dernier document reçu :
+ *   sa valeur "updatedAt" (heure du serveur) et son ID. La requête part de cette valeur incluse
+ *   (tri updatedAt puis ID) et reprend juste après ce document.
+ */
+public class OfflineStore {
+    private static final String TAG = "OfflineStore";
+    private static final String PREFS_NAME = "offline_store";
+    // Ancienne marque de la synchronisation de toutes les photos publiques, supprimée au passage
+    private static final String KEY_PUBLIC_WATERMARK = "public_photos_updated_at";
+    private static final String KEY_GROUP_READ_PREFIX = "group_feed_read_";
+    private static final String KEY_OWN_WATERMARK_PREFIX = "own_photos_updated_at_";
+    // Suffixes des clés de la marque : nanosecondes de "updatedAt" et ID du dernier document reçu
+    private static final String SUFFIX_NANOS = "_nanos";
+    private static final String SUFFIX_DOC_ID = "_doc_id";
+
+    private static final long CACHE_SIZE_BYTES = 100L * 1024 * 1024;
+    private static final int SYNC_PAGE_SIZE = 200;
+    private static final int MAX_SYNC_PAGES = 5;
+    // Fils de groupes recopiés : les plus récemment ouverts, pendant 14 jours
+    private static final int MAX_MIRRORED_GROUPS = 5;
+    private static final long GROUP_READ_WINDOW_MS = 14L * 24 * 60 * 60 * 1000;
+    // Premier passage : on ne remonte pas plus loin que 30 jours
+    private static final long INITIAL_WINDOW_MS = 30L * 24 * 60 * 60 * 1000;
+
+    private static FirebaseFirestore firestore;
+    private static OfflineStore instance;
+
+    private final SharedPreferences prefs;
+    private boolean syncing;
+
+    private OfflineStore(Context context) {
+        prefs = context.getApplicationContext().getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+
+    public static synchronized OfflineStore getInstance(Context context) {
+        if (instance == null) {
+            instance = new OfflineStore(context);
+        }
+        return instance;
+    }
+
+    /**
+     * Instance Firestore avec cache persistant ; à utiliser à la place de FirebaseFirestore.getInstance()
+     * pour que les réglages soient appliqués avant la première lecture
+     */
+    public static synchronized FirebaseFirestore firestore() {
+        if (firestore == null) {
+            firestore = FirebaseFirestore.getInstance();
+            try {
+                firestore.setFirestoreSettings(new FirebaseFirestoreSettings.Builder()
+                    .setLocalCacheSettings(PersistentCacheSettings.newBuilder()
+                        .setSizeBytes(CACHE_SIZE_BYTES)
+                        .build())
+                    .build());
+            } catch (IllegalStateException e) {
+                // Instance déjà démarrée ailleurs : elle garde le cache persistant par défaut
+                Log.w(TAG, "Réglages Firestore non appliqués", e);
+            }
+        }
+        return firestore;
+    }
+
+    /**
+     * Ramène dans le cache local le flux de découverte, les fils de groupes ouverts récemment
+     * et les photos de l'utilisateur modifiées depuis la dernière synchronisation
+     */
+    public void syncPhotos() {
+        synchronized (this) {
+            if (syncing) return;
+            syncing = true;
+        }
+        prefs.edit().remove(KEY_PUBLIC_WATERMARK)
+            .remove(KEY_PUBLIC_WATERMARK + SUFFIX_NANOS)
+            .remove(KEY_PUBLIC_WATERMARK + SUFFIX_DOC_ID)
+            .apply();
+
+        // Mêmes requêtes que les premières pages affichées (une photo de plus que la page)
+        int firstPageSize = PhotoService.DEFAULT_FEED_PAGE_SIZE + 1;
+        Query discoverFeed = firestore().collection("photos")
+            .whereEqualTo("isPublic", true)
+            .orderBy("createdAt", Query.Direction.DESCENDING);
+        mirror(discoverFeed.limit(firstPageSize), () -> mirrorGroupFeeds(recentGroupFeeds(), 0, firstPageSize, () -> {
+            AuthService authService = AuthService.getInstance();
+            if (!authService.isUserLoggedIn()) {
+                finishSync();
+                return;
+            }
+            String userId = authService.getCurrentUser().getId();
+            Query ownPhotos = firestore().collection("photos")
+                .whereEqualTo("authorId", userId);
+            syncPage(ownPhotos, KEY_OWN_WATERMARK_PREFIX + userId, null, 0, this::finishSync);
+        }));
+    }
+
+    /**
+     * À appeler à l'ouverture du fil d'un groupe : sa première page fera partie des copies locales
+     */
+    public void noteGroupFeedRead(String groupId) {
+        prefs.edit().putLong(KEY_GROUP_READ_PREFIX + groupId, System.currentTimeMillis()).apply();
+    }
+
+    /**
+     * Groupes ouverts dans la fenêtre, du plus récent au plus ancien ; les autres sont oubliés
+     */
+    private List<String> recentGroupFeeds() {
+        long now = System.currentTimeMillis();
+        List<Map.Entry<String, Long>> recent = new ArrayList<>();
+        SharedPreferences.Editor editor = prefs.edit();
+        for (Map.Entry<String, ?> entry : prefs.getAll().entrySet()) {
+            if (!entry.getKey().startsWith(KEY_GROUP_READ_PREFIX) || !(entry.getValue() instanceof Long)) continue;
+            long readAt = (Long) entry.getValue();
+            if (now - readAt > GROUP_READ_WINDOW_MS) {
+                editor.remove(entry.getKey());
+                continue;
+            }
+            recent.add(new AbstractMap.SimpleEntry<>(
+                entry.getKey().substring(KEY_GROUP_READ_PREFIX.length()), readAt));
+        }
+        editor.apply();
+
+        Collections.sort(recent, (a, b) -> Long.compare(b.getValue(), a.getValue()));
+        List<String> groupIds = new ArrayList<>();
+        for (int i = 0; i < recent.size() && i < MAX_MIRRORED_GROUPS; i++) {
+            groupIds.add(recent.get(i).getKey());
+        }
+        return groupIds;
+    }
+
+    private void mirrorGroupFeeds(List<String> groupIds, int index, int pageSize, Runnable onDone) {
+        if (index >= groupIds.size()) {
+            onDone.run();
+            return;
+        }
+        Query feed = new GroupFeed(firestore()).query(groupIds.get(index)).limit(pageSize);
+        mirror(feed, () -> mirrorGroupFeeds(groupIds, index + 1, pageSize, onDone));
+    }
+
+    /**
+     * Lit une requête sur le serveur : ses documents restent dans le cache local
+     */
+    private void mirror(Query query, Runnable onDone) {
+        query.get(Source.SERVER)
+            .addOnSuccessListener(snapshot -> onDone.run())
+            .addOnFailureListener(e -> {
+                // Hors connexion : on réessaiera au prochain démarrage
+                Log.w(TAG, "Synchronisation des photos interrompue", e);
+                finishSync();
+            });
+    }
+
+    /**
+     * @param cursor dernier document de la page précédente (null : reprendre à la marque enregistrée)
+     */
+    private void syncPage(Query base, String watermarkKey, DocumentSnapshot cursor, int page, Runnable onDone) {
+        Timestamp watermark = loadWatermark(watermarkKey);
+        String lastDocId = prefs.getString(watermarkKey + SUFFIX_DOC_ID, null);
+
+        Query query = base.whereGreaterThanOrEqualTo("updatedAt", watermark)
+            .orderBy("updatedAt")
+            .orderBy(FieldPath.documentId());
+        if (cursor != null) {
+            query = query.startAfter(cursor);
+        } else if (lastDocId != null) {
+            query = query.startAfter(watermark, lastDocId);
+        }
+
+        query.limit(SYNC_PAGE_SIZE)
+            .get(Source.SERVER)
+            .addOnSuccessListener(snapshot -> {
+                // Les documents reçus sont désormais dans le cache local : il suffit d'avancer la marque
+                List<DocumentSnapshot> docs = snapshot.getDocuments();
+                DocumentSnapshot lastDoc = docs.isEmpty() ? null : docs.get(docs.size() - 1);
+                if (lastDoc != null) {
+                    Timestamp last = lastDoc.getTimestamp("updatedAt");
+                    if (last != null) {
+                        saveWatermark(watermarkKey, last, lastDoc.getId());
+                    }
+                }
+
+                if (docs.size() == SYNC_PAGE_SIZE && page + 1 < MAX_SYNC_PAGES) {
+                    syncPage(base, watermarkKey, lastDoc, page + 1, onDone);
+                } else {
+                    onDone.run();
+                }
+            })
+            .addOnFailureListener(e -> {
+                // Hors connexion : on réessaiera au prochain démarrage
+                Log.w(TAG, "Synchronisation des photos interrompue", e);
+                finishSync();
+            });
+    }
+
+    /**
+     * Marque enregistrée, ou début de la fenêtre initiale au premier passage.
+     * La clé historique garde les millisecondes ; les nanosecondes sont à part.
+     */
+    private Timestamp loadWatermark(String watermarkKey) {
+        if (!prefs.contains(watermarkKey)) {
+            long startMs = System.currentTimeMillis() - INITIAL_WINDOW_MS;
+            return new Timestamp(startMs / 1000, 0);
+        }
+        long ms = prefs.getLong(watermarkKey, 0);
+        int nanos = prefs.getInt(watermarkKey + SUFFIX_NANOS, (int) (ms % 1000) * 1_000_000);
+        return new Timestamp(ms / 1000, nanos);
+    }
+
+    private void saveWatermark(String watermarkKey, Timestamp updatedAt, String docId) {
+        prefs.edit()
+            .putLong(watermarkKey, updatedAt.getSeconds() * 1000 + updatedAt.getNanoseconds() / 1_000_000)
+            .putInt(watermarkKey + SUFFIX_NANOS, updatedAt.getNanoseconds())
+            .putString(watermarkKey + SUFFIX_DOC_ID, docId)
+            .apply();
+    }
+
+    private synchronized void finishSync() {
+        syncing = false;
+    }
+}
@@ -0,0 +1,261 @@
+package com.example.travelshare.services;
+
+import android.util.Log;
+
+import com.example.travelshare.codec.PhotoCodec;
+import com.example.travelshare.models.Photo;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Cache mémoire des documents photos, partagé par les services.
+ * Les photos lues par une requête (flux, recherche, profil…) y sont déposées, si bien qu'ouvrir
+ * le détail ou commenter une photo déjà affichée ne relit pas son document.
+ * LRU borné en nombre d'entrées et en taille approximative, avec expiration ; toute écriture
+ * sur une photo doit l'invalider. Chaque lecture renvoie un nouvel objet Photo, que l'appelant
+ * peut modifier librement (compteurs, état "aimé").
+ */
+public class PhotoRepository {
+    private static final String TAG = "PhotoRepository";
+    private static final String COLLECTION_PHOTOS = "photos";
+
+    private static final int DEFAULT_MAX_ENTRIES = 300;
+    private static final long DEFAULT_MAX_BYTES = 2L * 1024 * 1024;
+    private static final long DEFAULT_TTL_MS = 5 * 60_000;
+
+    private static PhotoRepository instance;
+
+    private final FirebaseFirestore db;
+    private final int maxEntries;
+    private final long maxBytes;
+    private final long ttlMs;
+
+    // Ordre d'accès : la première entrée est la moins récemment utilisée
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, List<PhotoCallback>> inFlight = new HashMap<>();
+    private long currentBytes;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long expirations;
+
+    private PhotoRepository(FirebaseFirestore db, int maxEntries, long maxBytes, long ttlMs) {
+        this.db = db;
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+        this.ttlMs = ttlMs;
+    }
+
+    public static synchronized PhotoRepository getInstance() {
+        if (instance == null) {
+            instance = new PhotoRepository(OfflineStore.firestore(), DEFAULT_MAX_ENTRIES, DEFAULT_MAX_BYTES, DEFAULT_TTL_MS);
+        }
+        return instance;
+    }
+
+    /**
+     * Photo depuis le cache, ou lue depuis Firestore. Les demandes simultanées
+     * pour une même photo partagent une seule lecture.
+     */
+    public void getPhoto(String photoId, PhotoCallback callback) {
+        Entry cached;
+        synchronized (this) {
+            cached = getFresh(photoId);
+            if (cached != null) {
+                hits++;
+            } else {
+                misses++;
+                List<PhotoCallback> waiting = inFlight.get(photoId);
+                if (waiting != null) {
+                    waiting.add(callback);
+                    return;
+                }
+                waiting = new ArrayList<>();
+                waiting.add(callback);
+                inFlight.put(photoId, waiting);
+            }
+        }
+        if (cached != null) {
+            callback.onSuccess(cached.toPhoto());
+            return;
+        }
+
+        db.collection(COLLECTION_PHOTOS).document(photoId)
+            .get()
+            .addOnSuccessListener(doc -> {
+                List<PhotoCallback> callbacks = takeWaiting(photoId);
+                if (!doc.exists()) {
+                    for (PhotoCallback cb : callbacks) {
+                        cb.onError("Photo non trouvée");
+                    }
+                    return;
+                }
+                put(doc);
+                Entry entry = new Entry(doc, 0, 0);
+                for (PhotoCallback cb : callbacks) {
+                    cb.onSuccess(entry.toPhoto());
+                }
+            })
+            .addOnFailureListener(e -> {
+                Log.e(TAG, "Erreur lors du chargement de la photo", e);
+                for (PhotoCallback cb : takeWaiting(photoId)) {
+                    cb.onError("Erreur: " + e.getMessage());
+                }
+            });
+    }
+
+    /**
+     * Dépose un document photo lu par ailleurs. Les documents venant du cache local
+     * de Firestore sont ignorés : ils peuvent être plus anciens que l'entrée en place.
+     */
+    public synchronized void put(DocumentSnapshot doc) {
+        if (!doc.exists() || doc.getMetadata().isFromCache()) return;
+
+        Entry entry = new Entry(doc, estimateSize(doc.getData()), System.currentTimeMillis());
+        Entry previous = entries.put(doc.getId(), entry);
+        if (previous != null) {
+            currentBytes -= previous.sizeBytes;
+        }
+        currentBytes += entry.sizeBytes;
+        trim();
+    }
+
+    public synchronized void putAll(List<DocumentSnapshot> docs) {
+        for (DocumentSnapshot doc : docs) {
+            put(doc);
+        }
+    }
+
+    /**
+     * À appeler après toute écriture sur la photo
+     */
+    public synchronized void invalidate(String photoId) {
+        Entry removed = entries.remove(photoId);
+        if (removed != null) {
+            currentBytes -= removed.sizeBytes;
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        currentBytes = 0;
+    }
+
+    public synchronized Stats getStats() {
+        return new Stats(hits, misses, evictions, expirations, entries.size(), currentBytes);
+    }
+
+    private Entry getFresh(String photoId) {
+        Entry entry = entries.get(photoId);
+        if (entry == null) return null;
+        if (System.currentTimeMillis() - entry.loadedAtMs > ttlMs) {
+            entries.remove(photoId);
+            currentBytes -= entry.sizeBytes;
+            expirations++;
+            return null;
+        }
+        return entry;
+    }
+
+    private void trim() {
+        Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+        while ((entries.size() > maxEntries || currentBytes > maxBytes) && it.hasNext()) {
+            Entry eldest = it.next().getValue();
+            it.remove();
+            currentBytes -= eldest.sizeBytes;
+            evictions++;
+        }
+    }
+
+    private synchronized List<PhotoCallback> takeWaiting(String photoId) {
+        List<PhotoCallback> callbacks = inFlight.remove(photoId);
+        return callbacks != null ? callbacks : new ArrayList<>();
+    }
+
+    /**
+     * Taille approximative en mémoire des champs d'un document (chaînes en UTF-16)
+     */
+    static long estimateSize(Object value) {
+        if (value == null) return 0;
+        if (value instanceof String) {
+            return 40 + 2L * ((String) value).length();
+        }
+        if (value instanceof Map) {
+            long size = 48;
+            for (Map.Entry<?, ?> field : ((Map<?, ?>) value).entrySet()) {
+                size += 32 + estimateSize(field.getKey()) + estimateSize(field.getValue());
+            }
+            return size;
+        }
+        if (value instanceof List) {
+            long size = 40;
+            for (Object item : (List<?>) value) {
+                size += 8 + estimateSize(item);
+            }
+            return size;
+        }
+        // Nombres, booléens, dates, GeoPoint
+        return 24;
+    }
+
+    private static class Entry {
+        final DocumentSnapshot doc;
+        final long sizeBytes;
+        final long loadedAtMs;
+
+        Entry(DocumentSnapshot doc, long sizeBytes, long loadedAtMs) {
+            this.doc = doc;
+            this.sizeBytes = sizeBytes;
+            this.loadedAtMs = loadedAtMs;
+        }
+
+        Photo toPhoto() {
+            return PhotoCodec.decode(doc);
+        }
+    }
+
+    /**
+     * Compteurs du cache depuis le démarrage
+     */
+    public static class Stats {
+        public final long hits;
+        public final long misses;
+        public final long evictions;
+        public final long expirations;
+        public final int entries;
+        public final long bytes;
+
+        Stats(long hits, long misses, long evictions, long expirations, int entries, long bytes) {
+            this.hits = hits;
+            this.misses = misses;
+            this.evictions = evictions;
+            this.expirations = expirations;
+            this.entries = entries;
+            this.bytes = bytes;
+        }
+
+        public double hitRate() {
+            long total = hits + misses;
+            return total == 0 ? 0 : (double) hits / total;
+        }
+
+        @Override
+        public String toString() {
+            return "hits=" + hits + " misses=" + misses + " evictions=" + evictions
+                + " expirations=" + expirations + " entries=" + entries + " bytes=" + bytes;
+        }
+    }
+
+    public interface PhotoCallback {
+        void onSuccess(Photo photo);
+        void onError(String error);
+    }
+}
@@ -1,22 +1,66 @@
 package com.example.travelshare.services;
 
+import android.content.Context;
 import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
 import android.util.Log;
 
+import com.example.travelshare.codec.PhotoCodec;
 import com.example.travelshare.models.Photo;
 import com.example.travelshare.models.PhotoType;
+import com.example.travelshare.upload.FileUploadJobStore;
+import com.example.travelshare.upload.FirebaseUploadBackend;
+import com.example.travelshare.upload.MainThreadScheduler;
+import com.example.travelshare.upload.PhotoPayload;
+import com.example.travelshare.upload.UploadJob;
+import com.example.travelshare.upload.UploadPart;
+import com.example.travelshare.upload.UploadQueue;
+import com.example.travelshare.utils.AppExecutors;
+import com.example.travelshare.utils.BloomFilter;
+import com.example.travelshare.utils.GeoHash;
+import com.example.travelshare.utils.ImageProcessor;
+import com.example.travelshare.utils.PrefixTrie;
+import com.example.travelshare.utils.SearchTokenizer;
+import com.google.android.gms.maps.model.LatLng;
+import com.google.android.gms.maps.model.LatLngBounds;
+import com.google.android.gms.tasks.CancellationToken;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.AggregateSource;
+import com.google.firebase.firestore.DocumentReference;
 import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldPath;
 import com.google.firebase.firestore.FieldValue;
 import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
+import com.google.firebase.firestore.SetOptions;
+import com.google.firebase.firestore.Source;
+import com.google.firebase.firestore.WriteBatch;
 import com.google.firebase.storage.FirebaseStorage;
-import com.google.firebase.storage.StorageReference;
 
+import org.json.JSONException;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Service de gestion des photos avec Firebase
@@ -25,57 +69,281 @@ public class PhotoService {
     private static final String TAG = "PhotoService";
     private static final String COLLECTION_PHOTOS = "photos";
     private static final String COLLECTION_REPORTS = "reports";
+    private static final String COLLECTION_LIKES = "likes";
+    private static final String COLLECTION_NOTIFICATIONS = "notifications";
+    private static final String COLLECTION_GROUPS = "groups";
+    private static final String COLLECTION_USERS = "users";
+    private static final String FIELD_PHOTOS_COUNT = "photosCount";
     private static final String STORAGE_PHOTOS = "photos";
+    private static final String STORAGE_MEDIUM = "medium";
+    private static final String STORAGE_THUMBNAILS = "thumbnails";
+    private static final String UPLOADS_DIRECTORY = "uploads";
+    private static final String PART_FULL = "full";
+    private static final String PART_MEDIUM = "medium";
+    private static final String PART_THUMBNAIL = "thumbnail";
+
+    // Taille de page par défaut du flux de découverte
+    public static final int DEFAULT_FEED_PAGE_SIZE = 20;
+
+    // Échantillonnage aléatoire : sur-lecture pour compenser les photos déjà vues
+    private static final int RANDOM_OVERSAMPLING = 2;
+
+    // Recherche par lieu
+    private static final int SEARCH_RESULTS_LIMIT = 50;
+    private static final int BACKFILL_PAGE_SIZE = 200;
+
+    // Carte : nombre de cellules geohash par zone et de photos par cellule
+    public static final int MAP_MAX_CELLS = 9;
+    private static final int MAP_CELL_LIMIT = 200;
+
+    // Nombre maximal de valeurs dans une requête whereIn
+    private static final int WHERE_IN_LIMIT = 10;
+
+    // Délai de regroupement des appuis successifs sur "j'aime"
+    private static final long LIKE_DEBOUNCE_MS = 400;
 
     private static PhotoService instance;
     private final FirebaseFirestore db;
     private final FirebaseStorage storage;
-
-    private PhotoService() {
-        db = FirebaseFirestore.getInstance();
+    private final ShardedCounter counters;
+    private final BatchWriter batchWriter;
+    private final PhotoRepository photoRepository;
+    private final GroupFeed groupFeed;
+    private final Random random = new Random();
+
+    // Décodage, tris et filtres des résultats ; seul le résultat final passe sur le thread principal
+    private final Executor background;
+    private final Executor mainThread = AppExecutors.mainThread();
+
+    // Photos déjà montrées pendant la session (64 Kbits, ~5000 identifiants)
+    private final BloomFilter seenPhotoIds = new BloomFilter(1 << 16, 5, 5000);
+
+    // Lieux déjà rencontrés, pour l'autocomplétion de la recherche
+    private final PrefixTrie locationTrie = new PrefixTrie(2000);
+
+    // État "aimé" des photos pour l'utilisateur courant (photoId -> aimé)
+    private final Map<String, Boolean> likeStateCache = new ConcurrentHashMap<>();
+    private volatile String likeStateUserId;
+
+    // Appuis sur "j'aime" en attente d'écriture, et dernier état écrit par photo
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    // Préparation des images avant upload, une à la fois pour borner la mémoire
+    private final ExecutorService imageExecutor = Executors.newSingleThreadExecutor();
+
+    // File d'upload persistante, créée au premier besoin (elle a besoin d'un Context)
+    private UploadQueue uploadQueue;
+    private FileUploadJobStore uploadJobStore;
+    private CascadeDelete cascadeDelete;
+    private final Map<String, Runnable> pendingLikeWrites = new HashMap<>();
+    private final Map<String, Boolean> committedLikeStates = new ConcurrentHashMap<>();
+
+    PhotoService(Executor background) {
+        this.background = background;
+        db = OfflineStore.firestore();
         storage = FirebaseStorage.getInstance();
+        counters = ShardedCounter.getPhotoCounters();
+        batchWriter = new BatchWriter(db);
+        photoRepository = PhotoRepository.getInstance();
+        groupFeed = new GroupFeed(db);
     }
 
     public static synchronized PhotoService getInstance() {
         if (instance == null) {
-            instance = new PhotoService();
+            instance = new PhotoService(AppExecutors.background());
         }
         return instance;
     }
 
     /**
-     * Récupère des photos aléatoires (flux de découverte)
+     * Récupère des photos aléatoires (mode "au hasard" du flux de découverte).
+     * Chaque photo porte une clé aléatoire "randomKey" dans [0, 1) : on tire un pivot
+     * et on lit les clés suivantes (avec rebouclage), ce qui répartit les lectures
+     * sur toute la collection. Les photos déjà vues pendant la session sont écartées.
      */
     public void getRandomPhotos(int limit, PhotoCallback callback) {
+        double pivot = random.nextDouble();
+        int fetchSize = limit * RANDOM_OVERSAMPLING;
+
         db.collection(COLLECTION_PHOTOS)
             .whereEqualTo("isPublic", true)
-            .limit(limit)
+            .whereGreaterThanOrEqualTo("randomKey", pivot)
+            .orderBy("randomKey")
+            .limit(fetchSize)
             .get()
-            .addOnSuccessListener(querySnapshot -> {
-                List<Photo> photos = new ArrayList<>();
-                for (DocumentSnapshot doc : querySnapshot.getDocuments()) {
-                    Photo photo = doc.toObject(Photo.class);
-                    if (photo != null) {
-                        photo.setId(doc.getId());
-                        photos.add(photo);
-                    }
+            .addOnSuccessListener(background, upperSnapshot -> {
+                List<DocumentSnapshot> docs = new ArrayList<>(upperSnapshot.getDocuments());
+                if (docs.size() >= fetchSize) {
+                    deliverRandomSample(docs, limit, callback);
+                    return;
                 }
 
+                // Fin de l'espace des clés atteinte : reboucler depuis 0
+                db.collection(COLLECTION_PHOTOS)
+                    .whereEqualTo("isPublic", true)
+                    .whereLessThan("randomKey", pivot)
+                    .orderBy("randomKey")
+                    .limit(fetchSize - docs.size())
+                    .get()
+                    .addOnSuccessListener(background, lowerSnapshot -> {
+                        docs.addAll(lowerSnapshot.getDocuments());
+                        if (docs.isEmpty()) {
+                            // Aucune photo ne porte encore de clé aléatoire
+                            getPhotosInIndexOrder(limit, callback);
+                        } else {
+                            deliverRandomSample(docs, limit, callback);
+                        }
+                    })
+                    .addOnFailureListener(e -> {
+                        Log.e(TAG, "Erreur lors du chargement des photos", e);
+                        callback.onError("Erreur: " + e.getMessage());
+                    });
+            })
+            .addOnFailureListener(e -> {
+                Log.e(TAG, "Erreur lors du chargement des photos", e);
+                callback.onError("Erreur: " + e.getMessage());
+            });
+    }
 
-                photos.sort((p1, p2) -> {
-                    if (p1.getUploadDate() == null) return 1;
-                    if (p2.getUploadDate() == null) return -1;
-                    return p2.getUploadDate().compareTo(p1.getUploadDate());
-                });
+    /**
+     * Démarre une nouvelle session de découverte (oublie les photos déjà vues)
+     */
+    public synchronized void resetDiscoverySession() {
+        seenPhotoIds.clear();
+    }
 
-                callback.onSuccess(photos);
-            })
+    /**
+     * Garde au plus "limit" photos non vues et les marque comme vues
+     */
+    private void deliverRandomSample(List<DocumentSnapshot> docs, int limit, PhotoCallback callback) {
+        photoRepository.putAll(docs);
+        List<Photo> photos = new ArrayList<>();
+        synchronized (this) {
+            if (seenPhotoIds.isSaturated()) {
+                seenPhotoIds.clear();
+            }
+            for (DocumentSnapshot doc : docs) {
+                if (photos.size() >= limit) break;
+                if (seenPhotoIds.mightContain(doc.getId())) continue;
+
+                Photo photo = PhotoCodec.decode(doc);
+                if (photo != null) {
+                    photos.add(photo);
+                    seenPhotoIds.add(doc.getId());
+                }
+            }
+        }
+
+        photos.sort((p1, p2) -> {
+            if (p1.getUploadDate() == null) return 1;
+            if (p2.getUploadDate() == null) return -1;
+            return p2.getUploadDate().compareTo(p1.getUploadDate());
+        });
+
+        applyKnownPhotoState(photos);
+        resolveLikeStates(photos, () -> deliver(photos, callback));
+    }
+
+    /**
+     * Ancien comportement, utilisé tant que les photos n'ont pas de clé aléatoire
+     * (filtré par les photos déjà vues, pour que le défilement s'arrête)
+     */
+    private void getPhotosInIndexOrder(int limit, PhotoCallback callback) {
+        db.collection(COLLECTION_PHOTOS)
+            .whereEqualTo("isPublic", true)
+            .limit(limit)
+            .get()
+            .addOnSuccessListener(background, querySnapshot ->
+                deliverRandomSample(querySnapshot.getDocuments(), limit, callback))
             .addOnFailureListener(e -> {
                 Log.e(TAG, "Erreur lors du chargement des photos", e);
                 callback.onError("Erreur: " + e.getMessage());
             });
     }
 
+    /**
+     * Récupère une page du flux de découverte, triée par date côté serveur.
+     * Passer le curseur renvoyé par la page précédente (null pour la première page).
+     * La première page est d'abord livrée depuis le cache local s'il en contient une,
+     * puis depuis le serveur : onSuccess peut alors être appelé deux fois (fromCache vrai, puis faux).
+     */
+    public void getDiscoverFeedPage(int pageSize, DocumentSnapshot cursor, PhotoPageCallback callback) {
+        Query query = db.collection(COLLECTION_PHOTOS)
+            .whereEqualTo("isPublic", true)
+            .orderBy("createdAt", Query.Direction.DESCENDING);
+
+        // Un document de plus que la page pour savoir s'il en reste
+        if (cursor == null) {
+            LocalFirst.query(query.limit(pageSize + 1), new LocalFirst.QueryListener() {
+                @Override
+                public void onResult(QuerySnapshot snapshot, boolean fromCache) {
+                    background.execute(() -> deliverFeedPage(snapshot, pageSize, null, fromCache, callback));
+                }
+
+                @Override
+                public void onError(Exception e) {
+                    Log.e(TAG, "Erreur lors du chargement du flux", e);
+                    callback.onError("Erreur: " + e.getMessage());
+                }
+            });
+            return;
+        }
+
+        query.startAfter(cursor)
+            .limit(pageSize + 1)
+            .get()
+            .addOnSuccessListener(background, querySnapshot -> deliverFeedPage(querySnapshot, pageSize, cursor, false, callback))
+            .addOnFailureListener(e -> {
+                Log.e(TAG, "Erreur lors du chargement du flux", e);
+                callback.onError("Erreur: " + e.getMessage());
+            });
+    }
+
+    private void deliverFeedPage(QuerySnapshot querySnapshot, int pageSize, DocumentSnapshot cursor,
+                                 boolean fromCache, PhotoPageCallback callback) {
+        List<DocumentSnapshot> docs = querySnapshot.getDocuments();
+        boolean hasMore = docs.size() > pageSize;
+        if (hasMore) {
+            docs = docs.subList(0, pageSize);
+        }
+
+        List<Photo> photos = toPhotos(docs);
+        rememberLocations(photos);
+
+        DocumentSnapshot lastVisible = docs.isEmpty() ? cursor : docs.get(docs.size() - 1);
+        // Compteurs du document, corrigés par les totaux déjà connus : aucune lecture par carte
+        applyKnownPhotoState(photos);
+        if (fromCache) {
+            // Affichage immédiat, sans attendre le réseau
+            deliverPage(photos, lastVisible, hasMore, true, callback);
+        } else {
+            resolveLikeStates(photos, () -> deliverPage(photos, lastVisible, hasMore, false, callback));
+        }
+    }
+
+    /**
+     * Convertit des documents en photos et les dépose dans le cache partagé (thread de fond)
+     */
+    private List<Photo> toPhotos(List<DocumentSnapshot> docs) {
+        AppExecutors.noteIfMainThread("PhotoService.toPhotos: " + docs.size() + " documents");
+        photoRepository.putAll(docs);
+        return PhotoCodec.decodeAll(docs);
+    }
+
+    /**
+     * Livre une liste de photos sur le thread principal, non modifiable
+     */
+    private void deliver(List<Photo> photos, PhotoCallback callback) {
+        List<Photo> result = Collections.unmodifiableList(photos);
+        mainThread.execute(() -> callback.onSuccess(result));
+    }
+
+    private void deliverPage(List<Photo> photos, DocumentSnapshot lastVisible, boolean hasMore,
+                             boolean fromCache, PhotoPageCallback callback) {
+        List<Photo> result = Collections.unmodifiableList(photos);
+        mainThread.execute(() -> callback.onSuccess(result, lastVisible, hasMore, fromCache));
+    }
+
     /**
      * Filtre les photos par type de lieu
      */
@@ -84,15 +352,8 @@ public class PhotoService {
             .whereEqualTo("photoType", type.name())
             .whereEqualTo("isPublic", true)
             .get()
-            .addOnSuccessListener(querySnapshot -> {
-                List<Photo> photos = new ArrayList<>();
-                for (DocumentSnapshot doc : querySnapshot.getDocuments()) {
-                    Photo photo = doc.toObject(Photo.class);
-                    if (photo != null) {
-                        photo.setId(doc.getId());
-                        photos.add(photo);
-                    }
-                }
+            .addOnSuccessListener(background, querySnapshot -> {
+                List<Photo> photos = toPhotos(querySnapshot.getDocuments());
 
                 // Trier localement par date
                 photos.sort((p1, p2) -> {
@@ -101,7 +362,7 @@ public class PhotoService {
                     return p2.getUploadDate().compareTo(p1.getUploadDate());
                 });
 
-                callback.onSuccess(photos);
+                deliver(photos, callback);
             })
             .addOnFailureListener(e -> {
                 Log.e(TAG, "Erreur lors du filtrage des photos", e);
@@ -110,91 +371,348 @@ public class PhotoService {
     }
 
     /**
-     * Récupère les photos d'un auteur
+     * Récupère une page des photos d'un auteur, les plus récentes d'abord
+     * (index composite authorId + createdAt décroissant).
+     * Passer le curseur renvoyé par la page précédente (null pour la première page) ;
+     * la première page est d'abord livrée depuis le cache local, puis depuis le serveur.
      */
-    public void getPhotosByAuthor(String authorId, PhotoCallback callback) {
-        db.collection(COLLECTION_PHOTOS)
+    public void getPhotosByAuthor(String authorId, int pageSize, DocumentSnapshot cursor, PhotoPageCallback callback) {
+        Query query = db.collection(COLLECTION_PHOTOS)
             .whereEqualTo("authorId", authorId)
+            .orderBy("createdAt", Query.Direction.DESCENDING);
+
+        if (cursor == null) {
+            LocalFirst.query(query.limit(pageSize + 1), new LocalFirst.QueryListener() {
+                @Override
+                public void onResult(QuerySnapshot snapshot, boolean fromCache) {
+                    background.execute(() -> deliverAuthorPage(snapshot, pageSize, null, fromCache, callback));
+                }
+
+                @Override
+                public void onError(Exception e) {
+                    Log.e(TAG, "Erreur lors du chargement des photos de l'auteur", e);
+                    callback.onError("Erreur: " + e.getMessage());
+                }
+            });
+            return;
+        }
+
+        query.startAfter(cursor)
+            .limit(pageSize + 1)
             .get()
-            .addOnSuccessListener(querySnapshot -> {
-                List<Photo> photos = new ArrayList<>();
-                for (DocumentSnapshot doc : querySnapshot.getDocuments()) {
-                    Photo photo = doc.toObject(Photo.class);
-                    if (photo != null) {
-                        photo.setId(doc.getId());
-                        photos.add(photo);
-                    }
+            .addOnSuccessListener(background, querySnapshot -> deliverAuthorPage(querySnapshot, pageSize, cursor, false, callback))
+            .addOnFailureListener(e -> {
+                Log.e(TAG, "Erreur lors du chargement des photos de l'auteur", e);
+                callback.onError("Erreur: " + e.getMessage());
+            });
+    }
+
+    private void deliverAuthorPage(QuerySnapshot querySnapshot, int pageSize, DocumentSnapshot cursor,
+                                   boolean fromCache, PhotoPageCallback callback) {
+        List<DocumentSnapshot> docs = querySnapshot.getDocuments();
+        boolean hasMore = docs.size() > pageSize;
+        if (hasMore) {
+            docs = docs.subList(0, pageSize);
+        }
+        DocumentSnapshot lastVisible = docs.isEmpty() ? cursor : docs.get(docs.size() - 1);
+        deliverPage(toPhotos(docs), lastVisible, hasMore, fromCache, callback);
+    }
+
+    /**
+     * Nombre de photos d'un auteur, lu sur users/{id}.photosCount.
+     * Pour un profil antérieur au compteur, il est calculé une fois par count() puis enregistré.
+     */
+    public void getAuthorPhotoCount(String authorId, PhotoCountCallback callback) {
+        getAuthorPhotoCount(authorId, null, callback);
+    }
+
+    private void getAuthorPhotoCount(String authorId, CancellationToken token, PhotoCountCallback callback) {
+        authorRef(authorId)
+            .get()
+            .addOnSuccessListener(userDoc -> {
+                Long count = userDoc.getLong(FIELD_PHOTOS_COUNT);
+                if (count != null) {
+                    callback.onSuccess(Math.max(0, count));
+                    return;
                 }
+                // Écran quitté : ne pas lancer le comptage ni l'écriture qui suit
+                if (token != null && token.isCancellationRequested()) return;
+
+                db.collection(COLLECTION_PHOTOS)
+                    .whereEqualTo("authorId", authorId)
+                    .count()
+                    .get(AggregateSource.SERVER)
+                    .addOnSuccessListener(snapshot -> {
+                        long total = snapshot.getCount();
+                        authorRef(authorId).set(Collections.singletonMap(FIELD_PHOTOS_COUNT, total), SetOptions.merge());
+                        callback.onSuccess(total);
+                    })
+                    .addOnFailureListener(e -> {
+                        Log.e(TAG, "Erreur lors du comptage des photos de l'auteur", e);
+                        callback.onError("Erreur: " + e.getMessage());
+                    });
+            })
+            .addOnFailureListener(e -> {
+                Log.e(TAG, "Erreur lors du chargement du compteur de photos", e);
+                callback.onError("Erreur: " + e.getMessage());
+            });
+    }
 
-                // Trier localement par date
+    private DocumentReference authorRef(String authorId) {
+        return db.collection(COLLECTION_USERS).document(authorId);
+    }
+
+    /**
+     * Récupère une page du fil d'un groupe (groups/{id}/feed), les plus récentes d'abord.
+     * Les photos renvoyées sont des résumés (images, auteur, description, date).
+     * Passer le curseur renvoyé par la page précédente (null pour la première page) ;
+     * la première page est d'abord livrée depuis le cache local, puis depuis le serveur.
+     */
+    public void getGroupFeedPage(String groupId, int pageSize, DocumentSnapshot cursor, PhotoPageCallback callback) {
+        Query query = groupFeed.query(groupId);
+
+        if (cursor == null) {
+            LocalFirst.query(query.limit(pageSize + 1), new LocalFirst.QueryListener() {
+                @Override
+                public void onResult(QuerySnapshot snapshot, boolean fromCache) {
+                    background.execute(() -> deliverGroupFeedPage(snapshot, pageSize, null, fromCache, callback));
+                }
+
+                @Override
+                public void onError(Exception e) {
+                    Log.e(TAG, "Erreur lors du chargement du fil du groupe", e);
+                    callback.onError("Erreur: " + e.getMessage());
+                }
+            });
+            return;
+        }
+
+        query.startAfter(cursor)
+            .limit(pageSize + 1)
+            .get()
+            .addOnSuccessListener(background, querySnapshot -> deliverGroupFeedPage(querySnapshot, pageSize, cursor, false, callback))
+            .addOnFailureListener(e -> {
+                Log.e(TAG, "Erreur lors du chargement du fil du groupe", e);
+                callback.onError("Erreur: " + e.getMessage());
+            });
+    }
+
+    private void deliverGroupFeedPage(QuerySnapshot querySnapshot, int pageSize, DocumentSnapshot cursor,
+                                      boolean fromCache, PhotoPageCallback callback) {
+        List<DocumentSnapshot> docs = querySnapshot.getDocuments();
+        boolean hasMore = docs.size() > pageSize;
+        if (hasMore) {
+            docs = docs.subList(0, pageSize);
+        }
+
+        List<Photo> photos = new ArrayList<>();
+        for (DocumentSnapshot doc : docs) {
+            Photo photo = GroupFeed.fromEntry(doc);
+            if (photo != null) {
+                photos.add(photo);
+            }
+        }
+
+        DocumentSnapshot lastVisible = docs.isEmpty() ? cursor : docs.get(docs.size() - 1);
+        deliverPage(photos, lastVisible, hasMore, fromCache, callback);
+    }
+
+    /**
+     * Recherche des photos par localisation (ville ou pays).
+     * Utilise l'index "searchTokens" (préfixes normalisés écrits à la publication)
+     * pour une requête indexée au nombre de résultats borné.
+     */
+    public void searchPhotosByLocation(String query, PhotoCallback callback) {
+        String token = SearchTokenizer.queryToken(query);
+        if (token.isEmpty()) {
+            callback.onSuccess(new ArrayList<>());
+            return;
+        }
+
+        db.collection(COLLECTION_PHOTOS)
+            .whereEqualTo("isPublic", true)
+            .whereArrayContains("searchTokens", token)
+            .limit(SEARCH_RESULTS_LIMIT)
+            .get()
+            .addOnSuccessListener(background, querySnapshot -> {
+                List<Photo> photos = toPhotos(querySnapshot.getDocuments());
+                rememberLocations(photos);
+
+                // Trier par date
                 photos.sort((p1, p2) -> {
                     if (p1.getUploadDate() == null) return 1;
                     if (p2.getUploadDate() == null) return -1;
                     return p2.getUploadDate().compareTo(p1.getUploadDate());
                 });
 
-                callback.onSuccess(photos);
+                deliver(photos, callback);
             })
             .addOnFailureListener(e -> {
-                Log.e(TAG, "Erreur lors du chargement des photos de l'auteur", e);
+                Log.e(TAG, "Erreur lors de la recherche par localisation", e);
                 callback.onError("Erreur: " + e.getMessage());
             });
     }
 
     /**
-     * Recherche des photos par localisation (ville ou pays)
+     * Suggestions de villes/pays déjà rencontrés, pour l'autocomplétion (sans requête réseau)
      */
-    public void searchPhotosByLocation(String query, PhotoCallback callback) {
-        db.collection(COLLECTION_PHOTOS)
-            .whereEqualTo("isPublic", true)
-            .get()
+    public List<String> suggestLocations(String prefix, int max) {
+        synchronized (locationTrie) {
+            return locationTrie.suggest(prefix, max);
+        }
+    }
+
+    /**
+     * Alimente le trie d'autocomplétion avec les lieux des photos chargées
+     */
+    private void rememberLocations(List<Photo> photos) {
+        synchronized (locationTrie) {
+            for (Photo photo : photos) {
+                if (photo.getLocation() != null) {
+                    locationTrie.insert(photo.getLocation().getCity());
+                    locationTrie.insert(photo.getLocation().getCountry());
+                }
+            }
+        }
+    }
+
+    /**
+     * Réindexe les photos existantes : écrit "searchTokens" (et "randomKey"/"geohash" s'ils manquent).
+     * Parcourt la collection par pages et met à jour chaque page dans un batch.
+     */
+    public void backfillSearchIndex(BackfillCallback callback) {
+        backfillSearchIndexPage(null, 0, 0, callback);
+    }
+
+    private void backfillSearchIndexPage(DocumentSnapshot cursor, int processed, int updated,
+                                         BackfillCallback callback) {
+        Query query = db.collection(COLLECTION_PHOTOS)
+            .orderBy(FieldPath.documentId())
+            .limit(BACKFILL_PAGE_SIZE);
+        if (cursor != null) {
+            query = query.startAfter(cursor);
+        }
+
+        query.get()
             .addOnSuccessListener(querySnapshot -> {
-                List<Photo> photos = new ArrayList<>();
-                String lowerQuery = query.toLowerCase();
+                List<DocumentSnapshot> docs = querySnapshot.getDocuments();
+                if (docs.isEmpty()) {
+                    Log.d(TAG, "Réindexation terminée: " + updated + " photo(s) mise(s) à jour");
+                    callback.onComplete(updated);
+                    return;
+                }
 
-                for (DocumentSnapshot doc : querySnapshot.getDocuments()) {
-                    Photo photo = doc.toObject(Photo.class);
-                    if (photo != null) {
-                        photo.setId(doc.getId());
-
-                        // Rechercher uniquement dans la ville et le pays
-                        boolean matches = false;
-                        if (photo.getLocation() != null) {
-                            if (photo.getLocation().getCity() != null &&
-                                photo.getLocation().getCity().toLowerCase().contains(lowerQuery)) {
-                                matches = true;
-                            }
-                            if (photo.getLocation().getCountry() != null &&
-                                photo.getLocation().getCountry().toLowerCase().contains(lowerQuery)) {
-                                matches = true;
-                            }
-                        }
+                WriteBatch batch = db.batch();
+                int pageUpdates = 0;
+                for (DocumentSnapshot doc : docs) {
+                    Map<String, Object> updates = new HashMap<>();
+                    updates.put("searchTokens", SearchTokenizer.tokensFor(
+                        doc.getString("location.city"), doc.getString("location.country")));
+                    if (doc.get("randomKey") == null) {
+                        updates.put("randomKey", random.nextDouble());
+                    }
+                    Double latitude = doc.getDouble("location.latitude");
+                    Double longitude = doc.getDouble("location.longitude");
+                    if (doc.get("geohash") == null && latitude != null && longitude != null) {
+                        updates.put("geohash", GeoHash.encode(latitude, longitude, GeoHash.STORED_PRECISION));
+                    }
+                    batch.update(doc.getReference(), updates);
+                    pageUpdates++;
+                }
+
+                final int newUpdated = updated + pageUpdates;
+                final int newProcessed = processed + docs.size();
+                batch.commit()
+                    .addOnSuccessListener(aVoid -> {
+                        callback.onProgress(newProcessed);
+                        backfillSearchIndexPage(docs.get(docs.size() - 1), newProcessed, newUpdated, callback);
+                    })
+                    .addOnFailureListener(e -> {
+                        Log.e(TAG, "Erreur lors de la réindexation", e);
+                        callback.onError("Erreur: " + e.getMessage());
+                    });
+            })
+            .addOnFailureListener(e -> {
+                Log.e(TAG, "Erreur lors de la réindexation", e);
+                callback.onError("Erreur: " + e.getMessage());
+            });
+    }
 
-                        if (matches) {
+    /**
+     * Récupère les photos visibles dans une zone de la carte.
+     * La zone est couverte par quelques cellules geohash, chacune lue par une requête par plage.
+     */
+    public void getPhotosInBounds(LatLngBounds bounds, float zoom, PhotoCallback callback) {
+        List<String> cells = GeoHash.coveringCells(
+            bounds.southwest.latitude, bounds.southwest.longitude,
+            bounds.northeast.latitude, bounds.northeast.longitude,
+            GeoHash.precisionForZoom(zoom), MAP_MAX_CELLS);
+
+        List<Task<QuerySnapshot>> tasks = new ArrayList<>();
+        for (String cell : cells) {
+            tasks.add(geohashCellQuery(cell).get());
+        }
+
+        Tasks.whenAllSuccess(tasks)
+            .addOnSuccessListener(background, results -> {
+                List<Photo> photos = new ArrayList<>();
+                for (Object result : results) {
+                    photoRepository.putAll(((QuerySnapshot) result).getDocuments());
+                    for (DocumentSnapshot doc : ((QuerySnapshot) result).getDocuments()) {
+                        Photo photo = PhotoCodec.decode(doc);
+                        if (photo != null && photo.getLocation() != null && bounds.contains(
+                                new LatLng(photo.getLocation().getLatitude(), photo.getLocation().getLongitude()))) {
                             photos.add(photo);
                         }
                     }
                 }
+                deliver(photos, callback);
+            })
+            .addOnFailureListener(e -> {
+                Log.e(TAG, "Erreur lors du chargement des photos de la zone", e);
+                callback.onError("Erreur: " + e.getMessage());
+            });
+    }
 
-                // Trier par date
-                photos.sort((p1, p2) -> {
-                    if (p1.getUploadDate() == null) return 1;
-                    if (p2.getUploadDate() == null) return -1;
-                    return p2.getUploadDate().compareTo(p1.getUploadDate());
-                });
-
-                callback.onSuccess(photos);
+    /**
+     * Récupère les photos d'une seule cellule geohash (chargement incrémental de la carte)
+     */
+    public void getPhotosInCell(String cell, PhotoCallback callback) {
+        geohashCellQuery(cell)
+            .get()
+            .addOnSuccessListener(background, querySnapshot -> {
+                photoRepository.putAll(querySnapshot.getDocuments());
+                List<Photo> photos = new ArrayList<>();
+                for (DocumentSnapshot doc : querySnapshot.getDocuments()) {
+                    Photo photo = PhotoCodec.decode(doc);
+                    if (photo != null && photo.getLocation() != null) {
+                        photos.add(photo);
+                    }
+                }
+                deliver(photos, callback);
             })
             .addOnFailureListener(e -> {
-                Log.e(TAG, "Erreur lors de la recherche par localisation", e);
+                Log.e(TAG, "Erreur lors du chargement des photos de la cellule " + cell, e);
                 callback.onError("Erreur: " + e.getMessage());
             });
     }
 
+    private Query geohashCellQuery(String cell) {
+        return db.collection(COLLECTION_PHOTOS)
+            .whereEqualTo("isPublic", true)
+            .orderBy("geohash")
+            .startAt(cell)
+            .endAt(cell + "\uf8ff")
+            .limit(MAP_CELL_LIMIT);
+    }
+
     /**
-     * Publie une nouvelle photo
+     * Publie une nouvelle photo.
+     * L'image est réduite et ré-encodée en arrière-plan, puis la publication rejoint la file
+     * d'upload persistante : elle survit à la mise en arrière-plan et aux coupures réseau.
+     * Le callback est appelé quand la photo est enregistrée ou a définitivement échoué.
      */
-    public void publishPhoto(Photo photo, Uri imageUri, PhotoPublishCallback callback) {
+    public void publishPhoto(Context context, Photo photo, Uri imageUri, PhotoPublishCallback callback) {
         if (imageUri == null) {
             callback.onError("Aucune image sélectionnée");
             return;
@@ -207,79 +725,173 @@ public class PhotoService {
         photo.setCreatedAt(new java.util.Date());
         photo.setUpdatedAt(new java.util.Date());
 
-        // Upload de l'image vers Firebase Storage
-        StorageReference photoRef = storage.getReference()
-            .child(STORAGE_PHOTOS)
-            .child(photoId + ".jpg");
-
-        photoRef.putFile(imageUri)
-            .addOnSuccessListener(taskSnapshot -> {
-                // Récupérer l'URL de téléchargement
-                photoRef.getDownloadUrl()
-                    .addOnSuccessListener(uri -> {
-                        photo.setImageUrl(uri.toString());
-                        savePhotoToFirestore(photo, photoId, callback);
-                    })
-                    .addOnFailureListener(e -> {
-                        Log.e(TAG, "Erreur lors de la récupération de l'URL", e);
-                        callback.onError("Erreur: " + e.getMessage());
-                    });
-            })
-            .addOnFailureListener(e -> {
-                Log.e(TAG, "Erreur lors de l'upload de l'image", e);
-                callback.onError("Erreur lors de l'upload: " + e.getMessage());
+        UploadQueue queue = getUploadQueue(context);
+        ImageProcessor processor = new ImageProcessor(context.getApplicationContext().getContentResolver());
+        imageExecutor.execute(() -> {
+            UploadJob job;
+            try {
+                job = createUploadJob(photo, processor.process(imageUri));
+            } catch (IOException | JSONException | OutOfMemoryError e) {
+                Log.e(TAG, "Erreur lors de la préparation de l'image", e);
+                uploadJobStore.delete(new UploadJob(photoId, Collections.emptyList(), "", 0));
+                mainHandler.post(() -> callback.onError("Erreur lors de la préparation de l'image: " + e.getMessage()));
+                return;
+            }
+
+            mainHandler.post(() -> {
+                queue.addListener(new UploadQueue.Listener() {
+                    @Override
+                    public void onJobUpdated(UploadJob updated) {
+                        if (!updated.getId().equals(photoId)) return;
+                        if (updated.getState() == UploadJob.State.DONE) {
+                            queue.removeListener(this);
+                            callback.onSuccess(photoId);
+                        } else if (updated.getState() == UploadJob.State.FAILED) {
+                            queue.removeListener(this);
+                            callback.onError("Erreur lors de l'upload: " + updated.getLastError());
+                        }
+                    }
+                });
+                queue.enqueue(job);
             });
+        });
+    }
+
+    /**
+     * Reprend les publications interrompues ; à appeler au démarrage de l'application
+     */
+    public void resumePendingUploads(Context context) {
+        getUploadQueue(context).restore();
+    }
+
+    /**
+     * Publications en attente (progression via addUploadListener)
+     */
+    public List<UploadJob> getPendingUploads(Context context) {
+        return getUploadQueue(context).getJobs();
+    }
+
+    public void addUploadListener(Context context, UploadQueue.Listener listener) {
+        getUploadQueue(context).addListener(listener);
+    }
+
+    public void removeUploadListener(Context context, UploadQueue.Listener listener) {
+        getUploadQueue(context).removeListener(listener);
+    }
+
+    private synchronized UploadQueue getUploadQueue(Context context) {
+        if (uploadQueue == null) {
+            uploadJobStore = new FileUploadJobStore(
+                new File(context.getApplicationContext().getFilesDir(), UPLOADS_DIRECTORY),
+                AppExecutors.serial(background));
+            uploadQueue = new UploadQueue(uploadJobStore, new FirebaseUploadBackend(storage),
+                new MainThreadScheduler(), this::commitUploadedPhoto, UploadQueue.DEFAULT_MAX_PARALLEL_UPLOADS);
+        }
+        return uploadQueue;
+    }
+
+    /**
+     * Écrit l'image et ses variantes sur disque et décrit leur envoi
+     */
+    private UploadJob createUploadJob(Photo photo, ImageProcessor.ProcessedImage image)
+            throws IOException, JSONException {
+        String photoId = photo.getId();
+        String fileName = photoId + "." + image.getExtension();
+        File dir = uploadJobStore.filesDirFor(photoId);
+
+        // Dimensions enregistrées avec la photo : ImageVariants en déduit celles des variantes
+        photo.setWidth(image.getWidth());
+        photo.setHeight(image.getHeight());
+
+        List<UploadPart> parts = new ArrayList<>();
+        parts.add(writePart(dir, PART_FULL, image.getFullBytes(),
+            STORAGE_PHOTOS + "/" + fileName, image.getMimeType()));
+        parts.add(writePart(dir, PART_MEDIUM, image.getMediumBytes(),
+            STORAGE_PHOTOS + "/" + STORAGE_MEDIUM + "/" + fileName, image.getMimeType()));
+        parts.add(writePart(dir, PART_THUMBNAIL, image.getThumbnailBytes(),
+            STORAGE_PHOTOS + "/" + STORAGE_THUMBNAILS + "/" + fileName, image.getMimeType()));
+
+        return new UploadJob(photoId, parts, PhotoPayload.toJson(photo), System.currentTimeMillis());
+    }
+
+    private static UploadPart writePart(File dir, String name, byte[] bytes, String remotePath, String contentType)
+            throws IOException {
+        File file = new File(dir, name);
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(bytes);
+            out.getFD().sync();
+        }
+        return new UploadPart(name, file.getAbsolutePath(), remotePath, contentType, bytes.length);
+    }
+
+    /**
+     * Enregistre la photo une fois tous ses fichiers stockés (appelé par la file d'upload)
+     */
+    private void commitUploadedPhoto(UploadJob job, UploadQueue.Committer.Callback callback) {
+        Photo photo;
+        try {
+            photo = PhotoPayload.fromJson(job.getPayload());
+        } catch (JSONException | IllegalArgumentException e) {
+            callback.onFailure("Métadonnées illisibles: " + e.getMessage(), false);
+            return;
+        }
+        photo.setImageUrl(job.getPart(PART_FULL).getDownloadUrl());
+        photo.setMediumUrl(job.getPart(PART_MEDIUM).getDownloadUrl());
+        photo.setThumbnailUrl(job.getPart(PART_THUMBNAIL).getDownloadUrl());
+
+        // set() sur un ID fixe : une nouvelle tentative ne crée pas de doublon
+        savePhotoToFirestore(photo, job.getId(), new PhotoPublishCallback() {
+            @Override
+            public void onSuccess(String photoId) {
+                callback.onSuccess();
+            }
+
+            @Override
+            public void onError(String error) {
+                callback.onFailure(error, true);
+            }
+        });
     }
 
     /**
      * Sauvegarde les métadonnées de la photo dans Firestore
      */
     private void savePhotoToFirestore(Photo photo, String photoId, PhotoPublishCallback callback) {
-        Map<String, Object> photoData = new HashMap<>();
-        photoData.put("authorId", photo.getAuthorId());
-        photoData.put("authorName", photo.getAuthorName());
-        photoData.put("imageUrl", photo.getImageUrl());
-        photoData.put("description", photo.getDescription());
-        photoData.put("createdAt", photo.getCreatedAt() != null ? photo.getCreatedAt() : new Date());
-        photoData.put("updatedAt", new Date());
-        photoData.put("takenDate", photo.getTakenDate());
-        photoData.put("period", photo.getPeriod() != null ? photo.getPeriod() : "");
-        photoData.put("isPublic", photo.isPublic());
-        photoData.put("likesCount", 0); // Initialiser à 0
-        photoData.put("commentsCount", 0); // Initialiser à 0
-        photoData.put("reportsCount", 0); // Initialiser à 0
-
-        // Tags
-        photoData.put("tags", photo.getTags() != null ? photo.getTags() : new ArrayList<>());
-
-        // Groupes partagés
-        photoData.put("sharedWithGroupIds", photo.getSharedWithGroupIds() != null ? photo.getSharedWithGroupIds() : new ArrayList<>());
-
-        // Instructions
-        photoData.put("howToGetThere", photo.getHowToGetThere() != null ? photo.getHowToGetThere() : "");
-
-        // Type de photo
-        if (photo.getPhotoType() != null) {
-            photoData.put("photoType", photo.getPhotoType().name());
+        // Champs du modèle (valeurs par défaut dans PhotoCodec), puis champs d'index
+        Map<String, Object> photoData = PhotoCodec.encode(photo);
+        photoData.put("randomKey", random.nextDouble()); // Clé d'échantillonnage aléatoire
+
+        if (photo.getLocation() != null) {
+            // Index spatial pour la carte
+            photoData.put("geohash", GeoHash.encode(photo.getLocation().getLatitude(),
+                photo.getLocation().getLongitude(), GeoHash.STORED_PRECISION));
+
+            // Index de recherche par lieu
+            photoData.put("searchTokens", SearchTokenizer.tokensFor(
+                photo.getLocation().getCity(), photo.getLocation().getCountry()));
         } else {
-            photoData.put("photoType", "AUTRE");
+            photoData.put("searchTokens", new ArrayList<>());
         }
 
-        // Localisation complète
-        if (photo.getLocation() != null) {
-            Map<String, Object> locationData = new HashMap<>();
-            locationData.put("latitude", photo.getLocation().getLatitude());
-            locationData.put("longitude", photo.getLocation().getLongitude());
-            locationData.put("address", photo.getLocation().getAddress() != null ? photo.getLocation().getAddress() : "");
-            locationData.put("city", photo.getLocation().getCity() != null ? photo.getLocation().getCity() : "");
-            locationData.put("country", photo.getLocation().getCountry() != null ? photo.getLocation().getCountry() : "");
-            locationData.put("isExact", photo.getLocation().isExact());
-            locationData.put("approximationRadius", photo.getLocation().getApproximationRadius());
-            photoData.put("location", locationData);
-        }
-
-        db.collection(COLLECTION_PHOTOS).document(photoId)
-            .set(photoData)
+        // Photo, entrées des fils de groupes et compteur de l'auteur dans une transaction.
+        // Une nouvelle tentative de la file d'upload après un enregistrement réussi ne réécrit
+        // rien : likes, partages et compteurs reçus depuis ne sont pas écrasés par le modèle local.
+        photo.setId(photoId);
+        DocumentReference photoRef = db.collection(COLLECTION_PHOTOS).document(photoId);
+        db.runTransaction(transaction -> {
+                if (transaction.get(photoRef).exists()) {
+                    return null;
+                }
+                transaction.set(photoRef, photoData);
+                if (photo.getSharedWithGroupIds() != null) {
+                    groupFeed.addEntries(transaction, photo, photo.getSharedWithGroupIds());
+                }
+                if (photo.getAuthorId() != null) {
+                    transaction.set(authorRef(photo.getAuthorId()),
+                        Collections.singletonMap(FIELD_PHOTOS_COUNT, FieldValue.increment(1)), SetOptions.merge());
+                }
+                return null;
+            })
             .addOnSuccessListener(aVoid -> {
                 Log.d(TAG, "Photo publiée avec succès: " + photoId);
                 callback.onSuccess(photoId);
@@ -291,9 +903,81 @@ public class PhotoService {
     }
 
     /**
-     * Ajoute un like à une photo
+     * Inverse le like de l'utilisateur sur une photo, avec mise à jour optimiste.
+     * Les appuis rapprochés sont regroupés : seul l'état final est écrit après
+     * LIKE_DEBOUNCE_MS, et rien n'est écrit s'il est identique à l'état enregistré.
      */
-    public void likePhoto(String photoId, LikeCallback callback) {
+    public void toggleLike(Photo photo, LikeCallback callback) {
+        if (!AuthService.getInstance().isUserLoggedIn()) {
+            callback.onError("Vous devez être connecté pour liker une photo");
+            return;
+        }
+
+        String photoId = photo.getId();
+        boolean liked = !photo.isLikedByCurrentUser();
+        if (!committedLikeStates.containsKey(photoId)) {
+            committedLikeStates.put(photoId, photo.isLikedByCurrentUser());
+        }
+
+        // Mise à jour locale immédiate
+        photo.setLikedByCurrentUser(liked);
+        photo.setLikesCount(photo.getLikesCount() + (liked ? 1 : -1));
+
+        Runnable previous = pendingLikeWrites.remove(photoId);
+        if (previous != null) {
+            mainHandler.removeCallbacks(previous);
+        }
+        Runnable write = () -> {
+            pendingLikeWrites.remove(photoId);
+            commitLikeState(photo, callback);
+        };
+        pendingLikeWrites.put(photoId, write);
+        mainHandler.postDelayed(write, LIKE_DEBOUNCE_MS);
+    }
+
+    /**
+     * Écrit l'état final d'une série d'appuis, ou l'annule localement en cas d'échec
+     */
+    private void commitLikeState(Photo photo, LikeCallback callback) {
+        String photoId = photo.getId();
+        boolean desired = photo.isLikedByCurrentUser();
+        Boolean committed = committedLikeStates.get(photoId);
+        if (committed != null && committed == desired) {
+            callback.onSuccess();
+            return;
+        }
+
+        LikeCallback writeCallback = new LikeCallback() {
+            @Override
+            public void onSuccess() {
+                committedLikeStates.put(photoId, desired);
+                callback.onSuccess();
+            }
+
+            @Override
+            public void onError(String error) {
+                // Revenir à l'état enregistré, sauf si l'utilisateur a de nouveau appuyé entre-temps
+                if (!pendingLikeWrites.containsKey(photoId) && photo.isLikedByCurrentUser() == desired) {
+                    photo.setLikedByCurrentUser(!desired);
+                    photo.setLikesCount(photo.getLikesCount() + (desired ? -1 : 1));
+                }
+                callback.onError(error);
+            }
+        };
+
+        if (desired) {
+            likePhoto(photoId, photo.getAuthorId(), writeCallback);
+        } else {
+            unlikePhoto(photoId, writeCallback);
+        }
+    }
+
+    /**
+     * Ajoute un like à une photo.
+     * Le marqueur likes/{photoId_userId}, un shard du compteur et la notification sont écrits
+     * dans une seule transaction ; un like déjà présent n'est pas recompté.
+     */
+    public void likePhoto(String photoId, String photoAuthorId, LikeCallback callback) {
         String currentUserId = AuthService.getInstance().getCurrentUser() != null ?
             AuthService.getInstance().getCurrentUser().getId() : null;
 
@@ -302,78 +986,98 @@ public class PhotoService {
             return;
         }
 
-        // D'abord récupérer les infos de la photo pour créer la notification
-        db.collection(COLLECTION_PHOTOS).document(photoId)
-            .get()
-            .addOnSuccessListener(photoDoc -> {
-                if (photoDoc.exists()) {
-                    String photoAuthorId = photoDoc.getString("authorId");
+        DocumentReference likeRef = db.collection(COLLECTION_LIKES).document(likeDocumentId(photoId, currentUserId));
+        Map<String, Object> notificationData = buildLikeNotification(photoId, photoAuthorId);
 
-                    // Incrémenter le compteur de likes et sauvegarder le dernier utilisateur qui a liké
-                    Map<String, Object> updates = new HashMap<>();
-                    updates.put("likesCount", FieldValue.increment(1));
-                    updates.put("lastLikerId", currentUserId);
-
-                    db.collection(COLLECTION_PHOTOS).document(photoId)
-                        .update(updates)
-                        .addOnSuccessListener(aVoid -> {
-                            Log.d(TAG, "Like ajouté à la photo: " + photoId);
-
-                            // Créer une notification pour l'auteur de la photo
-                            if (photoAuthorId != null) {
-                                createLikeNotification(photoId, photoAuthorId);
-                            }
-
-                            callback.onSuccess();
-                        })
-                        .addOnFailureListener(e -> {
-                            Log.e(TAG, "Erreur lors de l'ajout du like", e);
-                            callback.onError("Erreur: " + e.getMessage());
-                        });
+        db.runTransaction(transaction -> {
+                if (transaction.get(likeRef).exists()) {
+                    // Déjà aimé : rien à écrire
+                    return false;
                 }
+
+                Map<String, Object> likeData = new HashMap<>();
+                likeData.put("photoId", photoId);
+                likeData.put("userId", currentUserId);
+                likeData.put("createdAt", new Date());
+                transaction.set(likeRef, likeData);
+
+                // Incrémenter un shard du compteur de likes (pas d'écriture sur le document de la photo)
+                counters.increment(transaction, photoId, ShardedCounter.LIKES, 1);
+
+                // Notification pour l'auteur de la photo
+                if (notificationData != null) {
+                    transaction.set(db.collection(COLLECTION_NOTIFICATIONS).document(), notificationData);
+                }
+                return true;
+            })
+            .addOnSuccessListener(written -> {
+                Log.d(TAG, written ? "Like ajouté à la photo: " + photoId : "Photo déjà aimée: " + photoId);
+                if (written) {
+                    counters.onCommitted(photoId, ShardedCounter.LIKES, 1);
+                }
+                likeStateCache.put(photoId, true);
+                callback.onSuccess();
             })
             .addOnFailureListener(e -> {
-                Log.e(TAG, "Erreur lors de la récupération de la photo", e);
+                Log.e(TAG, "Erreur lors de l'ajout du like", e);
                 callback.onError("Erreur: " + e.getMessage());
             });
     }
 
     /**
-     * Crée une notification de like
+     * Prépare la notification de like, ou null si elle n'a pas lieu d'être
      */
-    private void createLikeNotification(String photoId, String photoAuthorId) {
-        // Récupérer l'utilisateur courant via AuthService
-        com.example.travelshare.services.AuthService authService =
-            com.example.travelshare.services.AuthService.getInstance();
-
-        if (authService.getCurrentUser() != null &&
-            !authService.getCurrentUser().isAnonymous() &&
-            !authService.getCurrentUser().getId().equals(photoAuthorId)) {
-            Map<String, Object> notificationData = new HashMap<>();
-            notificationData.put("userId", photoAuthorId);
-            notificationData.put("type", "NEW_LIKE");
-            notificationData.put("title", "Nouveau j'aime");
-            notificationData.put("message", authService.getCurrentUser().getUsername() + " a aimé votre photo");
-            notificationData.put("relatedPhotoId", photoId);
-            notificationData.put("relatedUserId", authService.getCurrentUser().getId());
-            notificationData.put("read", false);
-            notificationData.put("createdAt", new java.util.Date());
+    private Map<String, Object> buildLikeNotification(String photoId, String photoAuthorId) {
+        AuthService authService = AuthService.getInstance();
 
-            db.collection("notifications")
-                .add(notificationData)
-                .addOnSuccessListener(docRef -> Log.d(TAG, "Notification de like créée"))
-                .addOnFailureListener(e -> Log.e(TAG, "Erreur création notification", e));
+        if (photoAuthorId == null ||
+            authService.getCurrentUser() == null ||
+            authService.getCurrentUser().isAnonymous() ||
+            authService.getCurrentUser().getId().equals(photoAuthorId)) {
+            return null;
         }
+
+        Map<String, Object> notificationData = new HashMap<>();
+        notificationData.put("userId", photoAuthorId);
+        notificationData.put("type", "NEW_LIKE");
+        notificationData.put("title", "Nouveau j'aime");
+        notificationData.put("message", authService.getCurrentUser().getUsername() + " a aimé votre photo");
+        notificationData.put("relatedPhotoId", photoId);
+        notificationData.put("relatedUserId", authService.getCurrentUser().getId());
+        notificationData.put("read", false);
+        // Heure du serveur : le badge des non-lues s'ancre sur cet ordre, pas sur l'horloge de l'émetteur
+        notificationData.put("createdAt", FieldValue.serverTimestamp());
+        return notificationData;
     }
 
     /**
-     * Retire un like d'une photo
+     * Retire un like d'une photo (sans effet si l'utilisateur ne l'avait pas aimée)
      */
     public void unlikePhoto(String photoId, LikeCallback callback) {
-        db.collection(COLLECTION_PHOTOS).document(photoId)
-            .update("likesCount", FieldValue.increment(-1))
-            .addOnSuccessListener(aVoid -> {
+        String currentUserId = AuthService.getInstance().getCurrentUser() != null ?
+            AuthService.getInstance().getCurrentUser().getId() : null;
+
+        if (currentUserId == null) {
+            callback.onError("Vous devez être connecté pour retirer un like");
+            return;
+        }
+
+        DocumentReference likeRef = db.collection(COLLECTION_LIKES).document(likeDocumentId(photoId, currentUserId));
+
+        db.runTransaction(transaction -> {
+                if (!transaction.get(likeRef).exists()) {
+                    return false;
+                }
+                transaction.delete(likeRef);
+                counters.increment(transaction, photoId, ShardedCounter.LIKES, -1);
+                return true;
+            })
+            .addOnSuccessListener(written -> {
                 Log.d(TAG, "Like retiré de la photo: " + photoId);
+                if (written) {
+                    counters.onCommitted(photoId, ShardedCounter.LIKES, -1);
+                }
+                likeStateCache.put(photoId, false);
                 callback.onSuccess();
             })
             .addOnFailureListener(e -> {
@@ -382,6 +1086,157 @@ public class PhotoService {
             });
     }
 
+    /**
+     * Complète une photo affichée seule (détail) : état "aimé" et compteurs complets (shards compris), en parallèle.
+     * Les listes s'en tiennent aux compteurs du document (resolveLikeStates seulement).
+     * onResolved peut être appelé sur un thread de fond.
+     */
+    private void resolvePhotoState(List<Photo> photos, Runnable onResolved) {
+        AtomicInteger remaining = new AtomicInteger(2);
+        Runnable onPartDone = () -> {
+            if (remaining.decrementAndGet() == 0) {
+                onResolved.run();
+            }
+        };
+        resolveLikeStates(photos, onPartDone);
+        resolveCounters(photos, onPartDone);
+    }
+
+    /**
+     * Applique sans requête les états déjà en mémoire (j'aime, totaux des compteurs)
+     */
+    private void applyKnownPhotoState(List<Photo> photos) {
+        AuthService authService = AuthService.getInstance();
+        boolean likeStatesValid = authService.isUserLoggedIn()
+            && authService.getCurrentUser().getId().equals(likeStateUserId);
+        for (Photo photo : photos) {
+            Boolean liked = likeStatesValid ? likeStateCache.get(photo.getId()) : null;
+            if (liked != null) {
+                photo.setLikedByCurrentUser(liked);
+            }
+            Long likes = counters.getCachedTotal(photo.getId(), ShardedCounter.LIKES);
+            if (likes != null) {
+                photo.setLikesCount(likes.intValue());
+            }
+            Long comments = counters.getCachedTotal(photo.getId(), ShardedCounter.COMMENTS);
+            if (comments != null) {
+                photo.setCommentsCount(comments.intValue());
+            }
+        }
+    }
+
+    /**
+     * Remplace les compteurs du document (reportés périodiquement) par les totaux shards compris
+     */
+    private void resolveCounters(List<Photo> photos, Runnable onResolved) {
+        if (photos.isEmpty()) {
+            onResolved.run();
+            return;
+        }
+
+        AtomicInteger remaining = new AtomicInteger(photos.size());
+        List<String> fields = Arrays.asList(ShardedCounter.LIKES, ShardedCounter.COMMENTS);
+        for (Photo photo : photos) {
+            counters.getTotals(photo.getId(), fields, new ShardedCounter.TotalsCallback() {
+                @Override
+                public void onSuccess(Map<String, Long> totals) {
+                    photo.setLikesCount(totals.get(ShardedCounter.LIKES).intValue());
+                    photo.setCommentsCount(totals.get(ShardedCounter.COMMENTS).intValue());
+                    if (remaining.decrementAndGet() == 0) {
+                        onResolved.run();
+                    }
+                }
+
+                @Override
+                public void onError(String error) {
+                    // Garder la valeur du document
+                    if (remaining.decrementAndGet() == 0) {
+                        onResolved.run();
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Renseigne isLikedByCurrentUser sur une liste de photos.
+     * Les états déjà connus viennent du cache ; les autres sont lus en une requête
+     * whereIn par tranche de 10 photos (likes/{photoId_userId}).
+     * onResolved peut être appelé sur un thread de fond.
+     */
+    private void resolveLikeStates(List<Photo> photos, Runnable onResolved) {
+        AuthService authService = AuthService.getInstance();
+        if (!authService.isUserLoggedIn()) {
+            onResolved.run();
+            return;
+        }
+
+        String userId = authService.getCurrentUser().getId();
+        synchronized (likeStateCache) {
+            // Le cache ne vaut que pour l'utilisateur qui l'a rempli
+            if (!userId.equals(likeStateUserId)) {
+                likeStateCache.clear();
+                committedLikeStates.clear();
+                likeStateUserId = userId;
+            }
+        }
+
+        List<String> unknownIds = new ArrayList<>();
+        for (Photo photo : photos) {
+            Boolean liked = likeStateCache.get(photo.getId());
+            if (liked != null) {
+                photo.setLikedByCurrentUser(liked);
+            } else {
+                unknownIds.add(photo.getId());
+            }
+        }
+
+        if (unknownIds.isEmpty()) {
+            onResolved.run();
+            return;
+        }
+
+        List<Task<QuerySnapshot>> tasks = new ArrayList<>();
+        for (int i = 0; i < unknownIds.size(); i += WHERE_IN_LIMIT) {
+            List<String> chunk = unknownIds.subList(i, Math.min(i + WHERE_IN_LIMIT, unknownIds.size()));
+            tasks.add(db.collection(COLLECTION_LIKES)
+                .whereEqualTo("userId", userId)
+                .whereIn("photoId", new ArrayList<>(chunk))
+                .get());
+        }
+
+        Set<String> unknown = new HashSet<>(unknownIds);
+        Tasks.whenAllComplete(tasks)
+            .addOnCompleteListener(background, allDone -> {
+                boolean allSucceeded = true;
+                Set<String> likedIds = new HashSet<>();
+                for (Task<QuerySnapshot> task : tasks) {
+                    if (!task.isSuccessful() || task.getResult() == null) {
+                        allSucceeded = false;
+                        continue;
+                    }
+                    for (DocumentSnapshot doc : task.getResult().getDocuments()) {
+                        likedIds.add(doc.getString("photoId"));
+                    }
+                }
+
+                for (Photo photo : photos) {
+                    if (!unknown.contains(photo.getId())) continue;
+                    boolean liked = likedIds.contains(photo.getId());
+                    photo.setLikedByCurrentUser(liked);
+                    // Ne pas mettre en cache un "non aimé" issu d'une lecture en échec
+                    if (liked || allSucceeded) {
+                        likeStateCache.put(photo.getId(), liked);
+                    }
+                }
+                onResolved.run();
+            });
+    }
+
+    private static String likeDocumentId(String photoId, String userId) {
+        return photoId + "_" + userId;
+    }
+
     /**
      * Signale une photo
      */
@@ -405,34 +1260,28 @@ public class PhotoService {
     }
 
     /**
-     * Obtient les détails d'une photo
+     * Obtient les détails d'une photo (sans relecture si elle vient d'être affichée)
      */
     public void getPhotoDetails(String photoId, SinglePhotoCallback callback) {
-        db.collection(COLLECTION_PHOTOS).document(photoId)
-            .get()
-            .addOnSuccessListener(documentSnapshot -> {
-                if (documentSnapshot.exists()) {
-                    Photo photo = documentSnapshot.toObject(Photo.class);
-                    if (photo != null) {
-                        photo.setId(documentSnapshot.getId());
-                        callback.onSuccess(photo);
-                    } else {
-                        callback.onError("Photo non trouvée");
-                    }
-                } else {
-                    callback.onError("Photo non trouvée");
-                }
-            })
-            .addOnFailureListener(e -> {
-                Log.e(TAG, "Erreur lors du chargement des détails", e);
-                callback.onError("Erreur: " + e.getMessage());
-            });
+        photoRepository.getPhoto(photoId, new PhotoRepository.PhotoCallback() {
+            @Override
+            public void onSuccess(Photo photo) {
+                resolvePhotoState(Collections.singletonList(photo),
+                    () -> mainThread.execute(() -> callback.onSuccess(photo)));
+            }
+
+            @Override
+            public void onError(String error) {
+                callback.onError(error);
+            }
+        });
     }
 
     /**
-     * Supprime une photo (uniquement par l'auteur)
+     * Supprime une photo (uniquement par l'auteur) avec tout ce qui en dépend.
+     * Une suppression commencée puis interrompue est reprise là où elle s'était arrêtée.
      */
-    public void deletePhoto(String photoId, DeletePhotoCallback callback) {
+    public void deletePhoto(Context context, String photoId, DeletePhotoCallback callback) {
         AuthService authService = AuthService.getInstance();
         String currentUserId = authService.getCurrentUser() != null ?
             authService.getCurrentUser().getId() : null;
@@ -442,188 +1291,295 @@ public class PhotoService {
             return;
         }
 
-        // Récupérer la photo pour vérifier l'auteur et obtenir l'URL de l'image
-        db.collection(COLLECTION_PHOTOS).document(photoId)
-            .get()
-            .addOnSuccessListener(documentSnapshot -> {
-                if (!documentSnapshot.exists()) {
-                    callback.onError("Photo non trouvée");
-                    return;
-                }
+        CascadeDelete cascade = getCascadeDelete(context);
+        CascadeDelete.Callback done = new CascadeDelete.Callback() {
+            @Override
+            public void onSuccess() {
+                callback.onSuccess();
+            }
 
-                Photo photo = documentSnapshot.toObject(Photo.class);
-                if (photo == null) {
-                    callback.onError("Erreur lors de la récupération de la photo");
-                    return;
-                }
+            @Override
+            public void onError(String error) {
+                callback.onError(error);
+            }
+        };
+
+        // La photo peut déjà être supprimée si seuls ses dépendants restaient à effacer
+        if (cascade.isPending(photoId)) {
+            cascade.resume(photoId, done);
+            return;
+        }
 
+        // Récupérer la photo pour vérifier l'auteur et obtenir les URLs des images
+        photoRepository.getPhoto(photoId, new PhotoRepository.PhotoCallback() {
+            @Override
+            public void onSuccess(Photo photo) {
                 // Vérifier que l'utilisateur est bien l'auteur
                 if (!currentUserId.equals(photo.getAuthorId())) {
                     callback.onError("Vous ne pouvez supprimer que vos propres photos");
                     return;
                 }
-
-                // Supprimer d'abord l'image du Storage
-                if (photo.getImageUrl() != null && !photo.getImageUrl().isEmpty()) {
-                    StorageReference imageRef = storage.getReferenceFromUrl(photo.getImageUrl());
-                    imageRef.delete()
-                        .addOnSuccessListener(aVoid -> {
-                            Log.d(TAG, "Image supprimée du Storage");
-                            // Ensuite supprimer les métadonnées de Firestore
-                            deletePhotoMetadata(photoId, callback);
-                        })
-                        .addOnFailureListener(e -> {
-                            Log.w(TAG, "Erreur lors de la suppression de l'image: " + e.getMessage());
-                            // Continuer quand même avec la suppression des métadonnées
-                            deletePhotoMetadata(photoId, callback);
-                        });
-                } else {
-                    // Pas d'image, supprimer directement les métadonnées
-                    deletePhotoMetadata(photoId, callback);
-                }
-            })
-            .addOnFailureListener(e -> {
-                Log.e(TAG, "Erreur lors de la vérification de la photo", e);
-                callback.onError("Erreur: " + e.getMessage());
-            });
+                cascade.delete(photo, done);
+            }
+
+            @Override
+            public void onError(String error) {
+                callback.onError(error);
+            }
+        });
     }
 
     /**
-     * Supprime les métadonnées d'une photo de Firestore
+     * Reprend les suppressions interrompues ; à appeler au démarrage de l'application
      */
-    private void deletePhotoMetadata(String photoId, DeletePhotoCallback callback) {
-        db.collection(COLLECTION_PHOTOS).document(photoId)
-            .delete()
-            .addOnSuccessListener(aVoid -> {
-                Log.d(TAG, "Photo supprimée avec succès: " + photoId);
+    public void resumePendingDeletes(Context context) {
+        getCascadeDelete(context).resumeAll();
+    }
 
-                // Supprimer aussi les commentaires associés
-                deletePhotoComments(photoId);
+    public void addDeleteListener(Context context, CascadeDelete.Listener listener) {
+        getCascadeDelete(context).addListener(listener);
+    }
 
-                // Supprimer les notifications liées à cette photo
-                deletePhotoNotifications(photoId);
+    public void removeDeleteListener(Context context, CascadeDelete.Listener listener) {
+        getCascadeDelete(context).removeListener(listener);
+    }
 
-                callback.onSuccess();
-            })
-            .addOnFailureListener(e -> {
-                Log.e(TAG, "Erreur lors de la suppression de la photo", e);
-                callback.onError("Erreur: " + e.getMessage());
-            });
+    private synchronized CascadeDelete getCascadeDelete(Context context) {
+        if (cascadeDelete == null) {
+            cascadeDelete = new CascadeDelete(context, db, storage, groupFeed, counters);
+        }
+        return cascadeDelete;
     }
 
     /**
-     * Supprime les commentaires associés à une photo
+     * Partage une photo existante à un ou plusieurs groupes
      */
-    private void deletePhotoComments(String photoId) {
-        db.collection("comments")
-            .whereEqualTo("photoId", photoId)
-            .get()
-            .addOnSuccessListener(querySnapshot -> {
-                for (DocumentSnapshot doc : querySnapshot.getDocuments()) {
-                    doc.getReference().delete();
-                }
-                Log.d(TAG, "Commentaires supprimés pour la photo: " + photoId);
-            })
-            .addOnFailureListener(e ->
-                Log.w(TAG, "Erreur lors de la suppression des commentaires: " + e.getMessage())
-            );
+    public void sharePhotoToGroups(String photoId, List<String> groupIds, SharePhotoCallback callback) {
+        if (groupIds == null || groupIds.isEmpty()) {
+            callback.onError("Veuillez sélectionner au moins un groupe");
+            return;
+        }
+
+        // Résumé pour les fils de groupes (photo en cache le plus souvent) ;
+        // arrayUnion fusionne sans doublons côté serveur
+        photoRepository.getPhoto(photoId, new PhotoRepository.PhotoCallback() {
+            @Override
+            public void onSuccess(Photo photo) {
+                WriteBatch batch = db.batch();
+                batch.update(db.collection(COLLECTION_PHOTOS).document(photoId),
+                    "sharedWithGroupIds", FieldValue.arrayUnion(groupIds.toArray()), "updatedAt", FieldValue.serverTimestamp());
+                groupFeed.addEntries(batch, photo, groupIds);
+
+                batch.commit()
+                    .addOnSuccessListener(aVoid -> {
+                        photoRepository.invalidate(photoId);
+                        Log.d(TAG, "Photo partagée avec " + groupIds.size() + " groupe(s)");
+                        callback.onSuccess();
+                    })
+                    .addOnFailureListener(e -> {
+                        Log.e(TAG, "Erreur lors du partage de la photo", e);
+                        callback.onError("Erreur: " + e.getMessage());
+                    });
+            }
+
+            @Override
+            public void onError(String error) {
+                callback.onError(error);
+            }
+        });
     }
 
     /**
-     * Supprime les notifications liées à une photo
+     * Retire le partage d'une photo d'un groupe
      */
-    private void deletePhotoNotifications(String photoId) {
-        db.collection("notifications")
-            .whereEqualTo("relatedPhotoId", photoId)
-            .get()
-            .addOnSuccessListener(querySnapshot -> {
-                for (DocumentSnapshot doc : querySnapshot.getDocuments()) {
-                    doc.getReference().delete();
-                }
-                Log.d(TAG, "Notifications supprimées pour la photo: " + photoId);
+    public void unsharePhotoFromGroup(String photoId, String groupId, SharePhotoCallback callback) {
+        WriteBatch batch = db.batch();
+        batch.update(db.collection(COLLECTION_PHOTOS).document(photoId),
+            "sharedWithGroupIds", FieldValue.arrayRemove(groupId), "updatedAt", FieldValue.serverTimestamp());
+        groupFeed.removeEntries(batch, photoId, Collections.singletonList(groupId));
+
+        batch.commit()
+            .addOnSuccessListener(aVoid -> {
+                photoRepository.invalidate(photoId);
+                Log.d(TAG, "Photo retirée du groupe: " + groupId);
+                callback.onSuccess();
             })
-            .addOnFailureListener(e ->
-                Log.w(TAG, "Erreur lors de la suppression des notifications: " + e.getMessage())
-            );
+            .addOnFailureListener(e -> {
+                Log.e(TAG, "Erreur lors du retrait du partage", e);
+                callback.onError("Erreur: " + e.getMessage());
+            });
     }
 
     /**
-     * Partage une photo existante à un ou plusieurs groupes
+     * Reconstruit le fil d'un groupe depuis les photos partagées avec lui :
+     * écrit une entrée par photo, puis supprime les entrées qui ne correspondent plus à un partage.
+     * Pour les groupes créés avant le fil, ou après une incohérence.
      */
-    public void sharePhotoToGroups(String photoId, List<String> groupIds, SharePhotoCallback callback) {
-        if (groupIds == null || groupIds.isEmpty()) {
-            callback.onError("Veuillez sélectionner au moins un groupe");
-            return;
-        }
+    public void rebuildGroupFeed(String groupId, BackfillCallback callback) {
+        rebuildGroupFeedPage(groupId, null, new HashSet<>(), callback);
+    }
 
-        // Récupérer la photo pour vérifier qu'elle existe et obtenir les groupes actuels
-        db.collection(COLLECTION_PHOTOS).document(photoId)
-            .get()
-            .addOnSuccessListener(documentSnapshot -> {
-                if (!documentSnapshot.exists()) {
-                    callback.onError("Photo non trouvée");
-                    return;
-                }
+    private void rebuildGroupFeedPage(String groupId, DocumentSnapshot cursor, Set<String> sharedIds,
+                                      BackfillCallback callback) {
+        Query query = db.collection(COLLECTION_PHOTOS)
+            .whereArrayContains("sharedWithGroupIds", groupId)
+            .orderBy(FieldPath.documentId())
+            .limit(BACKFILL_PAGE_SIZE);
+        if (cursor != null) {
+            query = query.startAfter(cursor);
+        }
 
-                Photo photo = documentSnapshot.toObject(Photo.class);
-                if (photo == null) {
-                    callback.onError("Erreur lors de la récupération de la photo");
+        query.get(Source.SERVER)
+            .addOnSuccessListener(background, querySnapshot -> {
+                List<DocumentSnapshot> docs = querySnapshot.getDocuments();
+                if (docs.isEmpty()) {
+                    removeStaleFeedEntries(groupId, sharedIds, null, 0, callback);
                     return;
                 }
 
-                // Fusionner les anciens et nouveaux groupes (éviter les doublons)
-                List<String> currentGroups = photo.getSharedWithGroupIds();
-                if (currentGroups == null) {
-                    currentGroups = new ArrayList<>();
-                }
-
-                List<String> updatedGroups = new ArrayList<>(currentGroups);
-                for (String groupId : groupIds) {
-                    if (!updatedGroups.contains(groupId)) {
-                        updatedGroups.add(groupId);
-                    }
+                WriteBatch batch = db.batch();
+                for (Photo photo : toPhotos(docs)) {
+                    groupFeed.addEntries(batch, photo, Collections.singletonList(groupId));
+                    sharedIds.add(photo.getId());
                 }
-
-                // Mettre à jour la photo dans Firestore
-                db.collection(COLLECTION_PHOTOS).document(photoId)
-                    .update("sharedWithGroupIds", updatedGroups, "updatedAt", new Date())
+                batch.commit()
                     .addOnSuccessListener(aVoid -> {
-                        Log.d(TAG, "Photo partagée avec " + groupIds.size() + " groupe(s)");
-                        callback.onSuccess();
+                        callback.onProgress(sharedIds.size());
+                        rebuildGroupFeedPage(groupId, docs.get(docs.size() - 1), sharedIds, callback);
                     })
                     .addOnFailureListener(e -> {
-                        Log.e(TAG, "Erreur lors du partage de la photo", e);
+                        Log.e(TAG, "Erreur lors de la reconstruction du fil du groupe " + groupId, e);
                         callback.onError("Erreur: " + e.getMessage());
                     });
             })
             .addOnFailureListener(e -> {
-                Log.e(TAG, "Erreur lors de la récupération de la photo", e);
+                Log.e(TAG, "Erreur lors de la reconstruction du fil du groupe " + groupId, e);
                 callback.onError("Erreur: " + e.getMessage());
             });
     }
 
     /**
-     * Retire le partage d'une photo d'un groupe
+     * Parcourt le fil par pages (curseur sur la dernière entrée lue) et supprime à chaque page
+     * les entrées qui ne correspondent plus à un partage
      */
-    public void unsharePhotoFromGroup(String photoId, String groupId, SharePhotoCallback callback) {
-        db.collection(COLLECTION_PHOTOS).document(photoId)
-            .update("sharedWithGroupIds", FieldValue.arrayRemove(groupId), "updatedAt", new Date())
-            .addOnSuccessListener(aVoid -> {
-                Log.d(TAG, "Photo retirée du groupe: " + groupId);
-                callback.onSuccess();
+    private void removeStaleFeedEntries(String groupId, Set<String> sharedIds, DocumentSnapshot cursor,
+                                        int removed, BackfillCallback callback) {
+        Query query = groupFeed.query(groupId).limit(BACKFILL_PAGE_SIZE);
+        if (cursor != null) {
+            query = query.startAfter(cursor);
+        }
+
+        query.get(Source.SERVER)
+            .addOnSuccessListener(querySnapshot -> {
+                List<DocumentSnapshot> entries = querySnapshot.getDocuments();
+                List<DocumentReference> stale = new ArrayList<>();
+                for (DocumentSnapshot entry : entries) {
+                    if (!sharedIds.contains(entry.getId())) {
+                        stale.add(entry.getReference());
+                    }
+                }
+                batchWriter.delete(stale, (written, failed) -> {
+                    if (!failed.isEmpty()) {
+                        callback.onError(failed.size() + " entrée(s) obsolète(s) non supprimée(s)");
+                        return;
+                    }
+                    if (entries.size() == BACKFILL_PAGE_SIZE) {
+                        removeStaleFeedEntries(groupId, sharedIds, entries.get(entries.size() - 1),
+                            removed + written, callback);
+                        return;
+                    }
+                    Log.d(TAG, "Fil du groupe " + groupId + " reconstruit: " + sharedIds.size()
+                        + " photo(s), " + (removed + written) + " entrée(s) obsolète(s) supprimée(s)");
+                    callback.onComplete(sharedIds.size());
+                });
             })
             .addOnFailureListener(e -> {
-                Log.e(TAG, "Erreur lors du retrait du partage", e);
+                Log.e(TAG, "Erreur lors du nettoyage du fil du groupe " + groupId, e);
+                callback.onError("Erreur: " + e.getMessage());
+            });
+    }
+
+    /**
+     * Reconstruit le fil de tous les groupes, un groupe après l'autre
+     */
+    public void rebuildAllGroupFeeds(BackfillCallback callback) {
+        db.collection(COLLECTION_GROUPS)
+            .get(Source.SERVER)
+            .addOnSuccessListener(querySnapshot ->
+                rebuildGroupFeeds(querySnapshot.getDocuments(), 0, 0, callback))
+            .addOnFailureListener(e -> {
+                Log.e(TAG, "Erreur lors du chargement des groupes", e);
                 callback.onError("Erreur: " + e.getMessage());
             });
     }
 
+    private void rebuildGroupFeeds(List<DocumentSnapshot> groups, int index, int total, BackfillCallback callback) {
+        if (index >= groups.size()) {
+            callback.onComplete(total);
+            return;
+        }
+        rebuildGroupFeed(groups.get(index).getId(), new BackfillCallback() {
+            @Override
+            public void onProgress(int processed) {
+                callback.onProgress(total + processed);
+            }
+
+            @Override
+            public void onComplete(int updated) {
+                rebuildGroupFeeds(groups, index + 1, total + updated, callback);
+            }
+
+            @Override
+            public void onError(String error) {
+                callback.onError(error);
+            }
+        });
+    }
+
+    // Variante Task, lancée en parallèle avec les autres chargements du profil.
+    // Annuler le jeton (peut être null) dans onDestroyView abandonne le résultat et évite le
+    // comptage de rattrapage ; la lecture de users/{id} déjà partie va jusqu'au bout.
+
+    public Task<Long> getAuthorPhotoCount(String authorId, CancellationToken token) {
+        return ServiceTasks.call(token, result -> getAuthorPhotoCount(authorId, token, new PhotoCountCallback() {
+            @Override
+            public void onSuccess(long count) {
+                result.success(count);
+            }
+
+            @Override
+            public void onError(String error) {
+                result.error(error);
+            }
+        }));
+    }
+
     // Callbacks
     public interface PhotoCallback {
         void onSuccess(List<Photo> photos);
         void onError(String error);
     }
 
+    /**
+     * fromCache : première page lue dans le cache local. La page du serveur suit (sauf hors
+     * connexion) et la remplace ; ne pas paginer depuis ce lastVisible-là.
+     */
+    public interface PhotoPageCallback {
+        void onSuccess(List<Photo> photos, DocumentSnapshot lastVisible, boolean hasMore, boolean fromCache);
+        void onError(String error);
+    }
+
+    public interface BackfillCallback {
+        void onProgress(int processed);
+        void onComplete(int updated);
+        void onError(String error);
+    }
+
+    public interface PhotoCountCallback {
+        void onSuccess(long count);
+        void onError(String error);
+    }
+
     public interface SinglePhotoCallback {
         void onSuccess(Photo photo);
         void onError(String error);
@@ -0,0 +1,54 @@
+package com.example.travelshare.services;
+
+import com.google.android.gms.tasks.CancellationToken;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.TaskCompletionSource;
+
+/**
+ * Passerelle entre les callbacks des services et les Task de Play services, pour que les
+ * écrans puissent lancer des chargements en parallèle et les composer (Tasks.whenAll...).
+ * Annuler le jeton termine aussitôt la Task (état annulé) et son résultat est ignoré.
+ * Ne passent par ici que des lectures ponctuelles (get) : il n'y a pas de listener à
+ * détacher, et un get() déjà envoyé ne peut pas être interrompu. Le service peut consulter
+ * le jeton pour ne pas lancer les lectures suivantes. Les lectures écoutées ou livrées deux
+ * fois (cache puis serveur) restent sur leurs callbacks et leur stop().
+ * Une Task ne se termine qu'une fois : seul le premier résultat livré par le service compte.
+ */
+final class ServiceTasks {
+
+    private ServiceTasks() {
+    }
+
+    static <T> Task<T> call(CancellationToken token, Call<T> call) {
+        TaskCompletionSource<T> source = token != null
+            ? new TaskCompletionSource<>(token)
+            : new TaskCompletionSource<>();
+        if (token == null || !token.isCancellationRequested()) {
+            call.start(new Result<>(source));
+        }
+        return source.getTask();
+    }
+
+    interface Call<T> {
+        void start(Result<T> result);
+    }
+
+    static final class Result<T> {
+        private final TaskCompletionSource<T> source;
+
+        private Result(TaskCompletionSource<T> source) {
+            this.source = source;
+        }
+
+        void success(T value) {
+            source.trySetResult(value);
+        }
+
+        /**
+         * Le message d'erreur du service devient celui de l'exception de la Task
+         */
+        void error(String error) {
+            source.trySetException(new Exception(error));
+        }
+    }
+}
@@ -0,0 +1,261 @@
+package com.example.travelshare.services;
+
+import android.util.Log;
+import android.util.LruCache;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.AggregateField;
+import com.google.firebase.firestore.AggregateQuery;
+import com.google.firebase.firestore.AggregateQuerySnapshot;
+import com.google.firebase.firestore.AggregateSource;
+import com.google.firebase.firestore.CollectionReference;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.SetOptions;
+import com.google.firebase.firestore.Source;
+import com.google.firebase.firestore.Transaction;
+import com.google.firebase.firestore.WriteBatch;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Compteurs distribués sur plusieurs documents ("shards") pour les photos très actives.
+ * Firestore limite les écritures soutenues à environ une par seconde et par document :
+ * chaque incrément vise un shard tiré au hasard (photos/{id}/counterShards/{n}).
+ * Le champ du document parent reste la valeur affichée dans les listes : au plus une fois par
+ * ROLL_UP_INTERVAL_MS et par document, un shard tiré au hasard y est reporté puis remis à zéro,
+ * dans une transaction qui ne lit que ce shard. Chaque appareil écrit ainsi au plus deux fois
+ * par minute sur le parent, et le report ne bloque que les incréments de ce shard.
+ * Total = champ du parent + somme des shards ; il n'est lu (getTotals) que là où il est utile,
+ * avec un total en cache.
+ */
+public class ShardedCounter {
+    private static final String TAG = "ShardedCounter";
+    private static final String COLLECTION_PHOTOS = "photos";
+    private static final String SUBCOLLECTION_SHARDS = "counterShards";
+
+    public static final String LIKES = "likesCount";
+    public static final String COMMENTS = "commentsCount";
+
+    private static final int PHOTO_SHARD_COUNT = 10;
+    private static final long CACHE_TTL_MS = 60_000;
+    // Totaux gardés en mémoire : les photos affichées récemment, pas toutes celles vues
+    private static final int CACHE_MAX_ENTRIES = 200;
+    // Report d'un shard sur le parent : au plus un par document sur cet intervalle
+    private static final long ROLL_UP_INTERVAL_MS = 30_000;
+
+    private static ShardedCounter photoCounters;
+
+    private final FirebaseFirestore db;
+    private final String parentCollection;
+    private final int shardCount;
+    private final Random random = new Random();
+    private final LruCache<String, CachedTotals> cache = new LruCache<>(CACHE_MAX_ENTRIES);
+    private final LruCache<String, Long> lastRollUpMs = new LruCache<>(CACHE_MAX_ENTRIES);
+
+    public ShardedCounter(FirebaseFirestore db, String parentCollection, int shardCount) {
+        this.db = db;
+        this.parentCollection = parentCollection;
+        this.shardCount = shardCount;
+    }
+
+    /**
+     * Compteurs des photos (likes et commentaires), partagés par les services
+     */
+    public static synchronized ShardedCounter getPhotoCounters() {
+        if (photoCounters == null) {
+            photoCounters = new ShardedCounter(OfflineStore.firestore(), COLLECTION_PHOTOS, PHOTO_SHARD_COUNT);
+        }
+        return photoCounters;
+    }
+
+    /**
+     * Ajoute l'incrément à une transaction en cours.
+     * Appeler onCommitted() une fois la transaction validée.
+     */
+    public void increment(Transaction transaction, String docId, String field, long delta) {
+        transaction.set(randomShard(docId), incrementData(field, delta), SetOptions.merge());
+    }
+
+    /**
+     * Ajoute l'incrément à un batch en cours.
+     * Appeler onCommitted() une fois le batch validé.
+     */
+    public void increment(WriteBatch batch, String docId, String field, long delta) {
+        batch.set(randomShard(docId), incrementData(field, delta), SetOptions.merge());
+    }
+
+    /**
+     * Références de tous les shards d'un document (pour la suppression)
+     */
+    public List<DocumentReference> allShards(String docId) {
+        List<DocumentReference> shards = new ArrayList<>();
+        for (int i = 0; i < shardCount; i++) {
+            shards.add(shardCollection(docId).document(String.valueOf(i)));
+        }
+        return shards;
+    }
+
+    /**
+     * Totaux pour les champs demandés : document parent et agrégation des shards, lus en
+     * parallèle (deux lectures), servis depuis le cache pendant CACHE_TTL_MS.
+     * Valeur approchée : les deux lectures ne sont pas dans une transaction (Firestore n'y
+     * accepte pas d'agrégation), donc un report validé entre elles compte deux fois ou pas
+     * du tout le montant déplacé. L'écart est rare (un report par ROLL_UP_INTERVAL_MS au plus)
+     * et disparaît à la lecture suivante.
+     * Réservé aux écrans qui affichent une seule photo.
+     */
+    public void getTotals(String docId, List<String> fields, TotalsCallback callback) {
+        CachedTotals cached = getFresh(docId);
+        if (cached != null && cached.totals.keySet().containsAll(fields)) {
+            callback.onSuccess(Collections.unmodifiableMap(cached.totals));
+            return;
+        }
+
+        List<AggregateField> aggregates = new ArrayList<>();
+        for (String field : fields) {
+            aggregates.add(AggregateField.sum(field));
+        }
+        AggregateQuery query = shardCollection(docId).aggregate(
+            aggregates.get(0), aggregates.subList(1, aggregates.size()).toArray(new AggregateField[0]));
+
+        Task<DocumentSnapshot> parentRead = parentDocument(docId).get(Source.SERVER);
+        Task<AggregateQuerySnapshot> shardsRead = query.get(AggregateSource.SERVER);
+        Tasks.whenAllSuccess(parentRead, shardsRead)
+            .addOnSuccessListener(results -> {
+                DocumentSnapshot parent = parentRead.getResult();
+                AggregateQuerySnapshot snapshot = shardsRead.getResult();
+                Map<String, Long> totals = new HashMap<>();
+                for (int i = 0; i < fields.size(); i++) {
+                    Long base = parent.getLong(fields.get(i));
+                    Long value = snapshot.getLong(aggregates.get(i));
+                    totals.put(fields.get(i), (base != null ? base : 0L) + (value != null ? value : 0L));
+                }
+                cache.put(docId, new CachedTotals(totals));
+                callback.onSuccess(Collections.unmodifiableMap(totals));
+            })
+            .addOnFailureListener(e -> {
+                Log.e(TAG, "Erreur lors de la lecture des compteurs", e);
+                callback.onError("Erreur: " + e.getMessage());
+            });
+    }
+
+    /**
+     * Total en cache (sans lecture), ou null s'il est inconnu ou expiré
+     */
+    public Long getCachedTotal(String docId, String field) {
+        CachedTotals cached = getFresh(docId);
+        return cached != null ? cached.totals.get(field) : null;
+    }
+
+    public void invalidate(String docId) {
+        cache.remove(docId);
+    }
+
+    /**
+     * À appeler après un incrément validé : met à jour le total en cache et, si aucun report
+     * n'a été fait pour ce document depuis ROLL_UP_INTERVAL_MS, reporte un shard sur le parent
+     */
+    public void onCommitted(String docId, String field, long delta) {
+        CachedTotals cached = cache.get(docId);
+        if (cached != null) {
+            Long current = cached.totals.get(field);
+            if (current != null) {
+                cached.totals.put(field, current + delta);
+            }
+        }
+        long now = System.currentTimeMillis();
+        synchronized (lastRollUpMs) {
+            Long last = lastRollUpMs.get(docId);
+            if (last != null && now - last < ROLL_UP_INTERVAL_MS) return;
+            lastRollUpMs.put(docId, now);
+        }
+        rollUp(docId);
+    }
+
+    /**
+     * Reporte un shard tiré au hasard sur le document parent : ses valeurs sont ajoutées au
+     * parent et retirées du shard. Seul ce shard est lu ; le total ne change pas.
+     * En cas d'échec (contention), un prochain report s'en charge.
+     */
+    public void rollUp(String docId) {
+        DocumentReference shardRef = randomShard(docId);
+        db.runTransaction(transaction -> {
+                DocumentSnapshot shard = transaction.get(shardRef);
+                if (!shard.exists() || shard.getData() == null) return null;
+
+                Map<String, Object> shardUpdates = new HashMap<>();
+                Map<String, Object> parentUpdates = new HashMap<>();
+                for (Map.Entry<String, Object> field : shard.getData().entrySet()) {
+                    if (!(field.getValue() instanceof Number)) continue;
+                    long value = ((Number) field.getValue()).longValue();
+                    if (value == 0) continue;
+                    shardUpdates.put(field.getKey(), FieldValue.increment(-value));
+                    parentUpdates.put(field.getKey(), FieldValue.increment(value));
+                }
+                if (!parentUpdates.isEmpty()) {
+                    transaction.update(shardRef, shardUpdates);
+                    transaction.update(parentDocument(docId), parentUpdates);
+                }
+                return null;
+            })
+            .addOnFailureListener(e -> Log.w(TAG, "Report du shard reporté à plus tard pour " + docId, e));
+    }
+
+    /**
+     * Entrée en cache non expirée ; une entrée expirée est retirée
+     */
+    private CachedTotals getFresh(String docId) {
+        CachedTotals cached = cache.get(docId);
+        if (cached != null && cached.isExpired()) {
+            cache.remove(docId);
+            return null;
+        }
+        return cached;
+    }
+
+    private DocumentReference randomShard(String docId) {
+        return shardCollection(docId).document(String.valueOf(random.nextInt(shardCount)));
+    }
+
+    private DocumentReference parentDocument(String docId) {
+        return db.collection(parentCollection).document(docId);
+    }
+
+    private CollectionReference shardCollection(String docId) {
+        return parentDocument(docId).collection(SUBCOLLECTION_SHARDS);
+    }
+
+    private static Map<String, Object> incrementData(String field, long delta) {
+        Map<String, Object> data = new HashMap<>();
+        data.put(field, FieldValue.increment(delta));
+        return data;
+    }
+
+    private static class CachedTotals {
+        final Map<String, Long> totals;
+        final long loadedAt = System.currentTimeMillis();
+
+        CachedTotals(Map<String, Long> totals) {
+            this.totals = new ConcurrentHashMap<>(totals);
+        }
+
+        boolean isExpired() {
+            return System.currentTimeMillis() - loadedAt > CACHE_TTL_MS;
+        }
+    }
+
+    public interface TotalsCallback {
+        void onSuccess(Map<String, Long> totals);
+        void onError(String error);
+    }
+}
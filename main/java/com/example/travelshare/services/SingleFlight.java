@@ -0,0 +1,162 @@
+package com.example.travelshare.services;
+
+import android.util.LruCache;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Regroupement des lectures identiques lancées en même temps.
+ * La clé décrit la requête (collection et paramètres, ex. "groups?memberIds=42") : tant qu'une
+ * lecture est en cours pour une clé, les appelants suivants reçoivent la même Task au lieu
+ * d'en relancer une. Un résultat réussi est ensuite servi pendant ttlMs (0 : pas de cache) ;
+ * au plus MAX_RESULTS résultats sont gardés, les moins récemment utilisés partent en premier.
+ * Le résultat est partagé entre les appelants : il doit être traité en lecture seule.
+ */
+public class SingleFlight<T> {
+    // Les clés incluent les paramètres (ex. un ID par utilisateur) : le cache doit rester borné
+    static final int MAX_RESULTS = 100;
+
+    private final long ttlMs;
+
+    private final Map<String, Task<T>> inFlight = new HashMap<>();
+    private final LruCache<String, Entry<T>> results = new LruCache<>(MAX_RESULTS);
+
+    private long calls;
+    private long executions;
+    private long joined;
+    private long cacheHits;
+
+    SingleFlight(long ttlMs) {
+        this.ttlMs = ttlMs;
+    }
+
+    /**
+     * Résultat en cache ou lecture en cours pour cette clé ; sinon lance fetch
+     */
+    public synchronized Task<T> run(String key, Fetch<T> fetch) {
+        calls++;
+        T cached = getFresh(key);
+        if (cached != null) {
+            cacheHits++;
+            return Tasks.forResult(cached);
+        }
+        Task<T> running = inFlight.get(key);
+        if (running != null) {
+            joined++;
+            return running;
+        }
+
+        executions++;
+        Task<T> task = fetch.start();
+        inFlight.put(key, task);
+        task.addOnCompleteListener(done -> complete(key, done));
+        return task;
+    }
+
+    /**
+     * Résultat encore valide pour cette clé, sans lancer de lecture (null sinon)
+     */
+    public synchronized T peek(String key) {
+        calls++;
+        T cached = getFresh(key);
+        if (cached != null) {
+            cacheHits++;
+        }
+        return cached;
+    }
+
+    /**
+     * Enregistre un résultat lu par un autre chemin (ex. lecture "cache local d'abord")
+     */
+    public synchronized void put(String key, T value) {
+        if (ttlMs > 0) {
+            results.put(key, new Entry<>(value, System.currentTimeMillis()));
+        }
+    }
+
+    /**
+     * À appeler après une écriture qui change le résultat : les appels suivants relisent,
+     * et une lecture déjà en cours n'est plus partagée ni mise en cache
+     */
+    public synchronized void invalidate(String key) {
+        results.remove(key);
+        inFlight.remove(key);
+    }
+
+    public synchronized void invalidateAll() {
+        results.evictAll();
+        inFlight.clear();
+    }
+
+    public synchronized Stats getStats() {
+        return new Stats(calls, executions, joined, cacheHits);
+    }
+
+    private synchronized void complete(String key, Task<T> task) {
+        // Invalidée entre-temps : le résultat peut être périmé
+        if (inFlight.get(key) != task) return;
+        inFlight.remove(key);
+        if (task.isSuccessful()) {
+            put(key, task.getResult());
+        }
+    }
+
+    private T getFresh(String key) {
+        Entry<T> entry = results.get(key);
+        if (entry == null) return null;
+        if (System.currentTimeMillis() - entry.loadedAtMs > ttlMs) {
+            results.remove(key);
+            return null;
+        }
+        return entry.value;
+    }
+
+    private static class Entry<T> {
+        final T value;
+        final long loadedAtMs;
+
+        Entry(T value, long loadedAtMs) {
+            this.value = value;
+            this.loadedAtMs = loadedAtMs;
+        }
+    }
+
+    public interface Fetch<T> {
+        Task<T> start();
+    }
+
+    /**
+     * Compteurs depuis le démarrage : appels, lectures réellement lancées,
+     * appels rattachés à une lecture en cours et appels servis par le cache
+     */
+    public static class Stats {
+        public final long calls;
+        public final long executions;
+        public final long joined;
+        public final long cacheHits;
+
+        Stats(long calls, long executions, long joined, long cacheHits) {
+            this.calls = calls;
+            this.executions = executions;
+            this.joined = joined;
+            this.cacheHits = cacheHits;
+        }
+
+        /**
+         * Part des appels qui n'ont pas déclenché de lecture
+         */
+        public double dedupeRate() {
+            return calls == 0 ? 0 : (double) (joined + cacheHits) / calls;
+        }
+
+        @Override
+        public String toString() {
+            return "calls=" + calls + " executions=" + executions + " joined=" + joined
+                + " cacheHits=" + cacheHits;
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.example.travelshare.upload;
+
+import android.util.Log;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * Publications en attente enregistrées en JSON, un fichier par publication :
+ * {dossier}/{id}.json, avec les fichiers à envoyer dans {dossier}/{id}/.
+ * L'écriture passe par un fichier temporaire renommé, pour ne jamais laisser un état tronqué.
+ * save() et delete() sont appelés depuis la file (thread principal) : le JSON est construit
+ * sur le thread appelant, qui voit un état cohérent de la publication, puis l'écriture (sync
+ * et renommage) et la suppression passent sur un exécuteur série, dans l'ordre des appels.
+ * io doit donc être série ; loadAll() lit directement le disque.
+ */
+public class FileUploadJobStore implements UploadJobStore {
+    private static final String TAG = "FileUploadJobStore";
+    private static final String EXTENSION = ".json";
+
+    private final File directory;
+    private final Executor io;
+
+    public FileUploadJobStore(File directory, Executor io) {
+        this.directory = directory;
+        this.io = io;
+        io.execute(() -> {
+            if (!directory.exists() && !directory.mkdirs()) {
+                Log.w(TAG, "Impossible de créer " + directory);
+            }
+        });
+    }
+
+    /**
+     * Dossier où déposer les fichiers locaux d'une publication
+     */
+    public File filesDirFor(String jobId) {
+        File dir = new File(directory, jobId);
+        if (!dir.exists() && !dir.mkdirs()) {
+            Log.w(TAG, "Impossible de créer " + dir);
+        }
+        return dir;
+    }
+
+    @Override
+    public synchronized List<UploadJob> loadAll() {
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(EXTENSION));
+        if (files == null) return Collections.emptyList();
+
+        List<UploadJob> jobs = new ArrayList<>();
+        for (File file : files) {
+            try {
+                jobs.add(fromJson(new JSONObject(read(file))));
+            } catch (IOException | JSONException e) {
+                Log.w(TAG, "Publication illisible ignorée: " + file.getName(), e);
+            }
+        }
+        Collections.sort(jobs, (a, b) -> Long.compare(a.getCreatedAtMs(), b.getCreatedAtMs()));
+        return jobs;
+    }
+
+    @Override
+    public void save(UploadJob job) {
+        byte[] bytes;
+        try {
+            bytes = toJson(job).toString().getBytes(StandardCharsets.UTF_8);
+        } catch (JSONException e) {
+            Log.e(TAG, "Erreur lors de l'enregistrement de la publication " + job.getId(), e);
+            return;
+        }
+        String jobId = job.getId();
+        io.execute(() -> write(jobId, bytes));
+    }
+
+    @Override
+    public void delete(UploadJob job) {
+        String jobId = job.getId();
+        io.execute(() -> deleteFiles(jobId));
+    }
+
+    private synchronized void write(String jobId, byte[] bytes) {
+        File target = new File(directory, jobId + EXTENSION);
+        File temp = new File(directory, jobId + EXTENSION + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(temp)) {
+            out.write(bytes);
+            out.getFD().sync();
+        } catch (IOException e) {
+            Log.e(TAG, "Erreur lors de l'enregistrement de la publication " + jobId, e);
+            return;
+        }
+        if (!temp.renameTo(target)) {
+            Log.e(TAG, "Erreur lors du renommage de " + temp);
+        }
+    }
+
+    private synchronized void deleteFiles(String jobId) {
+        File dir = new File(directory, jobId);
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        dir.delete();
+        new File(directory, jobId + EXTENSION).delete();
+    }
+
+    private static JSONObject toJson(UploadJob job) throws JSONException {
+        JSONArray parts = new JSONArray();
+        for (UploadPart part : job.getParts()) {
+            parts.put(new JSONObject()
+                .put("name", part.getName())
+                .put("localPath", part.getLocalPath())
+                .put("remotePath", part.getRemotePath())
+                .put("contentType", part.getContentType())
+                .put("totalBytes", part.getTotalBytes())
+                .put("sessionUri", part.getSessionUri())
+                .put("bytesUploaded", part.getBytesUploaded())
+                .put("downloadUrl", part.getDownloadUrl()));
+        }
+        return new JSONObject()
+            .put("id", job.getId())
+            .put("payload", job.getPayload())
+            .put("createdAtMs", job.getCreatedAtMs())
+            .put("state", job.getState().name())
+            .put("attempts", job.getAttempts())
+            .put("nextAttemptAtMs", job.getNextAttemptAtMs())
+            .put("lastError", job.getLastError())
+            .put("parts", parts);
+    }
+
+    private static UploadJob fromJson(JSONObject json) throws JSONException {
+        JSONArray partsJson = json.getJSONArray("parts");
+        List<UploadPart> parts = new ArrayList<>();
+        for (int i = 0; i < partsJson.length(); i++) {
+            JSONObject p = partsJson.getJSONObject(i);
+            UploadPart part = new UploadPart(
+                p.getString("name"),
+                p.getString("localPath"),
+                p.getString("remotePath"),
+                p.getString("contentType"),
+                p.getLong("totalBytes"));
+            part.setSessionUri(p.optString("sessionUri", null));
+            part.setBytesUploaded(p.optLong("bytesUploaded"));
+            part.setDownloadUrl(p.optString("downloadUrl", null));
+            parts.add(part);
+        }
+
+        UploadJob job = new UploadJob(json.getString("id"), parts, json.getString("payload"), json.getLong("createdAtMs"));
+        job.setState(UploadJob.State.valueOf(json.getString("state")));
+        job.setAttempts(json.optInt("attempts"));
+        job.setNextAttemptAtMs(json.optLong("nextAttemptAtMs"));
+        job.setLastError(json.optString("lastError", null));
+        return job;
+    }
+
+    private static String read(File file) throws IOException {
+        byte[] bytes = new byte[(int) file.length()];
+        try (FileInputStream in = new FileInputStream(file)) {
+            int offset = 0;
+            while (offset < bytes.length) {
+                int read = in.read(bytes, offset, bytes.length - offset);
+                if (read < 0) break;
+                offset += read;
+            }
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.travelshare.upload;
+
+import android.net.Uri;
+
+import com.google.firebase.storage.FirebaseStorage;
+import com.google.firebase.storage.StorageException;
+import com.google.firebase.storage.StorageMetadata;
+import com.google.firebase.storage.StorageReference;
+import com.google.firebase.storage.UploadTask;
+
+import java.io.File;
+
+/**
+ * Envoi vers Firebase Storage par sessions d'upload reprenables :
+ * l'URI de session est remontée dès son ouverture et réutilisée après une interruption.
+ */
+public class FirebaseUploadBackend implements UploadBackend {
+
+    private final FirebaseStorage storage;
+
+    public FirebaseUploadBackend(FirebaseStorage storage) {
+        this.storage = storage;
+    }
+
+    @Override
+    public void upload(UploadPart part, Listener listener) {
+        File file = new File(part.getLocalPath());
+        if (!file.exists()) {
+            listener.onFailure("Fichier local introuvable: " + part.getName(), false);
+            return;
+        }
+
+        StorageReference ref = storage.getReference().child(part.getRemotePath());
+        StorageMetadata metadata = new StorageMetadata.Builder()
+            .setContentType(part.getContentType())
+            .build();
+        UploadTask task = part.getSessionUri() != null
+            ? ref.putFile(Uri.fromFile(file), metadata, Uri.parse(part.getSessionUri()))
+            : ref.putFile(Uri.fromFile(file), metadata);
+
+        boolean[] sessionReported = {false};
+        task.addOnProgressListener(snapshot -> {
+                Uri session = snapshot.getUploadSessionUri();
+                if (session != null && !sessionReported[0]) {
+                    sessionReported[0] = true;
+                    listener.onSessionStarted(session.toString());
+                }
+                listener.onProgress(snapshot.getBytesTransferred(), snapshot.getTotalByteCount());
+            })
+            .continueWithTask(t -> {
+                if (!t.isSuccessful()) {
+                    throw t.getException();
+                }
+                return ref.getDownloadUrl();
+            })
+            .addOnSuccessListener(uri -> listener.onSuccess(uri.toString()))
+            .addOnFailureListener(e -> listener.onFailure(e.getMessage(), isRetryable(e)));
+    }
+
+    /**
+     * Les erreurs de droits, de quota ou de configuration ne se corrigent pas en réessayant
+     */
+    private static boolean isRetryable(Exception e) {
+        if (!(e instanceof StorageException)) {
+            return true;
+        }
+        switch (((StorageException) e).getErrorCode()) {
+            case StorageException.ERROR_NOT_AUTHENTICATED:
+            case StorageException.ERROR_NOT_AUTHORIZED:
+            case StorageException.ERROR_QUOTA_EXCEEDED:
+            case StorageException.ERROR_BUCKET_NOT_FOUND:
+            case StorageException.ERROR_PROJECT_NOT_FOUND:
+            case StorageException.ERROR_CANCELED:
+                return false;
+            default:
+                return true;
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.travelshare.upload;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+/**
+ * Planification des nouvelles tentatives sur le thread principal
+ */
+public class MainThreadScheduler implements UploadScheduler {
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+
+    @Override
+    public long now() {
+        return SystemClock.elapsedRealtime();
+    }
+
+    @Override
+    public void schedule(Runnable task, long delayMs) {
+        handler.postDelayed(task, delayMs);
+    }
+}
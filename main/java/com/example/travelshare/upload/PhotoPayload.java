@@ -0,0 +1,107 @@
+package com.example.travelshare.upload;
+
+import com.example.travelshare.models.Location;
+import com.example.travelshare.models.Photo;
+import com.example.travelshare.models.PhotoType;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Sérialisation JSON des champs saisis à la publication, conservés dans la file
+ * d'upload jusqu'à l'enregistrement de la photo
+ */
+public final class PhotoPayload {
+
+    private PhotoPayload() {
+    }
+
+    public static String toJson(Photo photo) throws JSONException {
+        JSONObject json = new JSONObject()
+            .put("id", photo.getId())
+            .put("authorId", photo.getAuthorId())
+            .put("authorName", photo.getAuthorName())
+            .put("description", photo.getDescription())
+            .put("period", photo.getPeriod())
+            .put("howToGetThere", photo.getHowToGetThere())
+            .put("isPublic", photo.isPublic())
+            .put("width", photo.getWidth())
+            .put("height", photo.getHeight())
+            .put("tags", toArray(photo.getTags()))
+            .put("sharedWithGroupIds", toArray(photo.getSharedWithGroupIds()));
+        if (photo.getPhotoType() != null) json.put("photoType", photo.getPhotoType().name());
+        if (photo.getTakenDate() != null) json.put("takenDate", photo.getTakenDate().getTime());
+        if (photo.getCreatedAt() != null) json.put("createdAt", photo.getCreatedAt().getTime());
+
+        Location location = photo.getLocation();
+        if (location != null) {
+            json.put("location", new JSONObject()
+                .put("latitude", location.getLatitude())
+                .put("longitude", location.getLongitude())
+                .put("address", location.getAddress())
+                .put("city", location.getCity())
+                .put("country", location.getCountry())
+                .put("isExact", location.isExact())
+                .put("approximationRadius", location.getApproximationRadius()));
+        }
+        return json.toString();
+    }
+
+    public static Photo fromJson(String payload) throws JSONException {
+        JSONObject json = new JSONObject(payload);
+        Photo photo = new Photo();
+        photo.setId(json.optString("id", null));
+        photo.setAuthorId(json.optString("authorId", null));
+        photo.setAuthorName(json.optString("authorName", null));
+        photo.setDescription(json.optString("description", null));
+        photo.setPeriod(json.optString("period", null));
+        photo.setHowToGetThere(json.optString("howToGetThere", null));
+        photo.setPublic(json.optBoolean("isPublic"));
+        photo.setWidth(json.optInt("width"));
+        photo.setHeight(json.optInt("height"));
+        photo.setTags(fromArray(json.optJSONArray("tags")));
+        photo.setSharedWithGroupIds(fromArray(json.optJSONArray("sharedWithGroupIds")));
+        if (json.has("photoType")) photo.setPhotoType(PhotoType.valueOf(json.getString("photoType")));
+        if (json.has("takenDate")) photo.setTakenDate(new Date(json.getLong("takenDate")));
+        if (json.has("createdAt")) photo.setCreatedAt(new Date(json.getLong("createdAt")));
+
+        JSONObject locationJson = json.optJSONObject("location");
+        if (locationJson != null) {
+            Location location = new Location();
+            location.setLatitude(locationJson.getDouble("latitude"));
+            location.setLongitude(locationJson.getDouble("longitude"));
+            location.setAddress(locationJson.optString("address", null));
+            location.setCity(locationJson.optString("city", null));
+            location.setCountry(locationJson.optString("country", null));
+            location.setExact(locationJson.optBoolean("isExact"));
+            location.setApproximationRadius(locationJson.optDouble("approximationRadius", 0));
+            photo.setLocation(location);
+        }
+        return photo;
+    }
+
+    private static JSONArray toArray(List<String> values) {
+        JSONArray array = new JSONArray();
+        if (values != null) {
+            for (String value : values) {
+                array.put(value);
+            }
+        }
+        return array;
+    }
+
+    private static List<String> fromArray(JSONArray array) {
+        List<String> values = new ArrayList<>();
+        if (array != null) {
+            for (int i = 0; i < array.length(); i++) {
+                values.add(array.optString(i));
+            }
+        }
+        return values;
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.travelshare.upload;
+
+/**
+ * Stockage distant des fichiers (Firebase Storage en production, faux stockage en test)
+ */
+public interface UploadBackend {
+
+    /**
+     * Envoie un fichier, en reprenant sa session si part.getSessionUri() est renseigné
+     */
+    void upload(UploadPart part, Listener listener);
+
+    interface Listener {
+        /**
+         * Session d'upload ouverte : à conserver pour reprendre après une interruption
+         */
+        void onSessionStarted(String sessionUri);
+
+        void onProgress(long bytesUploaded, long totalBytes);
+
+        void onSuccess(String downloadUrl);
+
+        /**
+         * @param retryable false pour les erreurs qu'une nouvelle tentative ne corrigera pas
+         */
+        void onFailure(String error, boolean retryable);
+    }
+}
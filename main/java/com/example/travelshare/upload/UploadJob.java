@@ -0,0 +1,122 @@
+package com.example.travelshare.upload;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Une publication en attente : ses fichiers et les métadonnées à enregistrer
+ * une fois tous les fichiers durablement stockés.
+ */
+public class UploadJob {
+
+    public enum State {
+        QUEUED,         // En attente d'un créneau
+        UPLOADING,      // Fichiers en cours d'envoi
+        WAITING_RETRY,  // Échec temporaire, nouvelle tentative programmée
+        COMMITTING,     // Fichiers stockés, enregistrement des métadonnées
+        DONE,
+        FAILED          // Échec définitif ou nombre de tentatives épuisé
+    }
+
+    private final String id;
+    private final List<UploadPart> parts;
+    private final String payload;
+    private final long createdAtMs;
+
+    private State state = State.QUEUED;
+    private int attempts;
+    private long nextAttemptAtMs;
+    private String lastError;
+
+    /**
+     * @param payload métadonnées sérialisées, opaques pour la file
+     */
+    public UploadJob(String id, List<UploadPart> parts, String payload, long createdAtMs) {
+        this.id = id;
+        this.parts = Collections.unmodifiableList(parts);
+        this.payload = payload;
+        this.createdAtMs = createdAtMs;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public List<UploadPart> getParts() {
+        return parts;
+    }
+
+    public UploadPart getPart(String name) {
+        for (UploadPart part : parts) {
+            if (part.getName().equals(name)) {
+                return part;
+            }
+        }
+        return null;
+    }
+
+    public String getPayload() {
+        return payload;
+    }
+
+    public long getCreatedAtMs() {
+        return createdAtMs;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public void setState(State state) {
+        this.state = state;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(int attempts) {
+        this.attempts = attempts;
+    }
+
+    public long getNextAttemptAtMs() {
+        return nextAttemptAtMs;
+    }
+
+    public void setNextAttemptAtMs(long nextAttemptAtMs) {
+        this.nextAttemptAtMs = nextAttemptAtMs;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    public void setLastError(String lastError) {
+        this.lastError = lastError;
+    }
+
+    public boolean allPartsUploaded() {
+        for (UploadPart part : parts) {
+            if (!part.isUploaded()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public long getBytesUploaded() {
+        long total = 0;
+        for (UploadPart part : parts) {
+            total += part.isUploaded() ? part.getTotalBytes() : part.getBytesUploaded();
+        }
+        return total;
+    }
+
+    public long getTotalBytes() {
+        long total = 0;
+        for (UploadPart part : parts) {
+            total += part.getTotalBytes();
+        }
+        return total;
+    }
+}
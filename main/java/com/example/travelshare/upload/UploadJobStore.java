@@ -0,0 +1,20 @@
+package com.example.travelshare.upload;
+
+import java.util.List;
+
+/**
+ * Persistance des publications en attente, pour survivre à l'arrêt de l'application.
+ * save() et delete() sont appelés par la file sous son verrou, depuis le thread principal :
+ * une implémentation qui écrit sur disque doit faire l'écriture ailleurs, dans l'ordre des appels.
+ */
+public interface UploadJobStore {
+
+    List<UploadJob> loadAll();
+
+    void save(UploadJob job);
+
+    /**
+     * Supprime l'enregistrement et les fichiers locaux de la publication
+     */
+    void delete(UploadJob job);
+}
@@ -0,0 +1,73 @@
+package com.example.travelshare.upload;
+
+/**
+ * Un fichier d'une publication (image, variante moyenne, miniature) à envoyer au stockage
+ */
+public class UploadPart {
+    private final String name;
+    private final String localPath;
+    private final String remotePath;
+    private final String contentType;
+    private final long totalBytes;
+
+    // Progression, conservée sur disque pour reprendre la session d'upload
+    private String sessionUri;
+    private long bytesUploaded;
+    private String downloadUrl;
+
+    public UploadPart(String name, String localPath, String remotePath, String contentType, long totalBytes) {
+        this.name = name;
+        this.localPath = localPath;
+        this.remotePath = remotePath;
+        this.contentType = contentType;
+        this.totalBytes = totalBytes;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getLocalPath() {
+        return localPath;
+    }
+
+    public String getRemotePath() {
+        return remotePath;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public long getTotalBytes() {
+        return totalBytes;
+    }
+
+    public String getSessionUri() {
+        return sessionUri;
+    }
+
+    public void setSessionUri(String sessionUri) {
+        this.sessionUri = sessionUri;
+    }
+
+    public long getBytesUploaded() {
+        return bytesUploaded;
+    }
+
+    public void setBytesUploaded(long bytesUploaded) {
+        this.bytesUploaded = bytesUploaded;
+    }
+
+    public String getDownloadUrl() {
+        return downloadUrl;
+    }
+
+    public void setDownloadUrl(String downloadUrl) {
+        this.downloadUrl = downloadUrl;
+    }
+
+    public boolean isUploaded() {
+        return downloadUrl != null;
+    }
+}
@@ -0,0 +1,281 @@
+package com.example.travelshare.upload;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * File persistante des publications.
+ * Chaque publication passe par QUEUED → UPLOADING → COMMITTING → DONE ; un échec temporaire
+ * la met en WAITING_RETRY avec un délai exponentiel, un échec définitif en FAILED.
+ * Les métadonnées ne sont enregistrées (Committer) qu'une fois tous les fichiers stockés.
+ * Au plus maxParallelUploads fichiers sont envoyés en même temps, toutes publications confondues.
+ * Code Java pur : stockage, persistance et horloge sont injectés.
+ */
+public class UploadQueue {
+    public static final int DEFAULT_MAX_PARALLEL_UPLOADS = 2;
+    static final long BASE_BACKOFF_MS = 2_000;
+    static final long MAX_BACKOFF_MS = 5 * 60_000;
+    static final int MAX_ATTEMPTS = 8;
+
+    private final UploadJobStore store;
+    private final UploadBackend backend;
+    private final UploadScheduler scheduler;
+    private final Committer committer;
+    private final int maxParallelUploads;
+
+    private final Map<String, UploadJob> jobs = new LinkedHashMap<>();
+    private final Set<UploadPart> inFlight = new HashSet<>();
+    private final Map<UploadPart, Long> bytesAtAttemptStart = new HashMap<>();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    public UploadQueue(UploadJobStore store, UploadBackend backend, UploadScheduler scheduler,
+                       Committer committer, int maxParallelUploads) {
+        this.store = store;
+        this.backend = backend;
+        this.scheduler = scheduler;
+        this.committer = committer;
+        this.maxParallelUploads = maxParallelUploads;
+    }
+
+    /**
+     * Recharge les publications interrompues (arrêt de l'application) et les relance
+     */
+    public synchronized void restore() {
+        for (UploadJob job : store.loadAll()) {
+            if (jobs.containsKey(job.getId())) continue;
+            if (job.getState() == UploadJob.State.DONE) {
+                store.delete(job);
+                continue;
+            }
+            // Interrompue ou en attente d'un délai dont l'horloge n'a pas survécu : relancer
+            if (job.getState() != UploadJob.State.FAILED) {
+                job.setState(UploadJob.State.QUEUED);
+            }
+            jobs.put(job.getId(), job);
+        }
+        pump();
+    }
+
+    public synchronized void enqueue(UploadJob job) {
+        job.setState(UploadJob.State.QUEUED);
+        jobs.put(job.getId(), job);
+        store.save(job);
+        notifyUpdated(job);
+        pump();
+    }
+
+    /**
+     * Relance une publication en échec définitif
+     */
+    public synchronized void retry(String jobId) {
+        UploadJob job = jobs.get(jobId);
+        if (job == null || job.getState() != UploadJob.State.FAILED) return;
+        job.setAttempts(0);
+        job.setLastError(null);
+        job.setState(UploadJob.State.QUEUED);
+        store.save(job);
+        notifyUpdated(job);
+        pump();
+    }
+
+    /**
+     * Abandonne une publication en échec et supprime ses fichiers locaux
+     */
+    public synchronized void discard(String jobId) {
+        UploadJob job = jobs.get(jobId);
+        if (job == null || job.getState() != UploadJob.State.FAILED) return;
+        jobs.remove(jobId);
+        store.delete(job);
+    }
+
+    public synchronized List<UploadJob> getJobs() {
+        return Collections.unmodifiableList(new ArrayList<>(jobs.values()));
+    }
+
+    public synchronized UploadJob getJob(String jobId) {
+        return jobs.get(jobId);
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Démarre tout ce qui peut l'être, dans l'ordre d'arrivée des publications
+     */
+    private void pump() {
+        long now = scheduler.now();
+        for (UploadJob job : new ArrayList<>(jobs.values())) {
+            if (job.getState() == UploadJob.State.WAITING_RETRY && job.getNextAttemptAtMs() <= now) {
+                job.setState(UploadJob.State.QUEUED);
+            }
+            if (job.getState() == UploadJob.State.QUEUED) {
+                job.setState(UploadJob.State.UPLOADING);
+                store.save(job);
+                notifyUpdated(job);
+            }
+            if (job.getState() != UploadJob.State.UPLOADING) continue;
+
+            if (job.allPartsUploaded()) {
+                startCommit(job);
+                continue;
+            }
+            for (UploadPart part : job.getParts()) {
+                if (inFlight.size() >= maxParallelUploads) return;
+                if (!part.isUploaded() && !inFlight.contains(part)) {
+                    startUpload(job, part);
+                }
+            }
+        }
+    }
+
+    private void startUpload(UploadJob job, UploadPart part) {
+        inFlight.add(part);
+        bytesAtAttemptStart.put(part, part.getBytesUploaded());
+
+        backend.upload(part, new UploadBackend.Listener() {
+            @Override
+            public void onSessionStarted(String sessionUri) {
+                synchronized (UploadQueue.this) {
+                    if (!inFlight.contains(part)) return;
+                    part.setSessionUri(sessionUri);
+                    store.save(job);
+                }
+            }
+
+            @Override
+            public void onProgress(long bytesUploaded, long totalBytes) {
+                synchronized (UploadQueue.this) {
+                    if (!inFlight.contains(part)) return;
+                    part.setBytesUploaded(bytesUploaded);
+                }
+                notifyUpdated(job);
+            }
+
+            @Override
+            public void onSuccess(String downloadUrl) {
+                synchronized (UploadQueue.this) {
+                    // Ignorer un résultat arrivé après la fin de cette tentative
+                    if (!inFlight.remove(part)) return;
+                    bytesAtAttemptStart.remove(part);
+                    part.setDownloadUrl(downloadUrl);
+                    part.setBytesUploaded(part.getTotalBytes());
+                    store.save(job);
+                    notifyUpdated(job);
+                    pump();
+                }
+            }
+
+            @Override
+            public void onFailure(String error, boolean retryable) {
+                synchronized (UploadQueue.this) {
+                    if (!inFlight.remove(part)) return;
+                    Long startBytes = bytesAtAttemptStart.remove(part);
+
+                    // Une session reprise sans aucun progrès est probablement expirée : repartir de zéro
+                    if (part.getSessionUri() != null && startBytes != null && part.getBytesUploaded() <= startBytes) {
+                        part.setSessionUri(null);
+                        part.setBytesUploaded(0);
+                    }
+                    onJobFailure(job, error, retryable);
+                    pump();
+                }
+            }
+        });
+    }
+
+    private void startCommit(UploadJob job) {
+        job.setState(UploadJob.State.COMMITTING);
+        store.save(job);
+        notifyUpdated(job);
+
+        committer.commit(job, new Committer.Callback() {
+            @Override
+            public void onSuccess() {
+                synchronized (UploadQueue.this) {
+                    job.setState(UploadJob.State.DONE);
+                    jobs.remove(job.getId());
+                    store.delete(job);
+                    notifyUpdated(job);
+                    pump();
+                }
+            }
+
+            @Override
+            public void onFailure(String error, boolean retryable) {
+                synchronized (UploadQueue.this) {
+                    onJobFailure(job, error, retryable);
+                    pump();
+                }
+            }
+        });
+    }
+
+    private void onJobFailure(UploadJob job, String error, boolean retryable) {
+        // Plusieurs fichiers d'une même publication peuvent échouer ensemble : un seul report
+        if (job.getState() == UploadJob.State.WAITING_RETRY || job.getState() == UploadJob.State.FAILED) {
+            return;
+        }
+
+        job.setLastError(error);
+        job.setAttempts(job.getAttempts() + 1);
+        if (!retryable || job.getAttempts() >= MAX_ATTEMPTS) {
+            job.setState(UploadJob.State.FAILED);
+        } else {
+            long delay = backoffDelay(job.getAttempts());
+            job.setState(UploadJob.State.WAITING_RETRY);
+            job.setNextAttemptAtMs(scheduler.now() + delay);
+            scheduler.schedule(() -> {
+                synchronized (UploadQueue.this) {
+                    pump();
+                }
+            }, delay);
+        }
+        store.save(job);
+        notifyUpdated(job);
+    }
+
+    /**
+     * Délai exponentiel : 2 s, 4 s, 8 s… plafonné à 5 min
+     */
+    static long backoffDelay(int attempts) {
+        long delay = BASE_BACKOFF_MS << Math.min(attempts - 1, 20);
+        return Math.min(delay, MAX_BACKOFF_MS);
+    }
+
+    private void notifyUpdated(UploadJob job) {
+        for (Listener listener : listeners) {
+            listener.onJobUpdated(job);
+        }
+    }
+
+    /**
+     * Enregistrement des métadonnées une fois les fichiers stockés
+     */
+    public interface Committer {
+        void commit(UploadJob job, Callback callback);
+
+        interface Callback {
+            void onSuccess();
+            void onFailure(String error, boolean retryable);
+        }
+    }
+
+    /**
+     * Changement d'état ou progression d'une publication ; ne doit pas bloquer
+     */
+    public interface Listener {
+        void onJobUpdated(UploadJob job);
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.travelshare.upload;
+
+/**
+ * Horloge et planification des nouvelles tentatives (remplaçable en test)
+ */
+public interface UploadScheduler {
+
+    long now();
+
+    void schedule(Runnable task, long delayMs);
+}
@@ -0,0 +1,119 @@
+package com.example.travelshare.utils;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.os.StrictMode;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Exécuteurs partagés par les services.
+ * Le décodage des documents, les tris et les filtres passent sur un pool de fond borné ;
+ * seul le résultat final est livré au thread principal (mainThread()).
+ */
+public final class AppExecutors {
+    private static final int POOL_SIZE =
+        Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors() - 1));
+    private static final long KEEP_ALIVE_SECONDS = 30;
+
+    private static ThreadPoolExecutor background;
+    private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private static final Executor mainThread = command -> {
+        if (isMainThread()) {
+            command.run();
+        } else {
+            mainHandler.post(command);
+        }
+    };
+
+    private AppExecutors() {
+    }
+
+    /**
+     * Pool de fond à nombre de threads borné. La file d'attente ne l'est pas : une tâche n'est
+     * jamais rejetée ni exécutée sur le thread appelant, qui est souvent le thread principal.
+     */
+    public static synchronized Executor background() {
+        if (background == null) {
+            AtomicInteger count = new AtomicInteger();
+            background = new ThreadPoolExecutor(POOL_SIZE, POOL_SIZE,
+                KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(() -> {
+                        Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                        runnable.run();
+                    }, "travelshare-bg-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+            background.allowCoreThreadTimeOut(true);
+        }
+        return background;
+    }
+
+    /**
+     * Exécute sur le thread principal (directement si on y est déjà)
+     */
+    public static Executor mainThread() {
+        return mainThread;
+    }
+
+    /**
+     * Exécuteur qui passe les tâches une par une, dans l'ordre, sur l'exécuteur donné.
+     * Permet de confiner un état à un seul fil logique sans thread dédié.
+     */
+    public static Executor serial(Executor executor) {
+        return new SerialExecutor(executor);
+    }
+
+    public static boolean isMainThread() {
+        return Looper.myLooper() == Looper.getMainLooper();
+    }
+
+    /**
+     * Signale à StrictMode (detectCustomSlowCalls) un traitement lourd fait sur le thread principal
+     */
+    public static void noteIfMainThread(String operation) {
+        if (isMainThread()) {
+            StrictMode.noteSlowCall(operation);
+        }
+    }
+
+    private static class SerialExecutor implements Executor {
+        private final Executor executor;
+        private final ArrayDeque<Runnable> tasks = new ArrayDeque<>();
+        private Runnable active;
+
+        SerialExecutor(Executor executor) {
+            this.executor = executor;
+        }
+
+        @Override
+        public synchronized void execute(Runnable command) {
+            tasks.add(() -> {
+                try {
+                    command.run();
+                } finally {
+                    scheduleNext();
+                }
+            });
+            if (active == null) {
+                scheduleNext();
+            }
+        }
+
+        private synchronized void scheduleNext() {
+            active = tasks.poll();
+            if (active != null) {
+                executor.execute(active);
+            }
+        }
+    }
+}
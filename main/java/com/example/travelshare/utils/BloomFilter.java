@@ -0,0 +1,76 @@
+package com.example.travelshare.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.BitSet;
+
+/**
+ * Filtre de Bloom compact pour mémoriser des identifiants déjà vus.
+ * Peut renvoyer de faux positifs (rarement) mais jamais de faux négatifs.
+ */
+public class BloomFilter {
+    private final BitSet bits;
+    private final int bitCount;
+    private final int hashCount;
+    private final int capacity;
+    private int insertions;
+
+    /**
+     * @param bitCount  taille du tableau de bits
+     * @param hashCount nombre de fonctions de hachage
+     * @param capacity  nombre d'insertions au-delà duquel le taux de faux positifs se dégrade
+     */
+    public BloomFilter(int bitCount, int hashCount, int capacity) {
+        this.bitCount = bitCount;
+        this.hashCount = hashCount;
+        this.capacity = capacity;
+        this.bits = new BitSet(bitCount);
+    }
+
+    public void add(String value) {
+        long hash = hash64(value);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 0; i < hashCount; i++) {
+            bits.set(index(h1 + i * h2));
+        }
+        insertions++;
+    }
+
+    public boolean mightContain(String value) {
+        long hash = hash64(value);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 0; i < hashCount; i++) {
+            if (!bits.get(index(h1 + i * h2))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Indique si le filtre a reçu plus d'éléments que prévu
+     */
+    public boolean isSaturated() {
+        return insertions >= capacity;
+    }
+
+    public void clear() {
+        bits.clear();
+        insertions = 0;
+    }
+
+    private int index(int combinedHash) {
+        return (combinedHash & Integer.MAX_VALUE) % bitCount;
+    }
+
+    // FNV-1a 64 bits : les deux moitiés servent au double hachage
+    private static long hash64(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= (b & 0xff);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+}
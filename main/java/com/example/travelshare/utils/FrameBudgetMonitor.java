@@ -0,0 +1,102 @@
+package com.example.travelshare.utils;
+
+import android.content.Context;
+import android.content.pm.ApplicationInfo;
+import android.os.StrictMode;
+import android.util.Log;
+import android.view.Choreographer;
+
+/**
+ * Surveillance du budget de frame du thread principal, pour les builds de debug.
+ * Un Choreographer.FrameCallback mesure l'écart entre deux frames : tout écart supérieur
+ * au budget (16,7 ms à 60 Hz) est compté, et journalisé s'il fait sauter plusieurs frames.
+ * StrictMode signale en plus les accès disque/réseau et les appels lents notés
+ * (AppExecutors.noteIfMainThread) faits sur le thread principal.
+ * Le bilan est journalisé à l'arrêt : charger un flux ou une carte de 1000 photos
+ * ne doit faire apparaître aucune frame longue.
+ */
+public class FrameBudgetMonitor implements Choreographer.FrameCallback {
+    private static final String TAG = "FrameBudgetMonitor";
+    private static final long FRAME_BUDGET_NANOS = 16_666_667L;
+    // Au-delà de 3 frames manquées, chaque frame est journalisée
+    private static final int LOGGED_SKIPPED_FRAMES = 3;
+
+    private static FrameBudgetMonitor instance;
+
+    private boolean running;
+    private long lastFrameNanos;
+    private long frames;
+    private long framesOverBudget;
+    private long worstFrameNanos;
+
+    private FrameBudgetMonitor() {
+    }
+
+    public static synchronized FrameBudgetMonitor getInstance() {
+        if (instance == null) {
+            instance = new FrameBudgetMonitor();
+        }
+        return instance;
+    }
+
+    public static boolean isDebuggable(Context context) {
+        return (context.getApplicationInfo().flags & ApplicationInfo.FLAG_DEBUGGABLE) != 0;
+    }
+
+    /**
+     * Active StrictMode sur le thread principal (journalisation seulement)
+     */
+    public static void enableStrictMode() {
+        StrictMode.setThreadPolicy(new StrictMode.ThreadPolicy.Builder()
+            .detectDiskReads()
+            .detectDiskWrites()
+            .detectNetwork()
+            .detectCustomSlowCalls()
+            .penaltyLog()
+            .build());
+    }
+
+    /**
+     * Démarre la mesure ; à appeler depuis le thread principal
+     */
+    public void start() {
+        if (running) return;
+        running = true;
+        lastFrameNanos = 0;
+        Choreographer.getInstance().postFrameCallback(this);
+    }
+
+    /**
+     * Arrête la mesure et journalise le bilan depuis le démarrage de l'application
+     */
+    public void stop() {
+        if (!running) return;
+        running = false;
+        Choreographer.getInstance().removeFrameCallback(this);
+        Log.i(TAG, getSummary());
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        if (!running) return;
+        if (lastFrameNanos != 0) {
+            long elapsed = frameTimeNanos - lastFrameNanos;
+            frames++;
+            if (elapsed > FRAME_BUDGET_NANOS) {
+                framesOverBudget++;
+                long skipped = elapsed / FRAME_BUDGET_NANOS - 1;
+                if (skipped >= LOGGED_SKIPPED_FRAMES) {
+                    Log.w(TAG, "Frame longue: " + elapsed / 1_000_000 + " ms (" + skipped + " frames manquées)");
+                }
+            }
+            worstFrameNanos = Math.max(worstFrameNanos, elapsed);
+        }
+        lastFrameNanos = frameTimeNanos;
+        Choreographer.getInstance().postFrameCallback(this);
+    }
+
+    public String getSummary() {
+        return "frames=" + frames + " horsBudget=" + framesOverBudget
+            + " pire=" + worstFrameNanos / 1_000_000 + "ms";
+    }
+}
@@ -0,0 +1,140 @@
+package com.example.travelshare.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Encodage geohash (base 32) et calcul des cellules couvrant une zone de la carte.
+ * Toutes les photos d'une cellule partagent le même préfixe de geohash, ce qui
+ * permet de les lire avec une simple requête par plage sur le champ "geohash".
+ */
+public final class GeoHash {
+    // Précision stockée sur chaque photo (~5 m)
+    public static final int STORED_PRECISION = 9;
+
+    private static final String BASE32 = "0123456789bcdefghjkmnpqrstuvwxyz";
+
+    private GeoHash() {
+    }
+
+    public static String encode(double latitude, double longitude, int precision) {
+        double minLat = -90, maxLat = 90;
+        double minLon = -180, maxLon = 180;
+        StringBuilder hash = new StringBuilder(precision);
+        boolean evenBit = true;
+        int bit = 0;
+        int ch = 0;
+
+        while (hash.length() < precision) {
+            if (evenBit) {
+                double mid = (minLon + maxLon) / 2;
+                if (longitude >= mid) {
+                    ch = (ch << 1) | 1;
+                    minLon = mid;
+                } else {
+                    ch = ch << 1;
+                    maxLon = mid;
+                }
+            } else {
+                double mid = (minLat + maxLat) / 2;
+                if (latitude >= mid) {
+                    ch = (ch << 1) | 1;
+                    minLat = mid;
+                } else {
+                    ch = ch << 1;
+                    maxLat = mid;
+                }
+            }
+            evenBit = !evenBit;
+
+            if (++bit == 5) {
+                hash.append(BASE32.charAt(ch));
+                bit = 0;
+                ch = 0;
+            }
+        }
+        return hash.toString();
+    }
+
+    /**
+     * Précision maximale pertinente pour un niveau de zoom Google Maps
+     */
+    public static int precisionForZoom(float zoom) {
+        if (zoom < 3) return 1;
+        if (zoom < 6) return 2;
+        if (zoom < 8) return 3;
+        if (zoom < 11) return 4;
+        if (zoom < 13) return 5;
+        if (zoom < 16) return 6;
+        return 7;
+    }
+
+    /**
+     * Cellules couvrant le rectangle donné : la précision la plus fine (au plus maxPrecision)
+     * qui tienne en maxCells cellules. Gère le passage de l'antiméridien (west > east).
+     */
+    public static List<String> coveringCells(double south, double west, double north, double east,
+                                             int maxPrecision, int maxCells) {
+        south = clamp(south, -90, 90);
+        north = clamp(north, -90, 90);
+        double lonSpan = east >= west ? east - west : (180 - west) + (east + 180);
+
+        int precision = Math.max(1, maxPrecision);
+        while (precision > 1 && cellCount(south, north, lonSpan, precision) > maxCells) {
+            precision--;
+        }
+
+        List<String> cells = new ArrayList<>();
+        if (east >= west) {
+            addCells(cells, south, west, north, east, precision);
+        } else {
+            addCells(cells, south, west, north, 180, precision);
+            addCells(cells, south, -180, north, east, precision);
+        }
+        return cells;
+    }
+
+    private static long cellCount(double south, double north, double lonSpan, int precision) {
+        double cellHeight = cellHeight(precision);
+        double cellWidth = cellWidth(precision);
+        long rows = (long) Math.floor((north + 90) / cellHeight) - (long) Math.floor((south + 90) / cellHeight) + 1;
+        long cols = (long) Math.ceil(lonSpan / cellWidth) + 1;
+        return rows * cols;
+    }
+
+    private static void addCells(List<String> cells, double south, double west, double north, double east,
+                                 int precision) {
+        double cellHeight = cellHeight(precision);
+        double cellWidth = cellWidth(precision);
+        int rowStart = (int) Math.floor((south + 90) / cellHeight);
+        int rowEnd = (int) Math.min(Math.floor((north + 90) / cellHeight), 180 / cellHeight - 1);
+        int colStart = (int) Math.floor((west + 180) / cellWidth);
+        int colEnd = (int) Math.min(Math.floor((east + 180) / cellWidth), 360 / cellWidth - 1);
+
+        for (int row = rowStart; row <= rowEnd; row++) {
+            for (int col = colStart; col <= colEnd; col++) {
+                // Le centre de la cellule suffit à retrouver son geohash
+                double lat = -90 + (row + 0.5) * cellHeight;
+                double lon = -180 + (col + 0.5) * cellWidth;
+                String cell = encode(lat, lon, precision);
+                if (!cells.contains(cell)) {
+                    cells.add(cell);
+                }
+            }
+        }
+    }
+
+    private static double cellWidth(int precision) {
+        int lonBits = (5 * precision + 1) / 2;
+        return 360.0 / (1L << lonBits);
+    }
+
+    private static double cellHeight(int precision) {
+        int latBits = (5 * precision) / 2;
+        return 180.0 / (1L << latBits);
+    }
+
+    private static double clamp(double value, double min, double max) {
+        return Math.max(min, Math.min(max, value));
+    }
+}
@@ -0,0 +1,200 @@
+package com.example.travelshare.utils;
+
+import android.content.ContentResolver;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Matrix;
+import android.net.Uri;
+
+import androidx.exifinterface.media.ExifInterface;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Prépare une image avant l'upload : décodage sous-échantillonné (inSampleSize),
+ * redimensionnement au bord maximal, rotation selon l'orientation EXIF, ré-encodage,
+ * et variantes moyenne et miniature générées dans la même passe à partir de l'image réduite.
+ * Appels bloquants : à exécuter hors du thread principal, une image à la fois
+ * pour borner la mémoire (au plus une image décodée de 2 x maxEdge de côté).
+ */
+public class ImageProcessor {
+    public static final int DEFAULT_MAX_EDGE = 2048;
+    public static final int DEFAULT_QUALITY = 85;
+    public static final int MEDIUM_MAX_EDGE = 1080;
+    public static final int THUMBNAIL_MAX_EDGE = 400;
+    private static final int THUMBNAIL_QUALITY = 75;
+
+    private final ContentResolver resolver;
+    private final int maxEdge;
+    private final int quality;
+    private final Bitmap.CompressFormat format;
+
+    public ImageProcessor(ContentResolver resolver) {
+        this(resolver, DEFAULT_MAX_EDGE, DEFAULT_QUALITY, Bitmap.CompressFormat.JPEG);
+    }
+
+    public ImageProcessor(ContentResolver resolver, int maxEdge, int quality, Bitmap.CompressFormat format) {
+        this.resolver = resolver;
+        this.maxEdge = maxEdge;
+        this.quality = quality;
+        this.format = format;
+    }
+
+    public ProcessedImage process(Uri uri) throws IOException {
+        // 1. Dimensions seules, sans allouer de pixels
+        BitmapFactory.Options bounds = new BitmapFactory.Options();
+        bounds.inJustDecodeBounds = true;
+        try (InputStream in = open(uri)) {
+            BitmapFactory.decodeStream(in, null, bounds);
+        }
+        if (bounds.outWidth <= 0 || bounds.outHeight <= 0) {
+            throw new IOException("Format d'image non reconnu");
+        }
+
+        // 2. Décodage sous-échantillonné par puissance de 2
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inSampleSize = sampleSizeFor(bounds.outWidth, bounds.outHeight, maxEdge);
+        Bitmap decoded;
+        try (InputStream in = open(uri)) {
+            decoded = BitmapFactory.decodeStream(in, null, options);
+        }
+        if (decoded == null) {
+            throw new IOException("Impossible de décoder l'image");
+        }
+
+        // 3. Mise à l'échelle exacte et rotation EXIF en une seule copie
+        Bitmap full = transform(decoded, maxEdge, readRotation(uri));
+        if (full != decoded) {
+            decoded.recycle();
+        }
+
+        try {
+            byte[] fullBytes = compress(full, quality);
+
+            // 4. Variantes réduites, chacune à partir de la précédente
+            Bitmap medium = transform(full, MEDIUM_MAX_EDGE, 0);
+            byte[] mediumBytes;
+            byte[] thumbnailBytes;
+            try {
+                mediumBytes = compress(medium, quality);
+                Bitmap thumbnail = transform(medium, THUMBNAIL_MAX_EDGE, 0);
+                try {
+                    thumbnailBytes = compress(thumbnail, THUMBNAIL_QUALITY);
+                } finally {
+                    if (thumbnail != medium) {
+                        thumbnail.recycle();
+                    }
+                }
+            } finally {
+                if (medium != full) {
+                    medium.recycle();
+                }
+            }
+
+            return new ProcessedImage(fullBytes, mediumBytes, thumbnailBytes, full.getWidth(), full.getHeight(), format);
+        } finally {
+            full.recycle();
+        }
+    }
+
+    /**
+     * Plus grande puissance de 2 qui garde le plus grand bord au-dessus de maxEdge
+     */
+    static int sampleSizeFor(int width, int height, int maxEdge) {
+        int largest = Math.max(width, height);
+        int sampleSize = 1;
+        while (largest / (sampleSize * 2) >= maxEdge) {
+            sampleSize *= 2;
+        }
+        return sampleSize;
+    }
+
+    private static Bitmap transform(Bitmap source, int maxEdge, int rotation) {
+        int largest = Math.max(source.getWidth(), source.getHeight());
+        float scale = largest > maxEdge ? (float) maxEdge / largest : 1f;
+        if (scale == 1f && rotation == 0) {
+            return source;
+        }
+
+        Matrix matrix = new Matrix();
+        matrix.postScale(scale, scale);
+        matrix.postRotate(rotation);
+        return Bitmap.createBitmap(source, 0, 0, source.getWidth(), source.getHeight(), matrix, true);
+    }
+
+    private int readRotation(Uri uri) {
+        try (InputStream in = open(uri)) {
+            ExifInterface exif = new ExifInterface(in);
+            return exif.getRotationDegrees();
+        } catch (IOException e) {
+            // Pas de métadonnées EXIF lisibles : image laissée telle quelle
+            return 0;
+        }
+    }
+
+    private byte[] compress(Bitmap bitmap, int targetQuality) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        bitmap.compress(format, targetQuality, out);
+        return out.toByteArray();
+    }
+
+    private InputStream open(Uri uri) throws IOException {
+        InputStream in = resolver.openInputStream(uri);
+        if (in == null) {
+            throw new IOException("Impossible d'ouvrir l'image");
+        }
+        return in;
+    }
+
+    /**
+     * Image ré-encodée et ses variantes réduites
+     */
+    public static class ProcessedImage {
+        private final byte[] fullBytes;
+        private final byte[] mediumBytes;
+        private final byte[] thumbnailBytes;
+        private final int width;
+        private final int height;
+        private final Bitmap.CompressFormat format;
+
+        ProcessedImage(byte[] fullBytes, byte[] mediumBytes, byte[] thumbnailBytes, int width, int height,
+                       Bitmap.CompressFormat format) {
+            this.fullBytes = fullBytes;
+            this.mediumBytes = mediumBytes;
+            this.thumbnailBytes = thumbnailBytes;
+            this.width = width;
+            this.height = height;
+            this.format = format;
+        }
+
+        public byte[] getFullBytes() {
+            return fullBytes;
+        }
+
+        public byte[] getMediumBytes() {
+            return mediumBytes;
+        }
+
+        public byte[] getThumbnailBytes() {
+            return thumbnailBytes;
+        }
+
+        public int getWidth() {
+            return width;
+        }
+
+        public int getHeight() {
+            return height;
+        }
+
+        public String getExtension() {
+            return format == Bitmap.CompressFormat.JPEG ? "jpg" : format == Bitmap.CompressFormat.PNG ? "png" : "webp";
+        }
+
+        public String getMimeType() {
+            return format == Bitmap.CompressFormat.JPEG ? "image/jpeg" : format == Bitmap.CompressFormat.PNG ? "image/png" : "image/webp";
+        }
+    }
+}
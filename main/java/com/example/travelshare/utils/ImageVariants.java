@@ -0,0 +1,74 @@
+package com.example.travelshare.utils;
+
+import com.example.travelshare.models.Photo;
+
+/**
+ * Choix de la variante d'image la plus petite qui couvre la zone d'affichage.
+ * Les images sont affichées en centerCrop : une variante convient si ses deux côtés
+ * atteignent ceux de la zone, pas seulement son grand côté.
+ * Les photos publiées avant le pipeline d'image n'ont que l'original.
+ */
+public final class ImageVariants {
+
+    // Dimensions inconnues (photos publiées avant leur enregistrement) : format photo 4:3 supposé
+    private static final float DEFAULT_ASPECT = 4f / 3f;
+
+    private ImageVariants() {
+    }
+
+    /**
+     * URL de la plus petite variante qui couvre une cellule carrée de targetPx pixels
+     */
+    public static String urlFor(Photo photo, int targetPx) {
+        return urlFor(photo, targetPx, targetPx);
+    }
+
+    /**
+     * URL de la plus petite variante qui couvre une zone de widthPx × heightPx pixels
+     */
+    public static String urlFor(Photo photo, int widthPx, int heightPx) {
+        if (widthPx > 0 && heightPx > 0) {
+            if (!isEmpty(photo.getThumbnailUrl())
+                    && covers(photo, ImageProcessor.THUMBNAIL_MAX_EDGE, widthPx, heightPx)) {
+                return photo.getThumbnailUrl();
+            }
+            if (!isEmpty(photo.getMediumUrl())
+                    && covers(photo, ImageProcessor.MEDIUM_MAX_EDGE, widthPx, heightPx)) {
+                return photo.getMediumUrl();
+            }
+        }
+        return photo.getImageUrl();
+    }
+
+    /**
+     * URL de la plus petite variante disponible, pour un premier affichage rapide
+     */
+    public static String smallestUrl(Photo photo) {
+        if (!isEmpty(photo.getThumbnailUrl())) {
+            return photo.getThumbnailUrl();
+        }
+        if (!isEmpty(photo.getMediumUrl())) {
+            return photo.getMediumUrl();
+        }
+        return photo.getImageUrl();
+    }
+
+    /**
+     * Vrai si la variante réduite à maxEdge (sans agrandissement) couvre la zone
+     */
+    private static boolean covers(Photo photo, int maxEdge, int widthPx, int heightPx) {
+        int width = photo.getWidth();
+        int height = photo.getHeight();
+        if (width <= 0 || height <= 0) {
+            // Orientation inconnue : le petit côté doit couvrir le plus grand côté de la zone
+            float shortEdge = maxEdge / DEFAULT_ASPECT;
+            return Math.max(widthPx, heightPx) <= shortEdge;
+        }
+        float scale = Math.min(1f, (float) maxEdge / Math.max(width, height));
+        return width * scale >= widthPx && height * scale >= heightPx;
+    }
+
+    private static boolean isEmpty(String url) {
+        return url == null || url.isEmpty();
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.travelshare.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Trie en mémoire pour l'autocomplétion des noms de lieux.
+ * Les clés sont normalisées avec {@link SearchTokenizer#normalize(String)},
+ * les valeurs restituées sont les noms d'origine (avec accents).
+ */
+public class PrefixTrie {
+    private final int maxEntries;
+    private final Node root = new Node();
+    private int size;
+
+    public PrefixTrie(int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Ajoute un nom affichable ; ignoré si le trie est plein
+     */
+    public synchronized void insert(String displayName) {
+        String key = SearchTokenizer.normalize(displayName);
+        if (key.isEmpty()) return;
+
+        Node node = root;
+        for (int i = 0; i < key.length(); i++) {
+            char c = key.charAt(i);
+            Node child = node.children.get(c);
+            if (child == null) {
+                if (size >= maxEntries) return;
+                child = new Node();
+                node.children.put(c, child);
+            }
+            node = child;
+        }
+        if (node.displayName == null) {
+            size++;
+        }
+        node.displayName = displayName;
+    }
+
+    /**
+     * Renvoie au plus "max" noms commençant par le préfixe saisi (ordre alphabétique)
+     */
+    public synchronized List<String> suggest(String prefix, int max) {
+        List<String> results = new ArrayList<>();
+        String key = SearchTokenizer.normalize(prefix);
+        if (key.isEmpty()) return results;
+
+        Node node = root;
+        for (int i = 0; i < key.length() && node != null; i++) {
+            node = node.children.get(key.charAt(i));
+        }
+        if (node != null) {
+            collect(node, results, max);
+        }
+        return results;
+    }
+
+    private void collect(Node node, List<String> results, int max) {
+        if (results.size() >= max) return;
+        if (node.displayName != null) {
+            results.add(node.displayName);
+        }
+        for (Node child : node.children.values()) {
+            if (results.size() >= max) return;
+            collect(child, results, max);
+        }
+    }
+
+    private static class Node {
+        final Map<Character, Node> children = new TreeMap<>();
+        String displayName;
+    }
+}
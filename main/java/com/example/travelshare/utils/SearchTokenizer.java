@@ -0,0 +1,77 @@
+package com.example.travelshare.utils;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Génère les jetons de recherche (préfixes normalisés, sans accents) d'une localisation.
+ * Les mêmes règles servent à l'écriture (publication) et à la lecture (requête).
+ */
+public final class SearchTokenizer {
+    // Longueur maximale d'un préfixe indexé : les requêtes plus longues sont tronquées
+    public static final int MAX_PREFIX_LENGTH = 20;
+    private static final int MIN_PREFIX_LENGTH = 2;
+
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final Pattern NON_ALPHANUMERIC = Pattern.compile("[^a-z0-9]+");
+
+    private SearchTokenizer() {
+    }
+
+    /**
+     * Minuscules, accents retirés, ponctuation remplacée par des espaces
+     * ("Saint-Étienne" -> "saint etienne")
+     */
+    public static String normalize(String text) {
+        if (text == null) return "";
+        String folded = Normalizer.normalize(text, Normalizer.Form.NFD);
+        folded = DIACRITICS.matcher(folded).replaceAll("");
+        folded = folded.toLowerCase(Locale.ROOT);
+        return NON_ALPHANUMERIC.matcher(folded).replaceAll(" ").trim();
+    }
+
+    /**
+     * Jetons à stocker dans le champ "searchTokens" d'une photo :
+     * préfixes du nom complet et de chacun de ses mots
+     */
+    public static List<String> tokensFor(String... fields) {
+        Set<String> tokens = new LinkedHashSet<>();
+        for (String field : fields) {
+            String normalized = normalize(field);
+            if (normalized.isEmpty()) continue;
+
+            addPrefixes(tokens, normalized);
+            for (String word : normalized.split(" ")) {
+                addPrefixes(tokens, word);
+            }
+        }
+        return new ArrayList<>(tokens);
+    }
+
+    /**
+     * Jeton à rechercher pour une saisie utilisateur, ou chaîne vide si trop courte
+     */
+    public static String queryToken(String query) {
+        String normalized = normalize(query);
+        if (normalized.length() < MIN_PREFIX_LENGTH) return "";
+        return normalized.length() > MAX_PREFIX_LENGTH
+            ? normalized.substring(0, MAX_PREFIX_LENGTH).trim()
+            : normalized;
+    }
+
+    private static void addPrefixes(Set<String> tokens, String value) {
+        int max = Math.min(value.length(), MAX_PREFIX_LENGTH);
+        for (int length = MIN_PREFIX_LENGTH; length <= max; length++) {
+            String prefix = value.substring(0, length);
+            // Un préfixe qui se termine par une espace est identique au précédent une fois tronqué
+            if (!prefix.endsWith(" ")) {
+                tokens.add(prefix);
+            }
+        }
+    }
+}